@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+
+/**
+ * Memory efficient, read only form of the trace of one test. For every
+ * method the lines (or values) are kept in a sorted array, and the counts in
+ * a parallel array.
+ */
+public class CompactTrace {
+
+	private final Map<String, int[]> lines = new HashMap<String, int[]>();
+
+	private final Map<String, int[]> counts = new HashMap<String, int[]>();
+
+	public CompactTrace(Map<String, ? extends Map<Integer, Integer>> trace) {
+		for (Entry<String, ? extends Map<Integer, Integer>> entry : trace
+				.entrySet()) {
+			int[] methodLines = new int[entry.getValue().size()];
+			int i = 0;
+			for (Integer line : entry.getValue().keySet()) {
+				methodLines[i++] = line;
+			}
+			Arrays.sort(methodLines);
+			int[] methodCounts = new int[methodLines.length];
+			for (i = 0; i < methodLines.length; i++) {
+				methodCounts[i] = entry.getValue().get(methodLines[i]);
+			}
+			lines.put(entry.getKey(), methodLines);
+			counts.put(entry.getKey(), methodCounts);
+		}
+	}
+
+	/**
+	 * Converts the traces of several tests.
+	 * 
+	 * @param traces
+	 *            maps test names to their traces
+	 * @return maps test names to the compact form of their traces
+	 */
+	public static Map<String, CompactTrace> compactAll(
+			Map<String, Map<String, Map<Integer, Integer>>> traces) {
+		Map<String, CompactTrace> result = new HashMap<String, CompactTrace>();
+		for (Entry<String, Map<String, Map<Integer, Integer>>> entry : traces
+				.entrySet()) {
+			result.put(entry.getKey(), new CompactTrace(entry.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Compares the trace of a mutated run with this trace, and records every
+	 * line that was seen in the modified map. A line is marked as modified
+	 * (true) if it was executed with a different frequency in any of the
+	 * compared runs, or if it was executed in only one of the runs.
+	 * 
+	 * @param mutated
+	 *            the trace of the same test for the mutated run
+	 * @param modified
+	 *            maps method names to lines, and whether they were modified
+	 */
+	public void addDifferences(
+			Map<String, ? extends Map<Integer, Integer>> mutated,
+			Map<String, Map<Integer, Boolean>> modified) {
+		for (Entry<String, ? extends Map<Integer, Integer>> entry : mutated
+				.entrySet()) {
+			String method = entry.getKey();
+			int[] methodLines = lines.get(method);
+			int[] methodCounts = counts.get(method);
+			Map<Integer, Boolean> lineSet = getLineSet(modified, method);
+			int found = 0;
+			for (Entry<Integer, Integer> line : entry.getValue().entrySet()) {
+				int originalValue = 0;
+				if (methodLines != null) {
+					int index = Arrays.binarySearch(methodLines, line.getKey());
+					if (index >= 0) {
+						originalValue = methodCounts[index];
+						found++;
+					}
+				}
+				if (originalValue != line.getValue()) {
+					lineSet.put(line.getKey(), true);
+				} else if (!lineSet.containsKey(line.getKey())) {
+					lineSet.put(line.getKey(), false);
+				}
+			}
+			if (methodLines != null && found < methodLines.length) {
+				// lines only found in the original trace
+				for (int line : methodLines) {
+					if (!entry.getValue().containsKey(line)) {
+						lineSet.put(line, true);
+					}
+				}
+			}
+		}
+		for (Entry<String, int[]> entry : lines.entrySet()) {
+			// methods only found in the original trace
+			if (mutated.containsKey(entry.getKey())) {
+				continue;
+			}
+			Map<Integer, Boolean> lineSet = getLineSet(modified, entry
+					.getKey());
+			for (int line : entry.getValue()) {
+				lineSet.put(line, true);
+			}
+		}
+	}
+
+	/**
+	 * @return the names of the methods of this trace
+	 */
+	public Set<String> getMethods() {
+		return lines.keySet();
+	}
+
+	/**
+	 * Adds all methods whose lines (or values) differ between this trace and
+	 * the given trace to the differences. This includes the methods that are
+	 * only contained in one of the traces.
+	 * 
+	 * @param other
+	 *            the trace to compare with
+	 * @param differences
+	 *            the set the methods are added to
+	 */
+	public void addDifferentMethods(
+			Map<String, ? extends Map<Integer, Integer>> other,
+			Set<String> differences) {
+		for (Entry<String, ? extends Map<Integer, Integer>> entry : other
+				.entrySet()) {
+			String method = entry.getKey();
+			if (!differences.contains(method)
+					&& !equalLines(method, entry.getValue())) {
+				differences.add(method);
+			}
+		}
+		for (String method : lines.keySet()) {
+			if (!other.containsKey(method)) {
+				differences.add(method);
+			}
+		}
+	}
+
+	private boolean equalLines(String method, Map<Integer, Integer> otherLines) {
+		int[] methodLines = lines.get(method);
+		if (methodLines == null || methodLines.length != otherLines.size()) {
+			return false;
+		}
+		int[] methodCounts = counts.get(method);
+		for (int i = 0; i < methodLines.length; i++) {
+			Integer count = otherLines.get(methodLines[i]);
+			if (count == null || count != methodCounts[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Map<Integer, Boolean> getLineSet(
+			Map<String, Map<Integer, Boolean>> modified, String method) {
+		Map<Integer, Boolean> lineSet = modified.get(method);
+		if (lineSet == null) {
+			lineSet = new HashMap<Integer, Boolean>();
+			modified.put(method, lineSet);
+		}
+		return lineSet;
+	}
+}
@@ -21,13 +21,19 @@ package de.unisb.cs.st.javalanche.coverage;
 import static de.unisb.cs.st.javalanche.coverage.CoverageAnalyzer.*;
 
 import java.io.File;
-import java.io.FilenameFilter;
-import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -35,16 +41,6 @@ import de.unisb.cs.st.ds.util.io.XmlIo;
 
 public class CompareTraces {
 
-	private static class PermutatedFilter implements FilenameFilter {
-
-		public boolean accept(File dir, String name) {
-			if (name.startsWith(CoverageProperties.PERMUTED_PREFIX)) {
-				return true;
-			}
-			return false;
-		}
-	}
-
 	static Logger logger = Logger.getLogger(CompareTraces.class);
 	private static boolean zeroAsBase = true;
 
@@ -54,21 +50,79 @@ public class CompareTraces {
 
 	public static void comparePermuted() {
 		File dir = new File(CoverageProperties.TRACE_RESULT_LINE_DIR);
-		logger.info("Total methods: " + getAllMethods());
-		String[] files = dir.list(new PermutatedFilter());
+		List<String> permuted = new ArrayList<String>();
+		for (String name : CoverageTraceUtil.getTraceNames(dir)) {
+			if (name.startsWith(CoverageProperties.PERMUTED_PREFIX)) {
+				permuted.add(name);
+			}
+		}
+		String[] files = permuted.toArray(new String[0]);
 
 		String base = files[new Random().nextInt(files.length)];
 		if (zeroAsBase) {
 			base = "0";
 		}
+		Map<Mode, Map<String, CompactTrace>> baseTraces = new EnumMap<Mode, Map<String, CompactTrace>>(
+				Mode.class);
+		Set<String> allMethods = new HashSet<String>();
+		for (Mode mode : Mode.values()) {
+			Map<String, Map<String, Map<Integer, Integer>>> traces = CoverageTraceUtil
+					.loadTraces(getDir(mode), base);
+			if (traces == null) {
+				logger.warn("No " + mode + " traces for base run " + base);
+				continue;
+			}
+			Map<String, CompactTrace> compact = CompactTrace.compactAll(traces);
+			for (CompactTrace trace : compact.values()) {
+				allMethods.addAll(trace.getMethods());
+			}
+			baseTraces.put(mode, compact);
+		}
+		logger.info("Total methods: " + allMethods.size());
+
+		int threads = Math.max(1, Math.min(files.length * baseTraces.size(),
+				Runtime.getRuntime().availableProcessors()));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		Map<Mode, List<Future<Set<String>>>> results = new EnumMap<Mode, List<Future<Set<String>>>>(
+				Mode.class);
+		for (Entry<Mode, Map<String, CompactTrace>> entry : baseTraces
+				.entrySet()) {
+			List<Future<Set<String>>> futures = new ArrayList<Future<Set<String>>>();
+			for (String file : files) {
+				futures.add(pool.submit(new PermutationComparison(getDir(entry
+						.getKey()), entry.getValue(), file)));
+			}
+			results.put(entry.getKey(), futures);
+		}
+		pool.shutdown();
+
 		HashSet<String> diffComplete = new HashSet<String>();
-		int count = 0;
 		int excludePre = InstrumentExclude.numberOfExlusions();
-		for (String file : files) {
-			Set<String> differences = calculateDifferences(EnumSet.of(
-					Mode.LINE, Mode.DATA), base, file);
-			count++;
-			diffComplete.addAll(differences);
+		try {
+			for (Entry<Mode, List<Future<Set<String>>>> entry : results
+					.entrySet()) {
+				Mode mode = entry.getKey();
+				for (int i = 0; i < files.length; i++) {
+					Set<String> differences = entry.getValue().get(i).get();
+					System.out.println(base + " VS. " + files[i] + " (" + mode
+							+ "): " + differences.size() + " differences");
+					diffComplete.addAll(differences);
+					for (String method : differences) {
+						if (mode == Mode.LINE) {
+							InstrumentExclude.addExcludeLine(method);
+						} else {
+							InstrumentExclude.addExcludeReturn(method);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			throw new RuntimeException("Comparison of traces interrupted", e);
+		} catch (ExecutionException e) {
+			pool.shutdownNow();
+			throw new RuntimeException("Comparison of traces failed", e
+					.getCause());
 		}
 		// System.out.println("Methods that have differences in at least one run:"
 		// + diffComplete.size());
@@ -80,75 +134,61 @@ public class CompareTraces {
 		XmlIo.toXML(diffComplete, CoverageProperties.TRACE_DIFFERENCES_FILE);
 	}
 
-	private static int getAllMethods() {
-		Map<String, Map<String, Map<Integer, Integer>>> trace1 = CoverageTraceUtil
-				.loadLineCoverageTrace("0");
-		Map<String, Map<String, Map<Integer, Integer>>> trace2 = CoverageTraceUtil
-				.loadDataCoverageTrace("0");
-		Set<String> methods = new HashSet<String>();
-		addMethods(trace1, methods);
-		addMethods(trace2, methods);
-		return methods.size();
+	private static File getDir(Mode mode) {
+		if (mode == Mode.LINE) {
+			return new File(CoverageProperties.TRACE_RESULT_LINE_DIR);
+		}
+		return new File(CoverageProperties.TRACE_RESULT_DATA_DIR);
 	}
 
-	private static void addMethods(
-			Map<String, Map<String, Map<Integer, Integer>>> trace1,
-			Set<String> methods) {
-		Set<Entry<String, Map<String, Map<Integer, Integer>>>> entrySet = trace1
-				.entrySet();
-		for (Entry<String, Map<String, Map<Integer, Integer>>> entry : entrySet) {
-			Set<String> keySet = entry.getValue().keySet();
-			logger.debug(entry.getKey() + " Methods " + keySet.size());
-			methods.addAll(keySet);
+	/**
+	 * Compares the traces of one permuted run with the base run. The traces
+	 * of the permuted run are read one test at a time.
+	 */
+	private static class PermutationComparison implements
+			Callable<Set<String>> {
+
+		private final File dir;
+
+		private final Map<String, CompactTrace> baseTraces;
+
+		private final String name;
+
+		PermutationComparison(File dir, Map<String, CompactTrace> baseTraces,
+				String name) {
+			this.dir = dir;
+			this.baseTraces = baseTraces;
+			this.name = name;
 		}
-	}
 
-	private static Set<String> calculateDifferences(Set<Mode> modes,
-			String id1, String id2) {
-		Set<String> allDifferences = new HashSet<String>();
-		System.out.println(id1 + " VS. " + id2 + ": ");
-		if (modes.contains(Mode.LINE)) {
-			logger.info("Comparing lines");
-			Map<String, Map<String, Map<Integer, Integer>>> trace1 = CoverageTraceUtil
-					.loadLineCoverageTrace(id1);
-			Map<String, Map<String, Map<Integer, Integer>>> trace2 = CoverageTraceUtil
-					.loadLineCoverageTrace(id2);
-			// logger.info("Line data 1" + trace1);
-			// logger.info("Line data 2" + trace2);
-			Set<String> differences = compare(trace1, trace2);
-			allDifferences.addAll(differences);
-			// logger.info("Differences " + differences);
-			for (String string : differences) {
-				InstrumentExclude.addExcludeLine(string);
+		public Set<String> call() {
+			final Set<String> differences = new HashSet<String>();
+			final Set<String> seenTests = new HashSet<String>();
+			boolean found = CoverageTraceUtil.streamTraces(dir, name,
+					new TraceArchive.TraceHandler() {
+						public void handleTrace(String testName,
+								Map<String, Map<Integer, Integer>> trace) {
+							seenTests.add(testName);
+							CompactTrace baseTrace = baseTraces.get(testName);
+							if (baseTrace == null) {
+								differences.addAll(trace.keySet());
+							} else {
+								baseTrace.addDifferentMethods(trace,
+										differences);
+							}
+						}
+					});
+			if (!found) {
+				return differences;
 			}
-		}
-		if (modes.contains(Mode.DATA)) {
-			logger.info("Comparing data");
-			Map<String, Map<String, Map<Integer, Integer>>> trace1 = CoverageTraceUtil
-					.loadDataCoverageTrace(id1);
-			Map<String, Map<String, Map<Integer, Integer>>> trace2 = CoverageTraceUtil
-					.loadDataCoverageTrace(id2);
-			// logger.info("Return data 1" + trace1);
-			// logger.info("Return data 2" + trace2);
-			Set<String> differences = compare(trace1, trace2);
-			allDifferences.addAll(differences);
-			logger.info("Differences " + differences);
-			for (String string : differences) {
-				InstrumentExclude.addExcludeReturn(string);
+			// tests that were only executed in the base run
+			for (Entry<String, CompactTrace> entry : baseTraces.entrySet()) {
+				if (!seenTests.contains(entry.getKey())) {
+					differences.addAll(entry.getValue().getMethods());
+				}
 			}
+			return differences;
 		}
-		// XmlIo.toXML(differences, CoverageProperties.TRACE_DIFFERENCES_FILE);
-		return allDifferences;
-	}
-
-	private static Set<String> compare(
-			Map<String, Map<String, Map<Integer, Integer>>> trace1,
-			Map<String, Map<String, Map<Integer, Integer>>> trace2) {
-		Set<String> diff1 = CoverageTraceUtil.getDifferentMethodsForTests2(trace1, trace2);
-		Set<String> diff2 = CoverageTraceUtil.getDifferentMethodsForTests2(trace2, trace1);
-		Set<String> result = new HashSet<String>(diff1);
-		result.addAll(diff2);
-		return result;
 	}
 
 	public static void main(String[] args) {
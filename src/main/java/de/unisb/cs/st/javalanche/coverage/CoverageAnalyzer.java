@@ -18,12 +18,8 @@
  */
 package de.unisb.cs.st.javalanche.coverage;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
@@ -33,7 +29,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.log4j.Logger;
 
@@ -70,6 +65,7 @@ public class CoverageAnalyzer implements MutationAnalyzer {
 		public int mutationForLine;
 		public String mutationType;
 		public String mutationResult;
+		public int runs;
 
 		public static MutationCache create(Mutation m) {
 			MutationCache mc = new MutationCache();
@@ -84,6 +80,8 @@ public class CoverageAnalyzer implements MutationAnalyzer {
 			mc.mutationResult = m.getMutationResult() != null ? m
 					.getMutationResult().toShortString()
 					: CoverageProperties.NO_RESULT;
+			mc.runs = m.getMutationResult() != null ? m.getMutationResult()
+					.getRuns() : 0;
 			return mc;
 		}
 	}
@@ -293,224 +291,6 @@ public class CoverageAnalyzer implements MutationAnalyzer {
 
 	}
 
-	/*
-	 * *************************************************************************
-	 * Method that processes a single line coverage test and returns its results
-	 * to the calling mutation test method.
-	 */
-	private void processTestLineCoverage(
-			Map<String, Map<Integer, Integer>> classMap, ObjectInputStream ois,
-			Map<String, Map<Integer, Boolean>> modified) throws IOException {
-		int numClasses, numLines;
-		String className;
-
-		Map<Integer, Integer> lineMap;
-
-		int lineKey, lineValue;
-
-		double value = 0;
-
-		Integer tmp;
-		int originalValue;
-
-		HashSet<Integer> doneLines;
-		HashSet<String> doneClasses;
-
-		numClasses = ois.readInt();
-
-		Map<Integer, Boolean> lineSet;
-
-		// process Classes
-		doneClasses = new HashSet<String>();
-		for (int i = 0; i < numClasses; i++) {
-			className = ois.readUTF();
-			doneClasses.add(className);
-
-			lineMap = classMap.get(className);
-			numLines = ois.readInt();
-
-			// process Lines
-			doneLines = new HashSet<Integer>();
-
-			lineSet = modified.get(className);
-			if (lineSet == null) {
-				lineSet = new HashMap<Integer, Boolean>();
-			}
-			for (int j = 0; j < numLines; j++) {
-				lineKey = ois.readInt();
-				doneLines.add(lineKey);
-
-				lineValue = ois.readInt();
-				originalValue = 0;
-				if (lineMap != null) {
-					tmp = lineMap.get(lineKey);
-					if (tmp == null) {
-						originalValue = 0;
-					} else {
-						originalValue = tmp;
-					}
-				}
-				value = Math.abs(originalValue - lineValue);
-
-				if (value != 0) {
-					lineSet.put(lineKey, true);
-				} else if (lineSet.get(lineKey) == null
-						|| !lineSet.get(lineKey)) {
-					lineSet.put(lineKey, false);
-				} else {
-					lineSet.put(lineKey, true);
-				}
-
-			}
-			if (lineMap != null) {
-				// process Lines only found in the original map
-				Iterator<Integer> it = lineMap.keySet().iterator();
-				while (it.hasNext()) {
-					tmp = it.next();
-					if (doneLines.contains(tmp)) {
-						continue;
-					}
-					lineSet.put(tmp, true);
-				}
-			}
-			modified.put(className, lineSet);
-		}
-
-		// process Classes only found in the original map
-		Iterator<String> itS = classMap.keySet().iterator();
-		String tmpS;
-		while (itS.hasNext()) {
-			tmpS = itS.next();
-			if (doneClasses.contains(tmpS)) {
-				continue;
-			}
-
-			lineMap = classMap.get(tmpS);
-
-			Iterator<Integer> itI = lineMap.keySet().iterator();
-
-			lineSet = modified.get(tmpS);
-			if (lineSet == null) {
-				lineSet = new HashMap<Integer, Boolean>();
-			}
-			while (itI.hasNext()) {
-				tmp = itI.next();
-				lineSet.put(tmp, true);
-			}
-			modified.put(tmpS, lineSet);
-		}
-	}
-
-	/*
-	 * *************************************************************************
-	 * Method that processes a single data coverage test and returns its results
-	 * to the calling mutation test method.
-	 */
-	private void processTestDataCoverage(
-			Map<String, Map<Integer, Integer>> classMap, ObjectInputStream ois,
-			Map<String, Map<Integer, Boolean>> modified) throws IOException {
-
-		int numClasses, numLines;
-		String className;
-
-		Map<Integer, Integer> lineMap;
-
-		int lineKey, lineValue;
-
-		double value = 0;
-
-		Integer tmp;
-		int originalValue;
-
-		HashSet<Integer> doneLines;
-		HashSet<String> doneClasses;
-
-		numClasses = ois.readInt();
-
-		Map<Integer, Boolean> lineSet;
-
-		// process Classes
-		doneClasses = new HashSet<String>();
-		for (int i = 0; i < numClasses; i++) {
-			className = ois.readUTF();
-			doneClasses.add(className);
-
-			lineMap = classMap.get(className);
-			numLines = ois.readInt();
-
-			// process Lines
-			doneLines = new HashSet<Integer>();
-
-			lineSet = modified.get(className);
-			if (lineSet == null) {
-				lineSet = new HashMap<Integer, Boolean>();
-			}
-			for (int j = 0; j < numLines; j++) {
-				lineKey = ois.readInt();
-				doneLines.add(lineKey);
-
-				lineValue = ois.readInt();
-				originalValue = 0;
-				if (lineMap != null) {
-					tmp = lineMap.get(lineKey);
-					if (tmp == null) {
-						originalValue = 0;
-					} else {
-						originalValue = tmp;
-					}
-				}
-				value = Math.abs(originalValue - lineValue);
-
-				if (value != 0) {
-					lineSet.put(lineKey, true);
-				} else if (lineSet.get(lineKey) == null
-						|| !lineSet.get(lineKey)) {
-					lineSet.put(lineKey, false);
-				} else {
-					lineSet.put(lineKey, true);
-				}
-
-			}
-			if (lineMap != null) {
-				// process Lines only found in the original map
-				Iterator<Integer> it = lineMap.keySet().iterator();
-				while (it.hasNext()) {
-					tmp = it.next();
-					if (doneLines.contains(tmp)) {
-						continue;
-					}
-					lineSet.put(tmp, true);
-
-				}
-			}
-			modified.put(className, lineSet);
-		}
-
-		// process Classes only found in the original map
-		Iterator<String> itS = classMap.keySet().iterator();
-		String tmpS;
-		while (itS.hasNext()) {
-			tmpS = itS.next();
-			if (doneClasses.contains(tmpS)) {
-				continue;
-			}
-
-			lineMap = classMap.get(tmpS);
-
-			Iterator<Integer> itI = lineMap.keySet().iterator();
-
-			lineSet = modified.get(tmpS);
-			if (lineSet == null) {
-				lineSet = new HashMap<Integer, Boolean>();
-			}
-			while (itI.hasNext()) {
-				tmp = itI.next();
-				lineSet.put(tmp, true);
-			}
-			modified.put(tmpS, lineSet);
-		}
-	}
-
 	/*
 	 * *************************************************************************
 	 * Helper method to find the mutated method given a line number in some
@@ -585,65 +365,29 @@ public class CoverageAnalyzer implements MutationAnalyzer {
 	private void processMutationLineCoverage(MutationCache mutation,
 			TracerResult results, HashSet<String> modifiedMethodsSet,
 			String ignoredMethod) {
-		ObjectInputStream ois = null;
-
-		String path = CoverageProperties.TRACE_RESULT_LINE_DIR + mutation.id
-				+ "/";
-		File dir = new File(path);
-		if (!dir.exists()) {
-			logger.warn("No line coverage data found for mutation: "
-					+ mutation.shortString);
-			return;
-		}
-		String[] mutatedTests = dir.list();
-
-		Map<String, Map<Integer, Boolean>> modified = new HashMap<String, Map<Integer, Boolean>>();
-
-		Map<String, Map<Integer, Boolean>> modifiedTmp = null;
-
-		boolean commit = true;
-		for (String test : mutatedTests) {
-
-			// TRANSACTION START: copy modified to modifiedTmp
-			modifiedTmp = modified;
-			commit = true;
-			try {
-				ois = new ObjectInputStream(new BufferedInputStream(
-						new GZIPInputStream(new FileInputStream(path + test))));
-				String testName = CoverageTraceUtil.stripGz(test);
+		// differences computed while the tests ran
+		Map<String, Map<Integer, Boolean>> modified = CoverageTraceUtil
+				.loadImpact(mutation.id, CoverageTraceUtil.LINE_IMPACT);
+		int testsExecuted = mutation.runs;
+		if (modified == null) {
+			Map<String, Map<String, Map<Integer, Integer>>> traces = CoverageTraceUtil
+					.loadLineCoverageTrace(mutation.id + "");
+			if (traces == null) {
+				logger.warn("No line coverage data found for mutation: "
+						+ mutation.shortString);
+				return;
+			}
+			testsExecuted = traces.size();
+			modified = new HashMap<String, Map<Integer, Boolean>>();
+			for (String testName : traces.keySet()) {
 				if (originalLineCoverageMaps.containsKey(testName)) {
-					processTestLineCoverage(originalLineCoverageMaps
-							.get(testName), ois, modifiedTmp);
+					new CompactTrace(originalLineCoverageMaps.get(testName))
+							.addDifferences(traces.get(testName), modified);
 				} else {
 					logger
 							.warn("Got no coverage data of unmutated run for test: "
-									+ test);
+									+ testName);
 				}
-			} catch (FileNotFoundException e) {
-				// TRANSACTION FAIL
-				commit = false;
-				logger.info("File not found: " + (path + test));
-				e.printStackTrace();
-			} catch (IOException e) {
-				// TRANSACTION FAIL
-				commit = false;
-				logger.info("IO Exception: " + (path + test));
-				e.printStackTrace();
-			} finally {
-				if (ois != null) {
-					try {
-						ois.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
-			}
-			// TRANSACTION COMMIT
-			if (commit) {
-				modified = modifiedTmp;
-			} else {
-				logger.info("Line Coverage Test '" + test + "' for Mutation "
-						+ mutation.id + " excluded.");
 			}
 		}
 
@@ -705,7 +449,7 @@ public class CoverageAnalyzer implements MutationAnalyzer {
 			classesTotalSet.add(className);
 		}
 
-		results.testsExecuted = mutatedTests.length;
+		results.testsExecuted = testsExecuted;
 		results.testsTotal = originalLineCoverageMaps.size();
 		results.linesTotal += linesTotal;
 		results.linesModified += linesModified;
@@ -731,64 +475,29 @@ public class CoverageAnalyzer implements MutationAnalyzer {
 	private void processMutationDataCoverage(MutationCache mutation,
 			TracerResult results, HashSet<String> modifiedMethodsSet,
 			String ignoredMethod) {
-		ObjectInputStream ois = null;
-
-		String path = CoverageProperties.TRACE_RESULT_DATA_DIR + mutation.id
-				+ "/";
-		File dir = new File(path);
-		if (!dir.exists()) {
-			System.out.println("NOT FOUND: " + mutation.shortString);
-			return;
-		}
-		String[] mutatedTests = dir.list();
-
-		Map<String, Map<Integer, Boolean>> modified = new HashMap<String, Map<Integer, Boolean>>();
-
-		Map<String, Map<Integer, Boolean>> modifiedTmp = null;
-		boolean commit = true;
-		for (String test : mutatedTests) {
-
-			// TRANSACTION START: copy modified to modifiedTmp
-			modifiedTmp = modified;
-			commit = true;
-			try {
-				ois = new ObjectInputStream(new BufferedInputStream(
-						new GZIPInputStream(new FileInputStream(path + test))));
-				String testName = CoverageTraceUtil.stripGz(test);
+		// differences computed while the tests ran
+		Map<String, Map<Integer, Boolean>> modified = CoverageTraceUtil
+				.loadImpact(mutation.id, CoverageTraceUtil.DATA_IMPACT);
+		int testsExecuted = mutation.runs;
+		if (modified == null) {
+			Map<String, Map<String, Map<Integer, Integer>>> traces = CoverageTraceUtil
+					.loadDataCoverageTrace(mutation.id + "");
+			if (traces == null) {
+				System.out.println("NOT FOUND: " + mutation.shortString);
+				return;
+			}
+			testsExecuted = traces.size();
+			modified = new HashMap<String, Map<Integer, Boolean>>();
+			for (String testName : traces.keySet()) {
 				if (originalDataCoverageMaps.containsKey(testName)) {
-					processTestDataCoverage(originalDataCoverageMaps
-							.get(testName), ois, modified);
+					new CompactTrace(originalDataCoverageMaps.get(testName))
+							.addDifferences(traces.get(testName), modified);
 				} else {
 					logger
 							.warn("Got no coverage data of unmutated run for test: "
-									+ test);
-				}
-			} catch (FileNotFoundException e) {
-				// TRANSACTION FAIL
-				commit = false;
-				logger.info("File not found: " + path + test);
-				e.printStackTrace();
-			} catch (IOException e) {
-				// TRANSACTION FAIL
-				commit = false;
-				logger.info("IO Exception: " + path + test);
-				e.printStackTrace();
-			} finally {
-				if (ois != null) {
-					try {
-						ois.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
+									+ testName);
 				}
 			}
-			// TRANSACTION COMMIT
-			if (commit) {
-				modified = modifiedTmp;
-			} else {
-				logger.info("Data Coverage Test '" + test + "' for Mutation "
-						+ mutation.id + " excluded.");
-			}
 		}
 
 		// Count the number of modified data
@@ -25,6 +25,7 @@ import org.objectweb.asm.ClassAdapter;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
 
+import de.unisb.cs.st.javalanche.coverage.distance.TracingScope;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.Excludes;
 
 /**
@@ -47,9 +48,14 @@ public class CoverageClassAdapter extends ClassAdapter {
 	
 	private boolean exclude;
 
+	private LineProbes lineProbes;
+
+	private TracingScope scope = TracingScope.getDefault();
+
 	public CoverageClassAdapter(ClassVisitor visitor, String className) {
 		super(visitor);
 		this.className = className;
+		this.lineProbes = new LineProbes(className);
 		String classNameWithDots = className.replace('/', '.');
 		if (e.shouldExclude(classNameWithDots) || EXCLUDES.contains(className)) {
 			exclude = true;
@@ -74,11 +80,18 @@ public class CoverageClassAdapter extends ClassAdapter {
 			String descriptor, String signature, String[] exceptions) {
 		MethodVisitor mv = super.visitMethod(methodAccess, name, descriptor,
 				signature, exceptions);
-		if (!exclude) {
+		if (!exclude
+				&& (scope == null || scope.containsMethod(className, name))) {
 			mv = new CoverageMethodAdapter(mv, className, name, descriptor,
-					classAccess, methodAccess);
+					classAccess, methodAccess, lineProbes);
 		}
 		return mv;
 	}
 
+	@Override
+	public void visitEnd() {
+		lineProbes.register();
+		super.visitEnd();
+	}
+
 }
@@ -48,11 +48,13 @@ public class CoverageMethodAdapter extends MethodAdapter {
 	// primitive data types
 	private enum PDType { LONG, INTEGER, FLOAT, DOUBLE };
 
+	private LineProbes lineProbes;
 	
 
 
-	public CoverageMethodAdapter(MethodVisitor visitor, String className,	String methodName, String signature, int classAccess, int methodAccess) {
+	public CoverageMethodAdapter(MethodVisitor visitor, String className,	String methodName, String signature, int classAccess, int methodAccess, LineProbes lineProbes) {
 		super(visitor);
+		this.lineProbes = lineProbes;
 		this.className = className.replace('/', '.');
 		this.methodName = methodName;
 		
@@ -85,15 +87,12 @@ public class CoverageMethodAdapter extends MethodAdapter {
 	 * @see org.objectweb.asm.MethodAdapter#visitCode()
 	 */
 	public void visitCode() {
-		if (!methodName.equals("<clinit>")
-				&& (instrumentLine || instrumentReturns)) {
+		if (!methodName.equals("<clinit>") && instrumentReturns) {
 			// System.out.println(className + "." + methodName);
 			this.visitMethodInsn(Opcodes.INVOKESTATIC, CoverageProperties.TRACER_CLASS_NAME, "getInstance", "()L"+ CoverageProperties.TRACER_CLASS_NAME + ";");
 			this.visitLdcInsn(className);
 			this.visitLdcInsn(methodName);
-			this.visitLdcInsn(instrumentLine);
-			this.visitLdcInsn(instrumentReturns);
-			this.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CoverageProperties.TRACER_CLASS_NAME, "begin", "(Ljava/lang/String;Ljava/lang/String;ZZ)V");
+			this.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CoverageProperties.TRACER_CLASS_NAME, "begin", "(Ljava/lang/String;Ljava/lang/String;)V");
 		}
 		super.visitCode();
 	}
@@ -147,11 +146,15 @@ public class CoverageMethodAdapter extends MethodAdapter {
 	 */
 	public void visitLineNumber(int line, Label start) {
 		if (!methodName.equals("<clinit>") && instrumentLine) {
-			this.visitMethodInsn(Opcodes.INVOKESTATIC, CoverageProperties.TRACER_CLASS_NAME, "getInstance", "()L" + CoverageProperties.TRACER_CLASS_NAME +";");
-			this.visitLdcInsn(line);
-			this.visitLdcInsn(className);
-			this.visitLdcInsn(methodName);
-			this.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CoverageProperties.TRACER_CLASS_NAME, "logLineNumber", "(ILjava/lang/String;Ljava/lang/String;)V");
+			// counters[probe]++ on the line counters of this class
+			this.visitLdcInsn(lineProbes.getClassId());
+			this.visitMethodInsn(Opcodes.INVOKESTATIC, CoverageProperties.TRACER_CLASS_NAME, "getLineCounters", "(I)[I");
+			this.visitLdcInsn(lineProbes.getProbe(methodName, line));
+			this.visitInsn(Opcodes.DUP2);
+			this.visitInsn(Opcodes.IALOAD);
+			this.visitInsn(Opcodes.ICONST_1);
+			this.visitInsn(Opcodes.IADD);
+			this.visitInsn(Opcodes.IASTORE);
 		}
 		super.visitLineNumber(line, start);
 	 }
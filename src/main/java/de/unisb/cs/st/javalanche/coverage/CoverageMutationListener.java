@@ -19,16 +19,17 @@
 package de.unisb.cs.st.javalanche.coverage;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 
 import de.unisb.cs.st.ds.util.io.XmlIo;
+import de.unisb.cs.st.javalanche.coverage.distance.TracingScope;
 import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 import de.unisb.cs.st.javalanche.mutation.properties.RunMode;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation;
@@ -51,44 +52,50 @@ public class CoverageMutationListener implements MutationTestListener {
 
 	private boolean saveFiles = false;
 
+	private TraceArchive lineArchive;
+
+	private TraceArchive dataArchive;
+
+	private TraceArchive impactArchive;
+
+	private boolean originalTracesLoaded;
+
+	/**
+	 * The line traces of the unmutated run, or null if they are not compared
+	 * while the tests run.
+	 */
+	private Map<String, CompactTrace> originalLines;
+
+	/**
+	 * The data traces of the unmutated run, or null if they are not compared
+	 * while the tests run.
+	 */
+	private Map<String, CompactTrace> originalData;
+
+	private Map<String, Map<Integer, Boolean>> modifiedLines = new HashMap<String, Map<Integer, Boolean>>();
+
+	private Map<String, Map<Integer, Boolean>> modifiedData = new HashMap<String, Map<Integer, Boolean>>();
+
 	private static int instanceCount = 0;
 
 	// private static Map<String, Map<Integer, Integer>> classMap = new
 	// ConcurrentHashMap<String, Map<Integer, Integer>>();
 
-	public static AtomicReference<ConcurrentMap<String, ConcurrentMap<Integer, Integer>>> lineMapRef = new AtomicReference<ConcurrentMap<String, ConcurrentMap<Integer, Integer>>>(
-			new ConcurrentHashMap<String, ConcurrentMap<Integer, Integer>>());
-
 	// private static Map<String, Map<Integer, Integer>> valueMap = new
 	// ConcurrentHashMap<String, Map<Integer, Integer>>();
 
-	public static AtomicReference<ConcurrentMap<String, ConcurrentMap<Integer, Integer>>> valueMapRef = new AtomicReference<ConcurrentMap<String, ConcurrentMap<Integer, Integer>>>(
-			new ConcurrentHashMap<String, ConcurrentMap<Integer, Integer>>());
-
 	private static Map<String, Long> profilerMap = new ConcurrentHashMap<String, Long>();
 
 	// private static HashMap<String, Integer> idMap = new HashMap<String,
 	// Integer>();
 	// private static int idMapMasterSize = 0;
 
-	public static ConcurrentMap<String, ConcurrentMap<Integer, Integer>> getLineCoverageMap() {
-		return lineMapRef.get();
-	}
-
-	public static ConcurrentMap<String, ConcurrentMap<Integer, Integer>> getValueMap() {
-		return valueMapRef.get();
-	}
-
 	public static Long getMutationId() {
 		return mutation_id;
 	}
 
 	public static String getMutationIdFileName() {
-		if (mutation_id < 0) {
-			return CoverageProperties.PERMUTED_PREFIX + Math.abs(mutation_id);
-		} else {
-			return mutation_id.toString();
-		}
+		return CoverageTraceUtil.getTraceName(mutation_id);
 	}
 
 	/*
@@ -113,37 +120,138 @@ public class CoverageMutationListener implements MutationTestListener {
 			dir.mkdir();
 		}
 
+		dir = new File(CoverageProperties.TRACE_RESULT_IMPACT_DIR);
+		if (!dir.exists()) {
+			dir.mkdir();
+		}
+
 		if (ConfigurationLocator.getJavalancheConfiguration().getRunMode() == RunMode.CREATE_COVERAGE_MULT) {
 			isPermuted = true;
 		}
 	}
 
-	private void createMutationDir() {
-		File dir = new File(CoverageProperties.TRACE_RESULT_DATA_DIR
-				+ getMutationIdFileName());
-		if (!dir.exists()) {
-			dir.mkdir();
+	/**
+	 * Returns the archive for the traces of this run. There is one archive
+	 * per mutation task, so that tasks that run in parallel do not write to
+	 * the same file.
+	 */
+	private static TraceArchive openArchive(String dir) {
+		File mutationIdFile = ConfigurationLocator.getJavalancheConfiguration()
+				.getMutationIdFile();
+		String name = "coverage";
+		if (mutationIdFile != null) {
+			name = mutationIdFile.getName();
+			int index = name.lastIndexOf('.');
+			if (index > 0) {
+				name = name.substring(0, index);
+			}
 		}
+		return TraceArchive.open(new File(dir, name + TraceArchive.SUFFIX));
+	}
 
-		dir = new File(CoverageProperties.TRACE_RESULT_LINE_DIR
-				+ getMutationIdFileName());
-		if (!dir.exists()) {
-			dir.mkdir();
+	private TraceArchive getLineArchive() {
+		if (lineArchive == null) {
+			lineArchive = openArchive(CoverageProperties.TRACE_RESULT_LINE_DIR);
+		}
+		return lineArchive;
+	}
+
+	private TraceArchive getDataArchive() {
+		if (dataArchive == null) {
+			dataArchive = openArchive(CoverageProperties.TRACE_RESULT_DATA_DIR);
+		}
+		return dataArchive;
+	}
+
+	private TraceArchive getImpactArchive() {
+		if (impactArchive == null) {
+			impactArchive = openArchive(CoverageProperties.TRACE_RESULT_IMPACT_DIR);
+		}
+		return impactArchive;
+	}
+
+	/**
+	 * Loads the traces of the unmutated run, so that the traces of the
+	 * mutated runs can be compared while the tests run. Then only the
+	 * differences have to be stored.
+	 */
+	private void loadOriginalTraces() {
+		if (originalTracesLoaded || !CoverageProperties.TRACE_IMPACT_ONLINE) {
+			return;
+		}
+		originalTracesLoaded = true;
+		if (CoverageProperties.TRACE_LINES) {
+			Map<String, Map<String, Map<Integer, Integer>>> traces = CoverageTraceUtil
+					.loadLineCoverageTrace("0");
+			if (traces != null) {
+				retainScope(traces);
+				originalLines = CompactTrace.compactAll(traces);
+			}
+		}
+		if (CoverageProperties.TRACE_RETURNS) {
+			Map<String, Map<String, Map<Integer, Integer>>> traces = CoverageTraceUtil
+					.loadDataCoverageTrace("0");
+			if (traces != null) {
+				retainScope(traces);
+				originalData = CompactTrace.compactAll(traces);
+			}
+		}
+		logger.info("Comparing traces while tests run. Lines: "
+				+ (originalLines != null) + " Data: " + (originalData != null));
+	}
+
+	/**
+	 * Only the methods of the tracing scope are traced for mutations, so the
+	 * other methods of the unmutated run must not be compared.
+	 */
+	private static void retainScope(
+			Map<String, Map<String, Map<Integer, Integer>>> traces) {
+		TracingScope scope = TracingScope.getDefault();
+		if (scope != null) {
+			scope.retainMethods(traces);
+		}
+	}
+
+	private static void addDifferences(Map<String, CompactTrace> original,
+			String testName, Map<String, ? extends Map<Integer, Integer>> trace,
+			Map<String, Map<Integer, Boolean>> modified) {
+		CompactTrace originalTrace = original.get(testName);
+		if (originalTrace == null) {
+			logger.warn("Got no coverage data of unmutated run for test: "
+					+ testName);
+			return;
+		}
+		originalTrace.addDifferences(trace, modified);
+	}
+
+	private void closeArchives() {
+		if (lineArchive != null) {
+			lineArchive.close();
+			lineArchive = null;
+		}
+		if (dataArchive != null) {
+			dataArchive.close();
+			dataArchive = null;
+		}
+		if (impactArchive != null) {
+			impactArchive.close();
+			impactArchive = null;
 		}
 	}
 
 	public void start() {
 		mutation_id = new Long(0);
-		lineMapRef.get().clear();
-		valueMapRef.get().clear();
+		Tracer.resetLineCounters();
+		Tracer.resetValues();
 		saveFiles = true;
 	}
 
 	public void end() {
+		closeArchives();
 		writeProfilingData();
 		InstrumentExclude.save();
-		lineMapRef.get().clear();
-		valueMapRef.get().clear();
+		Tracer.resetLineCounters();
+		Tracer.resetValues();
 		saveFiles = false;
 	}
 
@@ -154,69 +262,77 @@ public class CoverageMutationListener implements MutationTestListener {
 				logger.info("New Permutation Detected for Test: " + testName);
 				seenTests.clear();
 				long i = 1;
-				File lineDir = new File(
-						CoverageProperties.TRACE_RESULT_LINE_DIR
-								+ CoverageProperties.PERMUTED_PREFIX + i);
-				File dataDir = new File(
-						CoverageProperties.TRACE_RESULT_DATA_DIR
-								+ CoverageProperties.PERMUTED_PREFIX + i);
-				while (dataDir.exists() || lineDir.exists()) {
+				Set<String> traces = CoverageTraceUtil.getTraceNames(new File(
+						CoverageProperties.TRACE_RESULT_LINE_DIR));
+				traces.addAll(CoverageTraceUtil.getTraceNames(new File(
+						CoverageProperties.TRACE_RESULT_DATA_DIR)));
+				while (traces.contains(CoverageTraceUtil.getTraceName(-i))) {
 					i++;
-					dataDir = new File(CoverageProperties.TRACE_RESULT_DATA_DIR
-							+ CoverageProperties.PERMUTED_PREFIX + i);
-					lineDir = new File(CoverageProperties.TRACE_RESULT_LINE_DIR
-							+ CoverageProperties.PERMUTED_PREFIX + i);
 				}
 				mutation_id = -i;
 			}
 			seenTests.add(testName);
 		}
-		lineMapRef.get().clear();
-		valueMapRef.get().clear();
+		Tracer.resetLineCounters();
+		Tracer.resetValues();
 		saveFiles = true;
 	}
 
 	public void testEnd(String testName) {
-		createMutationDir();
-		Tracer.getInstance().deactivateTrace();
 		if (CoverageProperties.TRACE_LINES) {
-			logger.info("Writing line traces");
-			ConcurrentMap<String, ConcurrentMap<Integer, Integer>> classMap = lineMapRef
-					.get();
-			lineMapRef
-					.set(new ConcurrentHashMap<String, ConcurrentMap<Integer, Integer>>());
-			CoverageTraceUtil.writeTrace(classMap, testName,
-					getLineCoverageFileName(testName));
-			lineMapRef.get().clear();
+			ConcurrentMap<String, ConcurrentMap<Integer, Integer>> classMap = Tracer
+					.snapshotLineCounters();
+			if (mutation_id > 0 && originalLines != null) {
+				addDifferences(originalLines, sanitize(testName), classMap,
+						modifiedLines);
+			} else {
+				logger.info("Writing line traces");
+				getLineArchive().write(mutation_id, sanitize(testName),
+						classMap);
+			}
 		}
 		if (CoverageProperties.TRACE_RETURNS) {
-			logger.info("Writing data traces");
-			ConcurrentMap<String, ConcurrentMap<Integer, Integer>> valueMap = valueMapRef
-					.get();
-			valueMapRef
-					.set(new ConcurrentHashMap<String, ConcurrentMap<Integer, Integer>>());
-			CoverageTraceUtil.writeTrace(valueMap, testName,
-					getDataCoverageFileName(testName));
-			valueMapRef.get().clear();
+			ConcurrentMap<String, ConcurrentMap<Integer, Integer>> valueMap = Tracer
+					.snapshotValues();
+			if (mutation_id > 0 && originalData != null) {
+				addDifferences(originalData, sanitize(testName), valueMap,
+						modifiedData);
+			} else {
+				logger.info("Writing data traces");
+				getDataArchive().write(mutation_id, sanitize(testName),
+						valueMap);
+			}
 		}
 
-		Tracer.getInstance().activateTrace();
-
 		saveFiles = false;
 	}
 
 	public void mutationStart(Mutation mutation) {
 		mutation_id = mutation.getId();
-		lineMapRef.get().clear();
-		valueMapRef.get().clear();
-		createMutationDir();
+		loadOriginalTraces();
+		modifiedLines.clear();
+		modifiedData.clear();
+		Tracer.resetLineCounters();
+		Tracer.resetValues();
 		saveFiles = true;
 	}
 
 	public void mutationEnd(Mutation mutation) {
 		// serializeIdMap(mutation_id);
-		lineMapRef.get().clear();
-		valueMapRef.get().clear();
+		if (mutation_id > 0 && originalLines != null) {
+			getImpactArchive().write(mutation_id,
+					CoverageTraceUtil.LINE_IMPACT,
+					CoverageTraceUtil.toImpactRecord(modifiedLines));
+		}
+		if (mutation_id > 0 && originalData != null) {
+			getImpactArchive().write(mutation_id,
+					CoverageTraceUtil.DATA_IMPACT,
+					CoverageTraceUtil.toImpactRecord(modifiedData));
+		}
+		modifiedLines.clear();
+		modifiedData.clear();
+		Tracer.resetLineCounters();
+		Tracer.resetValues();
 		saveFiles = false;
 	}
 
@@ -232,18 +348,4 @@ public class CoverageMutationListener implements MutationTestListener {
 		result = result.replace('/', '-');
 		return result;
 	}
-
-	private static String getDataCoverageFileName(String testName) {
-		String sanitizedName = sanitize(testName);
-		String fileName = CoverageProperties.TRACE_RESULT_DATA_DIR
-				+ getMutationIdFileName() + "/" + sanitizedName + ".gz";
-		return fileName;
-	}
-
-	static String getLineCoverageFileName(String testName) {
-		String sanitizedName = sanitize(testName);
-		String fileName = CoverageProperties.TRACE_RESULT_LINE_DIR
-				+ getMutationIdFileName() + "/" + sanitizedName + ".gz";
-		return fileName;
-	}
 }
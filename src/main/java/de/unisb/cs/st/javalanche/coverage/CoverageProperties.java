@@ -34,6 +34,7 @@ public final class CoverageProperties {
 
 	public static String TRACE_RESULT_DATA_DIR = TRACE_RESULT_DIR + "data/";
 	public static String TRACE_RESULT_LINE_DIR = TRACE_RESULT_DIR + "line/";
+	public static String TRACE_RESULT_IMPACT_DIR = TRACE_RESULT_DIR + "impact/";
 	public static String TRACE_CLASS_MASTERIDS = TRACE_RESULT_DIR + "ids.list";
 	public static String TRACE_CLASS_IDFILE = "ids.list";
 
@@ -51,6 +52,51 @@ public final class CoverageProperties {
 	public static final boolean TRACE_LINES = PropertyUtil
 			.getPropertyOrDefault(TRACE_LINES_KEY, true);
 
+	/**
+	 * If true, returned objects are hashed by their fields (see
+	 * {@link ValueHasher}) instead of their string representation.
+	 */
+	private static final String TRACE_RETURNS_STRUCTURAL_KEY = "javalanche.trace.returns.structural";
+	public static final boolean TRACE_RETURNS_STRUCTURAL = PropertyUtil
+			.getPropertyOrDefault(TRACE_RETURNS_STRUCTURAL_KEY, true);
+
+	/**
+	 * Comma separated prefixes of class names whose returned objects are
+	 * still hashed by their string representation.
+	 */
+	private static final String TRACE_RETURNS_TO_STRING_KEY = "javalanche.trace.returns.tostring";
+	private static final String[] TRACE_RETURNS_TO_STRING = getList(PropertyUtil
+			.getProperty(TRACE_RETURNS_TO_STRING_KEY));
+
+	private static final String TRACE_HASH_DEPTH_KEY = "javalanche.trace.hash.depth";
+	public static final int TRACE_HASH_DEPTH = PropertyUtil
+			.getPropertyOrDefault(TRACE_HASH_DEPTH_KEY, 4);
+
+	private static final String TRACE_HASH_MAX_VALUES_KEY = "javalanche.trace.hash.max.values";
+	public static final int TRACE_HASH_MAX_VALUES = PropertyUtil
+			.getPropertyOrDefault(TRACE_HASH_MAX_VALUES_KEY, 1000);
+
+	/**
+	 * If true, the traces of mutated runs are compared to the traces of the
+	 * unmutated run while the tests run, and only the differences are stored.
+	 * The full traces of the mutated runs are not written then, so analyzers
+	 * that need them, like the CoverageSplitSuiteAnalyzer, can not be used.
+	 */
+	private static final String TRACE_IMPACT_ONLINE_KEY = "javalanche.trace.impact.online";
+	public static final boolean TRACE_IMPACT_ONLINE = PropertyUtil
+			.getPropertyOrDefault(TRACE_IMPACT_ONLINE_KEY, false);
+
+	/**
+	 * If not negative, only the methods within this call distance of the
+	 * mutated methods of the current task are traced when mutations are
+	 * executed (see TracingScope). Changes in methods further away
+	 * are not detected, so the impact is a lower bound. Only used when
+	 * {@link #TRACE_IMPACT_ONLINE} is true.
+	 */
+	private static final String TRACE_MAX_DISTANCE_KEY = "javalanche.trace.max.distance";
+	public static final int TRACE_MAX_DISTANCE = PropertyUtil
+			.getPropertyOrDefault(TRACE_MAX_DISTANCE_KEY, -1);
+
 	public static final String EPSILON_KEY = "javalanche.coverage.epsilon";
 
 	public static final double EPSILON = PropertyUtil.getPropertyOrDefault(
@@ -60,12 +106,39 @@ public final class CoverageProperties {
 		TRACE_RESULT_DIR = base + "/mutation-files/tracer/";
 		TRACE_RESULT_DATA_DIR = TRACE_RESULT_DIR + "data/";
 		TRACE_RESULT_LINE_DIR = TRACE_RESULT_DIR + "line/";
+		TRACE_RESULT_IMPACT_DIR = TRACE_RESULT_DIR + "impact/";
 		TRACE_CLASS_MASTERIDS = TRACE_RESULT_DIR + "ids.list";
 		TRACE_PROFILER_FILE = TRACE_RESULT_DIR + "profiler-map.xml";
 
 		TRACE_DIFFERENCES_FILE = TRACE_RESULT_DIR + "differences-set.xml";
 	}
 
+	private static String[] getList(String property) {
+		if (property == null || property.trim().length() == 0) {
+			return new String[0];
+		}
+		String[] result = property.split(",");
+		for (int i = 0; i < result.length; i++) {
+			result[i] = result[i].trim();
+		}
+		return result;
+	}
+
+	/**
+	 * @param className
+	 *            the name of a class
+	 * @return true, if returned objects of this class are hashed by their
+	 *         string representation
+	 */
+	public static boolean useToStringHash(String className) {
+		for (String prefix : TRACE_RETURNS_TO_STRING) {
+			if (className.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	static final String PERMUTED_PREFIX = "PERMUTED_";
 
 	public static final String CONNECTION_DATA_FILE = ConfigurationLocator
@@ -186,6 +186,12 @@ public class CoverageSplitSuiteAnalyzer implements MutationAnalyzer {
 		}
 		Map<String, Map<String, Map<Integer, Integer>>> mutationLineCoverageData = CoverageTraceUtil
 				.loadLineCoverageTrace(m.getId() + "");
+		if (mutationLineCoverageData == null) {
+			throw new IllegalStateException("No line trace for mutation "
+					+ m.getId()
+					+ ". This analyzer needs the full traces, which are not "
+					+ "written when javalanche.trace.impact.online is true.");
+		}
 		split = reduceSplit(split, mutationLineCoverageData);
 		Map<String, Map<Integer, Integer>> originalData = getSplitData(
 				originalLineData, split);
@@ -57,6 +57,16 @@ public class CoverageTraceUtil {
 	private static final Collection<String> EMPTY_COLLECTION = new ArrayList<String>();
 	private static Logger logger = Logger.getLogger(CoverageTraceUtil.class);
 
+	/**
+	 * Name of the impact record that holds the line differences.
+	 */
+	public static final String LINE_IMPACT = "lines";
+
+	/**
+	 * Name of the impact record that holds the data differences.
+	 */
+	public static final String DATA_IMPACT = "data";
+
 	/**
 	 * Don not instantiate this class.
 	 */
@@ -223,31 +233,230 @@ public class CoverageTraceUtil {
 	}
 
 	/**
-	 * Convenience method to load all coverage traces from a directory. See
-	 * method loadTracesFromDirectory.
+	 * Convenience method to load all coverage traces of a mutation. See method
+	 * loadTraces.
 	 * 
 	 * @param dir
-	 *            name of the directory (is the mutation id).
+	 *            name of the trace (is the mutation id).
 	 * @return A map containing the coverage traces.
 	 */
 	public static Map<String, Map<String, Map<Integer, Integer>>> loadLineCoverageTrace(
 			String dir) {
-		return CoverageTraceUtil.loadTracesFromDirectory(new File(
-				CoverageProperties.TRACE_RESULT_LINE_DIR + "/" + dir));
+		return loadTraces(new File(CoverageProperties.TRACE_RESULT_LINE_DIR),
+				dir);
 	}
 
 	/**
-	 * Convenience method to load all data traces from a directory. See method
-	 * loadTracesFromDirectory.
+	 * Convenience method to load all data traces of a mutation. See method
+	 * loadTraces.
 	 * 
 	 * @param dir
-	 *            name of the directory (is the mutation id).
+	 *            name of the trace (is the mutation id).
 	 * @return A map containing the data traces.
 	 */
 	public static Map<String, Map<String, Map<Integer, Integer>>> loadDataCoverageTrace(
 			String dir) {
-		return CoverageTraceUtil.loadTracesFromDirectory(new File(
-				CoverageProperties.TRACE_RESULT_DATA_DIR + "/" + dir));
+		return loadTraces(new File(CoverageProperties.TRACE_RESULT_DATA_DIR),
+				dir);
+	}
+
+	/**
+	 * Loads all traces of one mutation. The traces are either read from a
+	 * directory with one file per test, or from the trace archives in the
+	 * given directory.
+	 * 
+	 * @param baseDir
+	 *            the directory that contains the traces
+	 * @param name
+	 *            name of the trace (is the mutation id).
+	 * @return a map whose first key is the test name and the value is a map as
+	 *         returned by the loadTrace method, or null if there are no traces
+	 *         for this mutation.
+	 */
+	public static Map<String, Map<String, Map<Integer, Integer>>> loadTraces(
+			File baseDir, String name) {
+		File dir = new File(baseDir, name);
+		if (dir.isDirectory()) {
+			return loadTracesFromDirectory(dir);
+		}
+		Long mutationId = parseTraceName(name);
+		Map<String, Map<String, Map<Integer, Integer>>> result = null;
+		if (mutationId != null) {
+			for (File archive : getArchives(baseDir)) {
+				Map<String, Map<String, Map<Integer, Integer>>> traces = TraceArchive
+						.read(archive, mutationId);
+				if (traces != null) {
+					if (result == null) {
+						result = traces;
+					} else {
+						result.putAll(traces);
+					}
+				}
+			}
+		}
+		if (result == null) {
+			logger.warn("No traces for mutation " + name
+					+ " in " + baseDir);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads all traces of one mutation like {@link #loadTraces(File, String)},
+	 * but passes them to the handler one test at a time instead of keeping
+	 * all of them in memory.
+	 * 
+	 * @param baseDir
+	 *            the directory that contains the traces
+	 * @param name
+	 *            name of the trace (is the mutation id).
+	 * @param handler
+	 *            receives the trace of each test
+	 * @return true, if there are traces for this mutation
+	 */
+	public static boolean streamTraces(File baseDir, String name,
+			TraceArchive.TraceHandler handler) {
+		File dir = new File(baseDir, name);
+		if (dir.isDirectory()) {
+			File[] tests = dir.listFiles(new FilenameFilter() {
+				public boolean accept(File dir, String name) {
+					return name.endsWith("gz");
+				}
+			});
+			for (File f : tests) {
+				handler.handleTrace(stripGz(f.getName()), loadTrace(f));
+			}
+			return true;
+		}
+		Long mutationId = parseTraceName(name);
+		boolean found = false;
+		if (mutationId != null) {
+			for (File archive : getArchives(baseDir)) {
+				found |= TraceArchive.read(archive, mutationId, handler);
+			}
+		}
+		if (!found) {
+			logger.warn("No traces for mutation " + name + " in " + baseDir);
+		}
+		return found;
+	}
+
+	/**
+	 * Loads the differences between the traces of a mutation and the
+	 * unmutated run that were computed while the tests ran.
+	 * 
+	 * @param mutationId
+	 *            the id of the mutation
+	 * @param kind
+	 *            either {@link #LINE_IMPACT} or {@link #DATA_IMPACT}
+	 * @return maps method names to lines (or values), and whether they were
+	 *         modified, or null if there are no differences stored for this
+	 *         mutation.
+	 */
+	public static Map<String, Map<Integer, Boolean>> loadImpact(
+			long mutationId, String kind) {
+		for (File archive : getArchives(new File(
+				CoverageProperties.TRACE_RESULT_IMPACT_DIR))) {
+			Map<String, Map<String, Map<Integer, Integer>>> records = TraceArchive
+					.read(archive, mutationId);
+			if (records != null && records.containsKey(kind)) {
+				Map<String, Map<Integer, Boolean>> result = new HashMap<String, Map<Integer, Boolean>>();
+				for (Entry<String, Map<Integer, Integer>> entry : records.get(
+						kind).entrySet()) {
+					Map<Integer, Boolean> lineSet = new HashMap<Integer, Boolean>();
+					for (Entry<Integer, Integer> line : entry.getValue()
+							.entrySet()) {
+						lineSet.put(line.getKey(), line.getValue() != 0);
+					}
+					result.put(entry.getKey(), lineSet);
+				}
+				return result;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Converts the differences computed by
+	 * {@link CompactTrace#addDifferences(Map, Map)} so that they can be
+	 * stored in a {@link TraceArchive}. Modified lines are stored as 1,
+	 * unchanged lines as 0.
+	 */
+	static Map<String, Map<Integer, Integer>> toImpactRecord(
+			Map<String, Map<Integer, Boolean>> modified) {
+		Map<String, Map<Integer, Integer>> result = new HashMap<String, Map<Integer, Integer>>();
+		for (Entry<String, Map<Integer, Boolean>> entry : modified.entrySet()) {
+			Map<Integer, Integer> lines = new HashMap<Integer, Integer>();
+			for (Entry<Integer, Boolean> line : entry.getValue().entrySet()) {
+				lines.put(line.getKey(), line.getValue() ? 1 : 0);
+			}
+			result.put(entry.getKey(), lines);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the names of all traces (the mutation ids) in the given
+	 * directory.
+	 * 
+	 * @param baseDir
+	 *            the directory that contains the traces
+	 * @return the names of all traces
+	 */
+	public static Set<String> getTraceNames(File baseDir) {
+		Set<String> result = new HashSet<String>();
+		File[] files = baseDir.listFiles();
+		if (files == null) {
+			return result;
+		}
+		for (File f : files) {
+			if (f.isDirectory()) {
+				result.add(f.getName());
+			}
+		}
+		for (File archive : getArchives(baseDir)) {
+			for (Long id : TraceArchive.getMutationIds(archive)) {
+				result.add(getTraceName(id));
+			}
+		}
+		return result;
+	}
+
+	private static File[] getArchives(File baseDir) {
+		File[] archives = baseDir.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(TraceArchive.SUFFIX);
+			}
+		});
+		return archives == null ? new File[0] : archives;
+	}
+
+	/**
+	 * Returns the name under which the traces of a mutation are stored.
+	 * Permuted runs of the unmutated program have negative ids.
+	 */
+	static String getTraceName(long mutationId) {
+		if (mutationId < 0) {
+			return CoverageProperties.PERMUTED_PREFIX + Math.abs(mutationId);
+		} else {
+			return Long.toString(mutationId);
+		}
+	}
+
+	/**
+	 * Returns the mutation id for a trace name, or null if the name is not
+	 * valid.
+	 */
+	static Long parseTraceName(String name) {
+		try {
+			if (name.startsWith(CoverageProperties.PERMUTED_PREFIX)) {
+				return -Long.parseLong(name
+						.substring(CoverageProperties.PERMUTED_PREFIX.length()));
+			}
+			return Long.parseLong(name);
+		} catch (NumberFormatException e) {
+			return null;
+		}
 	}
 
 	/**
@@ -396,15 +605,8 @@ public class CoverageTraceUtil {
 	public static Map<String, Map<String, Map<String, Map<Integer, Integer>>>> loadLineCoverageTraces(
 			String baseDir) {
 		File dir = new File(baseDir, CoverageProperties.TRACE_RESULT_LINE_DIR);
-		File[] list = dir.listFiles(new FilenameFilter() {
-			public boolean accept(File dir, String name) {
-				return true;
-			}
-		});
-
 		Map<String, Map<String, Map<String, Map<Integer, Integer>>>> result = new HashMap<String, Map<String, Map<String, Map<Integer, Integer>>>>();
-		for (File file : list) {
-			String key = file.getName();
+		for (String key : getTraceNames(dir)) {
 			Map<String, Map<String, Map<Integer, Integer>>> coverage = loadLineCoverageTrace(key);
 			result.put(key, coverage);
 		}
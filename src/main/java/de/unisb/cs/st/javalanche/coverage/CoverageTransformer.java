@@ -29,6 +29,7 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.util.TraceClassVisitor;
 
+import de.unisb.cs.st.javalanche.coverage.distance.TracingScope;
 import de.unisb.cs.st.javalanche.mutation.javaagent.MutationPreMain;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.Excludes;
 import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
@@ -44,6 +45,8 @@ public class CoverageTransformer implements ClassFileTransformer {
 
 	private static final Excludes e = Excludes.getTestExcludesInstance();
 
+	private static final TracingScope scope = TracingScope.getDefault();
+
 	public CoverageTransformer() {
 		super();
 		Runtime.getRuntime().addShutdownHook(new Thread() {
@@ -80,6 +83,10 @@ public class CoverageTransformer implements ClassFileTransformer {
 				// System.err.println("Blacklisted: " + className);
 				return classfileBuffer;
 			}
+			// only trace methods near the mutations of this task
+			if (scope != null && !scope.containsClass(className)) {
+				return classfileBuffer;
+			}
 			// System.out.println("Changed: " + className);
 			logger.debug("Adding coverage calls for " + className);
 			byte[] result = classfileBuffer;
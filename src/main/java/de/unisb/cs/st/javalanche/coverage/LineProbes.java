@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns the probe indices for the traced lines of one class. Every line
+ * of a method gets one index into the line counter array of the class (see
+ * {@link Tracer#getLineCounters(int)}).
+ */
+class LineProbes {
+
+	private final String className;
+
+	private int classId = -1;
+
+	private final Map<String, Integer> probes = new HashMap<String, Integer>();
+
+	private final List<String> methodKeys = new ArrayList<String>();
+
+	private final List<Integer> lines = new ArrayList<Integer>();
+
+	LineProbes(String className) {
+		this.className = className.replace('/', '.');
+	}
+
+	/**
+	 * @return the id of the class that is passed to
+	 *         {@link Tracer#getLineCounters(int)}
+	 */
+	int getClassId() {
+		if (classId < 0) {
+			classId = Tracer.registerClass(className);
+		}
+		return classId;
+	}
+
+	/**
+	 * Returns the probe index for the given line of the given method.
+	 */
+	int getProbe(String methodName, int line) {
+		String methodKey = className + "@" + methodName;
+		String key = methodKey + ":" + line;
+		Integer probe = probes.get(key);
+		if (probe == null) {
+			probe = methodKeys.size();
+			probes.put(key, probe);
+			methodKeys.add(methodKey);
+			lines.add(line);
+		}
+		return probe;
+	}
+
+	/**
+	 * Allocates the counters for all probes of this class. Has to be called
+	 * after the class is instrumented and before it is executed.
+	 */
+	void register() {
+		if (classId < 0) {
+			return;
+		}
+		int[] lineArray = new int[lines.size()];
+		for (int i = 0; i < lineArray.length; i++) {
+			lineArray[i] = lines.get(i);
+		}
+		Tracer.setLineProbes(classId, methodKeys.toArray(new String[0]),
+				lineArray);
+	}
+}
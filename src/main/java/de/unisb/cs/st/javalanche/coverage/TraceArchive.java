@@ -0,0 +1,502 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Stores the traces of many (mutation, test) pairs in one append-only file.
+ * 
+ * The file starts with a magic number and a version, followed by one record
+ * per (mutation, test) pair. A record holds the mutation id, the test name
+ * and the length of its payload. The payload first lists the names of the
+ * methods that were not used by any earlier record, then the traced methods
+ * with their lines and counts. Method ids, lines and values are delta
+ * encoded as variable length integers.
+ * 
+ * When the archive is closed an index is appended that holds all method
+ * names and the offset of every record. The last 12 bytes of the file point
+ * to this index. An archive that was not closed properly is read by
+ * scanning its records. When such an archive is opened for writing again,
+ * the index (or an incomplete last record) is cut off and new records are
+ * appended.
+ * 
+ */
+public class TraceArchive {
+
+	private static Logger logger = Logger.getLogger(TraceArchive.class);
+
+	public static final String SUFFIX = ".trace";
+
+	private static final int MAGIC = 0x4a4c5452;
+
+	private static final int INDEX_MAGIC = 0x4a4c5449;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 8;
+
+	private static final int FOOTER_SIZE = 12;
+
+	private static Map<File, Index> indexCache = new HashMap<File, Index>();
+
+	private final File file;
+
+	private RandomAccessFile raf;
+
+	private Index index;
+
+	private Map<String, Integer> methodIds;
+
+	private TraceArchive(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Opens the given archive for writing. New records are appended to the
+	 * existing ones.
+	 * 
+	 * @param file
+	 *            the archive to open
+	 * @return the opened archive
+	 */
+	public static TraceArchive open(File file) {
+		TraceArchive archive = new TraceArchive(file);
+		try {
+			archive.raf = new RandomAccessFile(file, "rw");
+			if (archive.raf.length() == 0) {
+				archive.raf.writeInt(MAGIC);
+				archive.raf.writeInt(VERSION);
+				archive.index = new Index(HEADER_SIZE);
+			} else {
+				archive.index = readIndex(archive.raf);
+				archive.raf.setLength(archive.index.end);
+			}
+			archive.raf.seek(archive.index.end);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not open trace archive " + file,
+					e);
+		}
+		archive.methodIds = new HashMap<String, Integer>();
+		for (int i = 0; i < archive.index.methods.size(); i++) {
+			archive.methodIds.put(archive.index.methods.get(i), i);
+		}
+		return archive;
+	}
+
+	/**
+	 * Appends the trace of one test for one mutation.
+	 * 
+	 * @param mutationId
+	 *            the id of the mutation
+	 * @param testName
+	 *            the name of the test
+	 * @param trace
+	 *            maps method names to a map of lines (or values) and counts
+	 */
+	public synchronized void write(long mutationId, String testName,
+			Map<String, ? extends Map<Integer, Integer>> trace) {
+		try {
+			List<String> newMethods = new ArrayList<String>();
+			Map<Integer, Map<Integer, Integer>> byId = new TreeMap<Integer, Map<Integer, Integer>>();
+			for (Entry<String, ? extends Map<Integer, Integer>> entry : trace
+					.entrySet()) {
+				String method = entry.getKey();
+				if (method == null || entry.getValue() == null) {
+					continue;
+				}
+				Integer id = methodIds.get(method);
+				if (id == null) {
+					id = methodIds.size();
+					methodIds.put(method, id);
+					newMethods.add(method);
+				}
+				byId.put(id, entry.getValue());
+			}
+			ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(payload);
+			writeVarLong(out, newMethods.size());
+			for (String method : newMethods) {
+				out.writeUTF(method);
+			}
+			writeVarLong(out, byId.size());
+			int lastId = 0;
+			for (Entry<Integer, Map<Integer, Integer>> entry : byId.entrySet()) {
+				writeVarLong(out, entry.getKey() - lastId);
+				lastId = entry.getKey();
+				writeLines(out, entry.getValue());
+			}
+			out.flush();
+
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			DataOutputStream recordOut = new DataOutputStream(record);
+			recordOut.writeLong(mutationId);
+			recordOut.writeUTF(testName);
+			recordOut.writeInt(payload.size());
+			payload.writeTo(recordOut);
+			recordOut.flush();
+
+			long offset = index.end;
+			raf.write(record.toByteArray());
+			index.methods.addAll(newMethods);
+			index.add(mutationId, offset);
+			index.end = raf.getFilePointer();
+		} catch (IOException e) {
+			throw new RuntimeException("Could not write to trace archive "
+					+ file, e);
+		}
+	}
+
+	private static void writeLines(DataOutput out, Map<Integer, Integer> lines)
+			throws IOException {
+		Map<Integer, Integer> sorted = new TreeMap<Integer, Integer>(lines);
+		writeVarLong(out, sorted.size());
+		boolean first = true;
+		long last = 0;
+		for (Entry<Integer, Integer> entry : sorted.entrySet()) {
+			long line = entry.getKey();
+			if (first) {
+				// zigzag encoding, the first value might be negative
+				writeVarLong(out, (line << 1) ^ (line >> 63));
+				first = false;
+			} else {
+				writeVarLong(out, line - last);
+			}
+			last = line;
+			writeVarLong(out, entry.getValue() & 0xffffffffL);
+		}
+	}
+
+	/**
+	 * Writes the index and closes the archive.
+	 */
+	public synchronized void close() {
+		if (raf == null) {
+			return;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(index.methods.size());
+			for (String method : index.methods) {
+				out.writeUTF(method);
+			}
+			out.writeInt(index.size());
+			for (Entry<Long, List<Long>> entry : index.offsets.entrySet()) {
+				for (Long offset : entry.getValue()) {
+					out.writeLong(entry.getKey());
+					out.writeLong(offset);
+				}
+			}
+			out.writeLong(index.end);
+			out.writeInt(INDEX_MAGIC);
+			out.flush();
+			raf.write(bytes.toByteArray());
+			raf.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Could not close trace archive " + file,
+					e);
+		} finally {
+			raf = null;
+		}
+	}
+
+	/**
+	 * @return true, if the archive contains traces for the given mutation
+	 */
+	public synchronized boolean contains(long mutationId) {
+		return index.offsets.containsKey(mutationId);
+	}
+
+	/**
+	 * Returns the ids of all mutations that have traces in the given archive.
+	 * 
+	 * @param file
+	 *            the archive to read
+	 * @return the ids of the traced mutations
+	 */
+	public static Set<Long> getMutationIds(File file) {
+		return getIndex(file).offsets.keySet();
+	}
+
+	/**
+	 * Reads all traces of one mutation from the given archive. Only the
+	 * records of this mutation are read.
+	 * 
+	 * @param file
+	 *            the archive to read
+	 * @param mutationId
+	 *            the id of the mutation
+	 * @return a map whose key is the test name and the value is a map from
+	 *         method names to the line (or value) counts, or null if the
+	 *         archive holds no traces for the given mutation
+	 */
+	public static Map<String, Map<String, Map<Integer, Integer>>> read(
+			File file, long mutationId) {
+		final Map<String, Map<String, Map<Integer, Integer>>> result = new HashMap<String, Map<String, Map<Integer, Integer>>>();
+		boolean found = read(file, mutationId, new TraceHandler() {
+			public void handleTrace(String testName,
+					Map<String, Map<Integer, Integer>> trace) {
+				result.put(testName, trace);
+			}
+		});
+		return found ? result : null;
+	}
+
+	/**
+	 * Reads the traces of one mutation from the given archive, and passes
+	 * them to the handler one test at a time.
+	 * 
+	 * @param file
+	 *            the archive to read
+	 * @param mutationId
+	 *            the id of the mutation
+	 * @param handler
+	 *            receives the trace of each test
+	 * @return true, if the archive holds traces for the given mutation
+	 */
+	public static boolean read(File file, long mutationId, TraceHandler handler) {
+		Index index = getIndex(file);
+		List<Long> offsets = index.offsets.get(mutationId);
+		if (offsets == null) {
+			return false;
+		}
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				for (Long offset : offsets) {
+					raf.seek(offset);
+					raf.readLong();
+					String testName = raf.readUTF();
+					byte[] payload = new byte[raf.readInt()];
+					raf.readFully(payload);
+					handler.handleTrace(testName, readPayload(payload,
+							index.methods));
+				}
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read trace archive " + file,
+					e);
+		}
+		return true;
+	}
+
+	private static Map<String, Map<Integer, Integer>> readPayload(
+			byte[] payload, List<String> methods) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				payload));
+		int newMethods = (int) readVarLong(in);
+		for (int i = 0; i < newMethods; i++) {
+			in.readUTF();
+		}
+		Map<String, Map<Integer, Integer>> trace = new HashMap<String, Map<Integer, Integer>>();
+		int numMethods = (int) readVarLong(in);
+		int methodId = 0;
+		for (int i = 0; i < numMethods; i++) {
+			methodId += (int) readVarLong(in);
+			int numLines = (int) readVarLong(in);
+			Map<Integer, Integer> lines = new HashMap<Integer, Integer>();
+			long line = 0;
+			for (int j = 0; j < numLines; j++) {
+				long value = readVarLong(in);
+				if (j == 0) {
+					line = (value >>> 1) ^ -(value & 1);
+				} else {
+					line += value;
+				}
+				lines.put((int) line, (int) readVarLong(in));
+			}
+			trace.put(methods.get(methodId), lines);
+		}
+		return trace;
+	}
+
+	private static synchronized Index getIndex(File file) {
+		Index index = indexCache.get(file);
+		if (index == null || index.length != file.length()
+				|| index.lastModified != file.lastModified()) {
+			try {
+				RandomAccessFile raf = new RandomAccessFile(file, "r");
+				try {
+					index = readIndex(raf);
+				} finally {
+					raf.close();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Could not read trace archive "
+						+ file, e);
+			}
+			index.length = file.length();
+			index.lastModified = file.lastModified();
+			indexCache.put(file, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the index from the end of the archive, or rebuilds it by scanning
+	 * the records if the archive was not closed.
+	 */
+	private static Index readIndex(RandomAccessFile raf) throws IOException {
+		long length = raf.length();
+		raf.seek(0);
+		if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+			throw new IOException("Not a trace archive");
+		}
+		if (length >= HEADER_SIZE + FOOTER_SIZE) {
+			raf.seek(length - FOOTER_SIZE);
+			long indexStart = raf.readLong();
+			if (raf.readInt() == INDEX_MAGIC && indexStart >= HEADER_SIZE
+					&& indexStart < length) {
+				Index index = new Index(indexStart);
+				raf.seek(indexStart);
+				int numMethods = raf.readInt();
+				for (int i = 0; i < numMethods; i++) {
+					index.methods.add(raf.readUTF());
+				}
+				int numRecords = raf.readInt();
+				for (int i = 0; i < numRecords; i++) {
+					index.add(raf.readLong(), raf.readLong());
+				}
+				return index;
+			}
+		}
+		logger.info("Trace archive was not closed. Scanning records.");
+		Index index = new Index(HEADER_SIZE);
+		raf.seek(HEADER_SIZE);
+		try {
+			while (raf.getFilePointer() < length) {
+				long offset = raf.getFilePointer();
+				long mutationId = raf.readLong();
+				raf.readUTF();
+				int payloadLength = raf.readInt();
+				if (payloadLength < 0
+						|| raf.getFilePointer() + payloadLength > length) {
+					break;
+				}
+				byte[] payload = new byte[payloadLength];
+				raf.readFully(payload);
+				DataInputStream in = new DataInputStream(
+						new ByteArrayInputStream(payload));
+				int newMethods = (int) readVarLong(in);
+				for (int i = 0; i < newMethods; i++) {
+					index.methods.add(in.readUTF());
+				}
+				index.add(mutationId, offset);
+				index.end = raf.getFilePointer();
+			}
+		} catch (EOFException e) {
+			// incomplete last record
+		}
+		return index;
+	}
+
+	private static void writeVarLong(DataOutput out, long value)
+			throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInput in) throws IOException {
+		long result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			result |= (long) (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return result;
+	}
+
+	/**
+	 * Receives the traces of single tests while an archive is read.
+	 */
+	public interface TraceHandler {
+
+		/**
+		 * @param testName
+		 *            the name of the test
+		 * @param trace
+		 *            maps method names to the line (or value) counts
+		 */
+		void handleTrace(String testName,
+				Map<String, Map<Integer, Integer>> trace);
+	}
+
+	private static class Index {
+
+		final List<String> methods = new ArrayList<String>();
+
+		final Map<Long, List<Long>> offsets = new TreeMap<Long, List<Long>>();
+
+		/**
+		 * The offset after the last record.
+		 */
+		long end;
+
+		long length;
+
+		long lastModified;
+
+		Index(long end) {
+			this.end = end;
+		}
+
+		void add(long mutationId, long offset) {
+			List<Long> list = offsets.get(mutationId);
+			if (list == null) {
+				list = new ArrayList<Long>();
+				offsets.put(mutationId, list);
+			}
+			list.add(offset);
+		}
+
+		int size() {
+			int size = 0;
+			for (List<Long> list : offsets.values()) {
+				size += list.size();
+			}
+			return size;
+		}
+	}
+}
@@ -19,10 +19,16 @@
 package de.unisb.cs.st.javalanche.coverage;
 
 //import java.util.HashMap;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -33,7 +39,7 @@ import org.apache.log4j.Logger;
 public class Tracer {
 	private static Logger logger = Logger.getLogger(Tracer.class);
 
-	private static Tracer trace = null;
+	private static final Tracer trace = new Tracer();
 
 	// private Map<String, Map<Integer, Integer>> classMap = null;
 	// private Map<String, Map<Integer, Integer>> valueMap = null;
@@ -42,36 +48,45 @@ public class Tracer {
 	// private boolean isLineCoverageDeactivated = false;
 	// private boolean isDataCoverageDeactivated = false;
 
-	public AtomicBoolean tracingDeacivated = new AtomicBoolean();
+	/*
+	 * The buffers of all threads that traced data since the last snapshot.
+	 */
+	private static final List<TraceBuffer> allBuffers = new CopyOnWriteArrayList<TraceBuffer>();
+
+	private static final ThreadLocal<TraceBuffer> buffers = new ThreadLocal<TraceBuffer>() {
+		@Override
+		protected TraceBuffer initialValue() {
+			TraceBuffer buffer = new TraceBuffer(Thread.currentThread());
+			allBuffers.add(buffer);
+			return buffer;
+		}
+	};
+
+	/*
+	 * Number of threads that currently do not trace. Allows to skip the
+	 * thread local lookup for every line while no thread is suppressed.
+	 */
+	private static final AtomicInteger suppressedThreads = new AtomicInteger();
+
+	private static volatile LineCounters[] lineCounters = new LineCounters[64];
+
+	private static int classCount;
 
 	private Tracer() {
 	}
 
 	public static Tracer getInstance() {
-		if (trace == null) {
-			trace = new Tracer();
-		}
 		return trace;
 	}
 
 	/*
 	 * This code is executed at the beginning of a method
 	 */
-	public void begin(String className, String methodName,
-			boolean instrumentLine, boolean instrumentData) {
+	public void begin(String className, String methodName) {
 		// Integer key = getId(className + "@" + methodName);
-		String key = className + "@" + methodName;
-		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> classMap = CoverageMutationListener.lineMapRef
-				.get();
-		if (instrumentLine && !classMap.containsKey(key)) {
-			ConcurrentMap<Integer, Integer> lineMap = new ConcurrentHashMap<Integer, Integer>();
-			classMap.put(key, lineMap);
-
-		}
-		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> valueMap = CoverageMutationListener.valueMapRef
-				.get();
-		if (instrumentData && !valueMap.containsKey(key)) {
-			valueMap.put(key, new ConcurrentHashMap<Integer, Integer>());
+		TraceBuffer buffer = buffers.get();
+		if (!buffer.suppressed) {
+			buffer.begin(className + "@" + methodName);
 		}
 
 		// if (CoverageMutationListener.getMutationId() == 0) {
@@ -91,35 +106,97 @@ public class Tracer {
 	}
 
 	/*
-	 * This function is executed for every LineNumber
+	 * Returns the line counters of a class. The instrumented code increments
+	 * the counter of a line directly in this array. While tracing is
+	 * deactivated for the current thread an array is returned that is never
+	 * read.
 	 */
-	public void logLineNumber(int line, String className, String methodName) {
-		if (tracingDeacivated.get()) {
-			// logger.info("Excluding line " + line + "  " + className + "."
-			// + methodName);
-			return;
+	public static int[] getLineCounters(int classId) {
+		LineCounters counters = lineCounters[classId];
+		if (suppressedThreads.get() != 0 && buffers.get().suppressed) {
+			return counters.discarded;
 		}
-		// Integer key = getId(className + "@" + methodName);
-		// logger.info("Line " + line + "  " + className + "." + methodName);
-		String key = className + "@" + methodName;
-		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> classMap = CoverageMutationListener.lineMapRef
-				.get();
-		if (!classMap.containsKey(key)) {
-			ConcurrentMap<Integer, Integer> lineMap = new ConcurrentHashMap<Integer, Integer>();
-			ConcurrentMap<Integer, Integer> putIfAbsent = classMap.putIfAbsent(
-					key, lineMap);
-			if (putIfAbsent != null) {
-				lineMap = putIfAbsent;
+		return counters.counts;
+	}
+
+	/*
+	 * Reserves an id for a class whose lines are traced.
+	 */
+	static synchronized int registerClass(String className) {
+		int classId = classCount++;
+		if (classId >= lineCounters.length) {
+			LineCounters[] tmp = new LineCounters[lineCounters.length * 2];
+			System.arraycopy(lineCounters, 0, tmp, 0, lineCounters.length);
+			lineCounters = tmp;
+		}
+		lineCounters[classId] = new LineCounters(new String[0], new int[0]);
+		return classId;
+	}
+
+	/*
+	 * Sets the probes of a class once it is instrumented. Probe i counts the
+	 * executions of line lines[i] in method methodKeys[i].
+	 */
+	static synchronized void setLineProbes(int classId, String[] methodKeys,
+			int[] lines) {
+		lineCounters[classId] = new LineCounters(methodKeys, lines);
+	}
+
+	/*
+	 * Returns the executed lines since the last snapshot or reset, and resets
+	 * all counters.
+	 */
+	public static ConcurrentMap<String, ConcurrentMap<Integer, Integer>> snapshotLineCounters() {
+		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> classMap = new ConcurrentHashMap<String, ConcurrentMap<Integer, Integer>>();
+		LineCounters[] all = lineCounters;
+		for (LineCounters counters : all) {
+			if (counters == null) {
+				continue;
+			}
+			int[] counts = counters.counts;
+			for (int probe = 0; probe < counts.length; probe++) {
+				int count = counts[probe];
+				if (count == 0) {
+					continue;
+				}
+				counts[probe] = 0;
+				String key = counters.methodKeys[probe];
+				ConcurrentMap<Integer, Integer> lineMap = classMap.get(key);
+				if (lineMap == null) {
+					lineMap = new ConcurrentHashMap<Integer, Integer>();
+					classMap.put(key, lineMap);
+				}
+				lineMap.put(counters.lines[probe], count);
 			}
 		}
-		Map<Integer, Integer> lineMap = classMap.get(key);
-		Integer intline = Integer.valueOf(line);
-		if (!lineMap.containsKey(intline)) {
-			lineMap.put(intline, 1);
-		} else {
-			lineMap.put(intline, 1 + lineMap.get(intline));
+		return classMap;
+	}
+
+	public static void resetLineCounters() {
+		LineCounters[] all = lineCounters;
+		for (LineCounters counters : all) {
+			if (counters != null) {
+				Arrays.fill(counters.counts, 0);
+			}
 		}
+	}
+
+	private static class LineCounters {
+
+		final String[] methodKeys;
+
+		final int[] lines;
+
+		final int[] counts;
+
+		final int[] discarded;
 
+		LineCounters(String[] methodKeys, int[] lines) {
+			this.methodKeys = methodKeys;
+			this.lines = lines;
+			this.counts = new int[lines.length];
+			this.discarded = new int[lines.length];
+		}
 	}
 
 	/*
@@ -142,18 +219,41 @@ public class Tracer {
 	}
 
 	public void logAReturn(Object value, String className, String methodName) {
-		if (InstrumentExclude.shouldExcludeReturns(className, methodName)
-				|| tracingDeacivated.get()) {
+		TraceBuffer buffer = buffers.get();
+		if (buffer.suppressed
+				|| InstrumentExclude.shouldExcludeReturns(className, methodName)) {
 			return;
 		}
 		if (value == null) {
 			logData(0, className, methodName);
 			return;
 		}
+		Integer hash = null;
+		// do not trace code that is executed while hashing
+		setSuppressed(buffer, true);
+		try {
+			hash = hashValue(value, className, methodName);
+		} finally {
+			setSuppressed(buffer, false);
+		}
+		if (hash != null) {
+			logData(hash, className, methodName);
+		}
+	}
+
+	private static Integer hashValue(Object value, String className,
+			String methodName) {
+		if (CoverageProperties.TRACE_RETURNS_STRUCTURAL
+				&& !ValueHasher.useToString(value.getClass())) {
+			try {
+				return ValueHasher.hash(value);
+			} catch (RuntimeException e) {
+				logger.warn("Could not hash fields of "
+						+ value.getClass().getName() + ". Using toString.", e);
+			}
+		}
 		StringBuilder tmp = null;
 		try {
-			// setLineCoverageDeactivated(true);
-			tracingDeacivated.set(true);
 			tmp = new StringBuilder(value.toString());
 		} catch (Throwable t) {
 			InstrumentExclude.addExcludeReturn(className, methodName);
@@ -161,9 +261,7 @@ public class Tracer {
 					"To string for return object throws an exception. Class: "
 							+ className + " MethodName: " + methodName, t);
 			InstrumentExclude.save();
-			return;
-		} finally {
-			tracingDeacivated.set(false);
+			return null;
 		}
 		int index = 0;
 		int position = 0;
@@ -187,38 +285,121 @@ public class Tracer {
 			}
 		}
 		// if (deleteAddresses || !found) {
-		logData(tmp.toString().hashCode(), className, methodName);
+		return tmp.toString().hashCode();
 		// }
 	}
 
 	private void logData(int value, String className, String methodName) {
-		if (InstrumentExclude.shouldExcludeReturns(className, methodName)
-				|| tracingDeacivated.get()) {
+		TraceBuffer buffer = buffers.get();
+		if (buffer.suppressed
+				|| InstrumentExclude.shouldExcludeReturns(className, methodName)) {
 			return;
 		}
-		String key = className + "@" + methodName;
-		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> valueMap = CoverageMutationListener.valueMapRef
-				.get();
-		Map<Integer, Integer> tmpMap = valueMap.get(key);
-		if (tmpMap == null) {
-			// logger.warn("Not logging return ");
-			return;
+		buffer.add(className + "@" + methodName, value);
+	}
+
+	private static void setSuppressed(TraceBuffer buffer, boolean suppressed) {
+		if (buffer.suppressed != suppressed) {
+			buffer.suppressed = suppressed;
+			if (suppressed) {
+				suppressedThreads.incrementAndGet();
+			} else {
+				suppressedThreads.decrementAndGet();
+			}
+		}
+	}
+
+	/*
+	 * Returns the traced values of all threads since the last snapshot or
+	 * reset, and resets the buffers.
+	 */
+	public static ConcurrentMap<String, ConcurrentMap<Integer, Integer>> snapshotValues() {
+		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> valueMap = new ConcurrentHashMap<String, ConcurrentMap<Integer, Integer>>();
+		for (TraceBuffer buffer : allBuffers) {
+			buffer.drainTo(valueMap);
+			if (buffer.isThreadTerminated()) {
+				allBuffers.remove(buffer);
+			}
 		}
+		return valueMap;
+	}
 
-		Integer intvalue = new Integer(value);
-		if (!valueMap.containsKey(intvalue)) {
-			tmpMap.put(intvalue, 1);
-		} else {
-			tmpMap.put(intvalue, 1 + tmpMap.get(intvalue));
+	public static void resetValues() {
+		for (TraceBuffer buffer : allBuffers) {
+			buffer.clear();
+			if (buffer.isThreadTerminated()) {
+				allBuffers.remove(buffer);
+			}
 		}
 	}
 
+	/*
+	 * Values traced by one thread. Only the owning thread adds values, the
+	 * lock is only contended while a snapshot is taken.
+	 */
+	private static class TraceBuffer {
+
+		private final WeakReference<Thread> thread;
+
+		private Map<String, Map<Integer, Integer>> values = new HashMap<String, Map<Integer, Integer>>();
+
+		boolean suppressed;
+
+		TraceBuffer(Thread thread) {
+			this.thread = new WeakReference<Thread>(thread);
+		}
+
+		synchronized void begin(String key) {
+			if (!values.containsKey(key)) {
+				values.put(key, new HashMap<Integer, Integer>());
+			}
+		}
+
+		synchronized void add(String key, int value) {
+			Map<Integer, Integer> valueCounts = values.get(key);
+			if (valueCounts == null) {
+				// logger.warn("Not logging return ");
+				return;
+			}
+			// as before, only the returned values are recorded, not how
+			// often they were returned
+			valueCounts.put(value, 1);
+		}
+
+		synchronized void drainTo(
+				ConcurrentMap<String, ConcurrentMap<Integer, Integer>> valueMap) {
+			for (Entry<String, Map<Integer, Integer>> entry : values
+					.entrySet()) {
+				ConcurrentMap<Integer, Integer> merged = valueMap.get(entry
+						.getKey());
+				if (merged == null) {
+					merged = new ConcurrentHashMap<Integer, Integer>();
+					valueMap.put(entry.getKey(), merged);
+				}
+				merged.putAll(entry.getValue());
+			}
+			values = new HashMap<String, Map<Integer, Integer>>();
+		}
+
+		synchronized void clear() {
+			values = new HashMap<String, Map<Integer, Integer>>();
+		}
+
+		boolean isThreadTerminated() {
+			Thread t = thread.get();
+			return t == null || !t.isAlive();
+		}
+	}
+
+	/*
+	 * Stops tracing for the current thread.
+	 */
 	public void deactivateTrace() {
-		tracingDeacivated.set(true);
+		setSuppressed(buffers.get(), true);
 	}
 
 	public void activateTrace() {
-		tracingDeacivated.set(false);
+		setSuppressed(buffers.get(), false);
 	}
 
 	/*
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Computes hash codes of returned objects from their state instead of their
+ * string representation. The fields of an object are read via reflection,
+ * so no code of the traced program is executed. Identity hash codes do not
+ * contribute to the result, so equal states give equal hashes in
+ * different runs.
+ * 
+ * The traversal stops at a maximum depth and after a maximum number of
+ * values. Objects below that are only represented by their class. Library
+ * classes that implement hashCode, like strings and numbers, are hashed
+ * with it. The elements of collections from java.* are hashed like other
+ * values, and the hash of sets and maps does not depend on the iteration
+ * order. Collections of the program are hashed by their fields, because
+ * iterating them would run program code.
+ * 
+ * If a nested value can not be traversed, its class is recorded and its
+ * values are only represented by their class from then on. If the value
+ * passed in can not be traversed, its class is hashed via toString from then
+ * on, and the exception is passed on.
+ */
+public class ValueHasher {
+
+	private static final int PRIME = 31;
+
+	private static final ConcurrentMap<Class<?>, ClassAccessor> accessors = new ConcurrentHashMap<Class<?>, ClassAccessor>();
+
+	private static final ThreadLocal<ValueHasher> hashers = new ThreadLocal<ValueHasher>() {
+		@Override
+		protected ValueHasher initialValue() {
+			return new ValueHasher(CoverageProperties.TRACE_HASH_DEPTH,
+					CoverageProperties.TRACE_HASH_MAX_VALUES);
+		}
+	};
+
+	private final int maxDepth;
+
+	private final int maxValues;
+
+	private int remaining;
+
+	ValueHasher(int maxDepth, int maxValues) {
+		this.maxDepth = maxDepth;
+		this.maxValues = maxValues;
+	}
+
+	/**
+	 * Returns the structural hash code of the given value, using the limits
+	 * from {@link CoverageProperties}.
+	 * 
+	 * @param value
+	 *            the value to hash
+	 * @return the structural hash code of the value
+	 */
+	public static int hash(Object value) {
+		return hashers.get().hashValue(value);
+	}
+
+	/**
+	 * Checks whether values of the given class are hashed via their
+	 * toString method.
+	 * 
+	 * @param clazz
+	 *            the class of the value
+	 * @return true, if the toString method should be used for this class
+	 */
+	public static boolean useToString(Class<?> clazz) {
+		return getAccessor(clazz).useToString;
+	}
+
+	int hashValue(Object value) {
+		remaining = maxValues;
+		return hash(value, 0);
+	}
+
+	private int hash(Object value, int depth) {
+		if (value == null) {
+			return 0;
+		}
+		if (remaining-- <= 0) {
+			return 1;
+		}
+		Class<?> clazz = value.getClass();
+		ClassAccessor accessor = getAccessor(clazz);
+		if (accessor.failed) {
+			return accessor.nameHash;
+		}
+		try {
+			return hashContents(value, clazz, accessor, depth);
+		} catch (RuntimeException e) {
+			if (depth == 0) {
+				accessor.useToString = true;
+				throw e;
+			}
+			accessor.failed = true;
+			return accessor.nameHash;
+		}
+	}
+
+	private int hashContents(Object value, Class<?> clazz,
+			ClassAccessor accessor, int depth) {
+		switch (accessor.kind) {
+		case ClassAccessor.VALUE:
+			return value.hashCode();
+		case ClassAccessor.NAMED:
+			return accessor.nameHash;
+		case ClassAccessor.ENUM:
+			return ((Enum<?>) value).name().hashCode();
+		case ClassAccessor.CLASS:
+			return ((Class<?>) value).getName().hashCode();
+		}
+		if (depth >= maxDepth) {
+			return accessor.nameHash;
+		}
+		int result = accessor.nameHash;
+		switch (accessor.kind) {
+		case ClassAccessor.ARRAY:
+			if (clazz.getComponentType().isPrimitive()) {
+				remaining -= Array.getLength(value);
+				return PRIME * result + hashPrimitiveArray(value);
+			}
+			Object[] array = (Object[]) value;
+			for (int i = 0; i < array.length && remaining > 0; i++) {
+				result = PRIME * result + hash(array[i], depth + 1);
+			}
+			return result;
+		case ClassAccessor.LIST:
+			for (Object o : (Collection<?>) value) {
+				if (remaining <= 0) {
+					break;
+				}
+				result = PRIME * result + hash(o, depth + 1);
+			}
+			return result;
+		case ClassAccessor.SET:
+			// the iteration order might depend on identity hash codes
+			for (Object o : (Collection<?>) value) {
+				if (remaining <= 0) {
+					break;
+				}
+				result += hash(o, depth + 1);
+			}
+			return result;
+		case ClassAccessor.MAP:
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (remaining <= 0) {
+					break;
+				}
+				result += hash(entry.getKey(), depth + 1)
+						^ hash(entry.getValue(), depth + 1);
+			}
+			return result;
+		}
+		try {
+			Field[] fields = accessor.fields;
+			for (int i = 0; i < fields.length && remaining > 0; i++) {
+				result = PRIME * result
+						+ hashField(fields[i], accessor.fieldKinds[i], value,
+								depth);
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Could not read field of "
+					+ clazz.getName(), e);
+		}
+		return result;
+	}
+
+	private static int hashPrimitiveArray(Object value) {
+		if (value instanceof int[]) {
+			return Arrays.hashCode((int[]) value);
+		} else if (value instanceof long[]) {
+			return Arrays.hashCode((long[]) value);
+		} else if (value instanceof byte[]) {
+			return Arrays.hashCode((byte[]) value);
+		} else if (value instanceof char[]) {
+			return Arrays.hashCode((char[]) value);
+		} else if (value instanceof boolean[]) {
+			return Arrays.hashCode((boolean[]) value);
+		} else if (value instanceof short[]) {
+			return Arrays.hashCode((short[]) value);
+		} else if (value instanceof float[]) {
+			return Arrays.hashCode((float[]) value);
+		}
+		return Arrays.hashCode((double[]) value);
+	}
+
+	private int hashField(Field field, char kind, Object value, int depth)
+			throws IllegalAccessException {
+		switch (kind) {
+		case 'Z':
+			return field.getBoolean(value) ? 1231 : 1237;
+		case 'B':
+			return field.getByte(value);
+		case 'C':
+			return field.getChar(value);
+		case 'S':
+			return field.getShort(value);
+		case 'I':
+			return field.getInt(value);
+		case 'J':
+			long l = field.getLong(value);
+			return (int) (l ^ (l >>> 32));
+		case 'F':
+			return Float.floatToIntBits(field.getFloat(value));
+		case 'D':
+			long d = Double.doubleToLongBits(field.getDouble(value));
+			return (int) (d ^ (d >>> 32));
+		default:
+			return hash(field.get(value), depth + 1);
+		}
+	}
+
+	private static ClassAccessor getAccessor(Class<?> clazz) {
+		ClassAccessor accessor = accessors.get(clazz);
+		if (accessor == null) {
+			accessor = new ClassAccessor(clazz);
+			accessors.putIfAbsent(clazz, accessor);
+		}
+		return accessor;
+	}
+
+	/**
+	 * Caches how values of one class are hashed.
+	 */
+	private static class ClassAccessor {
+
+		static final int FIELDS = 0;
+
+		static final int VALUE = 1;
+
+		static final int NAMED = 2;
+
+		static final int ENUM = 3;
+
+		static final int CLASS = 4;
+
+		static final int ARRAY = 5;
+
+		static final int LIST = 6;
+
+		static final int SET = 7;
+
+		static final int MAP = 8;
+
+		final int kind;
+
+		final int nameHash;
+
+		volatile boolean useToString;
+
+		/**
+		 * Set when a value of this class could not be traversed.
+		 */
+		volatile boolean failed;
+
+		Field[] fields = new Field[0];
+
+		char[] fieldKinds = new char[0];
+
+		ClassAccessor(Class<?> clazz) {
+			String name = clazz.getName();
+			nameHash = name.hashCode();
+			useToString = CoverageProperties.useToStringHash(name);
+			int classKind = getKind(clazz);
+			if (classKind == FIELDS) {
+				try {
+					initFields(clazz);
+				} catch (RuntimeException e) {
+					// fields not accessible
+					classKind = NAMED;
+				}
+			}
+			kind = classKind;
+		}
+
+		private static int getKind(Class<?> clazz) {
+			if (clazz.isArray()) {
+				return ARRAY;
+			}
+			if (clazz.isEnum()
+					|| (clazz.getSuperclass() != null && clazz
+							.getSuperclass().isEnum())) {
+				return ENUM;
+			}
+			if (clazz == Class.class) {
+				return CLASS;
+			}
+			String name = clazz.getName();
+			if (name.startsWith("java.")) {
+				// the contents of collections are often kept in transient
+				// fields
+				if (Set.class.isAssignableFrom(clazz)) {
+					return SET;
+				}
+				if (Collection.class.isAssignableFrom(clazz)) {
+					return LIST;
+				}
+				if (Map.class.isAssignableFrom(clazz)) {
+					return MAP;
+				}
+			} else if (!name.startsWith("javax.")) {
+				return FIELDS;
+			}
+			if (overridesHashCode(clazz)) {
+				return VALUE;
+			}
+			return FIELDS;
+		}
+
+		private static boolean overridesHashCode(Class<?> clazz) {
+			try {
+				return clazz.getMethod("hashCode").getDeclaringClass() != Object.class;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+
+		private void initFields(Class<?> clazz) {
+			List<Field> fieldList = new ArrayList<Field>();
+			for (Class<?> c = clazz; c != null && c != Object.class; c = c
+					.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					int modifiers = field.getModifiers();
+					if (!Modifier.isStatic(modifiers)
+							&& !Modifier.isTransient(modifiers)
+							&& !field.isSynthetic()) {
+						fieldList.add(field);
+					}
+				}
+			}
+			fields = fieldList.toArray(new Field[fieldList.size()]);
+			AccessibleObject.setAccessible(fields, true);
+			fieldKinds = new char[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				Class<?> type = fields[i].getType();
+				if (type.isPrimitive()) {
+					fieldKinds[i] = getPrimitiveKind(type);
+				} else {
+					fieldKinds[i] = 'L';
+				}
+			}
+		}
+
+		private static char getPrimitiveKind(Class<?> type) {
+			if (type == boolean.class) {
+				return 'Z';
+			} else if (type == byte.class) {
+				return 'B';
+			} else if (type == char.class) {
+				return 'C';
+			} else if (type == short.class) {
+				return 'S';
+			} else if (type == int.class) {
+				return 'I';
+			} else if (type == long.class) {
+				return 'J';
+			} else if (type == float.class) {
+				return 'F';
+			}
+			return 'D';
+		}
+	}
+}
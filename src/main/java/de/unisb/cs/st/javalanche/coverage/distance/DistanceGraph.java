@@ -18,9 +18,12 @@
 */
 package de.unisb.cs.st.javalanche.coverage.distance;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.jgrapht.Graphs;
 import org.jgrapht.UndirectedGraph;
 import org.jgrapht.alg.DijkstraShortestPath;
 import org.jgrapht.graph.DefaultEdge;
@@ -81,6 +84,54 @@ public class DistanceGraph {
 		return (int) pathLength;
 	}
 
+	/**
+	 * Returns all methods that are connected to one of the given methods by
+	 * at most maxDistance calls, regardless of the call direction. A method
+	 * also reaches the methods with the same signature in its super classes,
+	 * as calls to these might be dispatched to it.
+	 * 
+	 * @param start
+	 *            the methods to start from
+	 * @param maxDistance
+	 *            the maximum number of calls between a start method and a
+	 *            returned method
+	 * @return the start methods and all methods within the given distance
+	 */
+	public Set<MethodDescription> getMethodsWithin(
+			Collection<MethodDescription> start, int maxDistance) {
+		Set<MethodDescription> result = new HashSet<MethodDescription>();
+		Set<MethodDescription> current = new HashSet<MethodDescription>();
+		for (MethodDescription md : start) {
+			addWithSupers(md, result, current);
+		}
+		for (int distance = 1; distance <= maxDistance && !current.isEmpty(); distance++) {
+			Set<MethodDescription> next = new HashSet<MethodDescription>();
+			for (MethodDescription md : current) {
+				if (!g.containsVertex(md)) {
+					continue;
+				}
+				for (MethodDescription neighbor : Graphs.neighborListOf(g, md)) {
+					addWithSupers(neighbor, result, next);
+				}
+			}
+			current = next;
+		}
+		return result;
+	}
+
+	private void addWithSupers(MethodDescription md,
+			Set<MethodDescription> result, Set<MethodDescription> added) {
+		if (result.add(md)) {
+			added.add(md);
+		}
+		for (String sup : hierarchy.getAllSupers(md.getClassName())) {
+			MethodDescription superMethod = md.getSuper(sup);
+			if (result.add(superMethod)) {
+				added.add(superMethod);
+			}
+		}
+	}
+
 	public static DistanceGraph getDefault() {
 		ConnectionData data = ConnectionData.read();
 		Hierarchy hierarchy = Hierarchy.readFromDefaultLocation();
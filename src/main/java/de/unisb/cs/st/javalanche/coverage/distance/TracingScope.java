@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage.distance;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.coverage.CoverageProperties;
+import de.unisb.cs.st.javalanche.mutation.javaagent.MutationsForRun;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.properties.RunMode;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+
+/**
+ * The methods that are traced for the mutations of one task. Contains all
+ * methods within {@link CoverageProperties#TRACE_MAX_DISTANCE} calls of a
+ * mutated method. Methods are identified like in the traces, by the class
+ * name and the method name without descriptor.
+ */
+public class TracingScope {
+
+	private static Logger logger = Logger.getLogger(TracingScope.class);
+
+	private static TracingScope defaultScope;
+
+	private static boolean defaultScopeComputed;
+
+	private final Set<String> methods = new HashSet<String>();
+
+	private final Set<String> classes = new HashSet<String>();
+
+	TracingScope(Collection<MethodDescription> methodDescriptions) {
+		for (MethodDescription md : methodDescriptions) {
+			classes.add(md.getClassName());
+			methods.add(md.getClassName() + "@" + md.getMethodName());
+		}
+	}
+
+	/**
+	 * Returns the scope for the mutations of the current task, or null if
+	 * all methods should be traced. Methods are only filtered when
+	 * mutations are executed with coverage tracing, a maximum distance is
+	 * set, and the traces are compared while the tests run. The unmutated
+	 * run always traces all methods.
+	 * 
+	 * @return the scope for the current task, or null if all methods should
+	 *         be traced
+	 */
+	public static synchronized TracingScope getDefault() {
+		if (!defaultScopeComputed) {
+			defaultScopeComputed = true;
+			defaultScope = computeDefault();
+		}
+		return defaultScope;
+	}
+
+	private static TracingScope computeDefault() {
+		int maxDistance = CoverageProperties.TRACE_MAX_DISTANCE;
+		if (maxDistance < 0
+				|| ConfigurationLocator.getJavalancheConfiguration()
+						.getRunMode() != RunMode.MUTATION_TEST_COVERAGE) {
+			return null;
+		}
+		if (!CoverageProperties.TRACE_IMPACT_ONLINE) {
+			// stored traces are compared to the full traces of the unmutated
+			// run, which would differ in all methods outside of the scope
+			logger.warn("Tracing all methods, because the maximum distance "
+					+ "is only supported when traces are compared while "
+					+ "tests run (javalanche.trace.impact.online).");
+			return null;
+		}
+		if (!new File(CoverageProperties.CONNECTION_DATA_FILE).exists()
+				|| !new File(CoverageProperties.INHERITANCE_DATA_FILE)
+						.exists()) {
+			logger.warn("No call graph data found. Tracing all methods.");
+			return null;
+		}
+		List<Mutation> mutations = MutationsForRun.getFromDefaultLocation()
+				.getMutations();
+		TracingScope scope = create(mutations, DistanceGraph.getDefault(),
+				maxDistance);
+		logger.info("Tracing " + scope.methods.size() + " methods in "
+				+ scope.classes.size() + " classes within distance "
+				+ maxDistance + " of " + mutations.size() + " mutations");
+		return scope;
+	}
+
+	/**
+	 * Computes the scope for the given mutations.
+	 * 
+	 * @param mutations
+	 *            the mutations of the task
+	 * @param graph
+	 *            the call graph of the project
+	 * @param maxDistance
+	 *            the maximum call distance from a mutated method
+	 * @return the methods to trace for the given mutations
+	 */
+	public static TracingScope create(Collection<Mutation> mutations,
+			DistanceGraph graph, int maxDistance) {
+		List<MethodDescription> mutated = new ArrayList<MethodDescription>();
+		for (Mutation m : mutations) {
+			String methodName = m.getMethodName();
+			int index = methodName.indexOf('(');
+			if (index < 0) {
+				mutated.add(new MethodDescription(m.getClassName(),
+						methodName, ""));
+			} else {
+				mutated.add(new MethodDescription(m.getClassName(), methodName
+						.substring(0, index), methodName.substring(index)));
+			}
+		}
+		return new TracingScope(graph.getMethodsWithin(mutated, maxDistance));
+	}
+
+	/**
+	 * @param className
+	 *            the name of the class, with dots or slashes
+	 * @return true, if the given class contains a method of this scope
+	 */
+	public boolean containsClass(String className) {
+		return classes.contains(className.replace('/', '.'));
+	}
+
+	/**
+	 * @param className
+	 *            the name of the class, with dots or slashes
+	 * @param methodName
+	 *            the name of the method without descriptor
+	 * @return true, if the given method belongs to this scope
+	 */
+	public boolean containsMethod(String className, String methodName) {
+		return methods.contains(className.replace('/', '.') + "@"
+				+ methodName);
+	}
+
+	/**
+	 * Removes all methods that do not belong to this scope from the given
+	 * traces, so that they can be compared to traces of a run that was
+	 * restricted to this scope.
+	 * 
+	 * @param traces
+	 *            maps test names to their traces
+	 */
+	public void retainMethods(
+			Map<String, Map<String, Map<Integer, Integer>>> traces) {
+		for (Map<String, Map<Integer, Integer>> trace : traces.values()) {
+			trace.keySet().retainAll(methods);
+		}
+	}
+}
@@ -55,6 +55,12 @@ public abstract class AbstractMutationAdapter extends MethodAdapter {
 
 	protected String desc;
 
+	/**
+	 * Collects mutations that are moved into separate methods. Null when the
+	 * mutations are inserted into the mutated method.
+	 */
+	private OutOfLineMutations outOfLineMutations;
+
 	public AbstractMutationAdapter(MethodVisitor mv, String className,
 			String methodName, Map<Integer, Integer> possibilities, String desc) {
 		super(mv);
@@ -135,4 +141,42 @@ public abstract class AbstractMutationAdapter extends MethodAdapter {
 		return methodName + desc;
 	}
 
+	/**
+	 * Sets the collector for mutations that are moved into separate methods.
+	 * 
+	 * @param outOfLineMutations
+	 *            the collector, or null to insert all mutations into the
+	 *            mutated method.
+	 */
+	public void setOutOfLineMutations(OutOfLineMutations outOfLineMutations) {
+		this.outOfLineMutations = outOfLineMutations;
+	}
+
+	/**
+	 * Inserts the given mutations. When a descriptor is given and mutations
+	 * are moved out of line, only a call to a separate method is inserted.
+	 * Otherwise the mutations are inserted via
+	 * {@link BytecodeTasks#insertIfElse(MethodVisitor, MutationCode, MutationCode[])}
+	 * .
+	 * 
+	 * @param operandDesc
+	 *            descriptor of a static method that takes the operands the
+	 *            code blocks consume from the stack and returns the value they
+	 *            leave on the stack, or null if the code blocks can not be
+	 *            moved out of the method.
+	 * @param unMutated
+	 *            code that should be used when no mutation is applied.
+	 * @param mutations
+	 *            code that should be used when one of the mutations is applied.
+	 */
+	protected void insertIfElse(String operandDesc, MutationCode unMutated,
+			MutationCode[] mutations) {
+		if (outOfLineMutations != null && operandDesc != null) {
+			outOfLineMutations.insertCall(mv, operandDesc, unMutated,
+					mutations);
+		} else {
+			BytecodeTasks.insertIfElse(mv, unMutated, mutations);
+		}
+	}
+
 }
@@ -18,13 +18,20 @@
 */
 package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import org.apache.log4j.Logger;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 import de.unisb.cs.st.javalanche.mutation.properties.DebugProperties;
+import de.unisb.cs.st.javalanche.mutation.properties.JavalancheConfiguration;
+import de.unisb.cs.st.javalanche.mutation.properties.RunMode;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.runtime.ActiveMutation;
 
 /**
  * Class that provides static methods for common bytecode modifications.
@@ -36,9 +43,41 @@ public class BytecodeTasks {
 
 	private static Logger logger = Logger.getLogger(BytecodeTasks.class);
 
+	/**
+	 * Id of the mutation that is inserted without a guard by the current
+	 * thread (used for hotswap mode).
+	 */
+	private static final ThreadLocal<Long> bakedMutation = new ThreadLocal<Long>();
+
 	private BytecodeTasks() {
 	}
 
+	/**
+	 * Sets the mutation that is inserted without a guard and without the
+	 * unmutated code when classes are transformed by the calling thread.
+	 * 
+	 * @param mutationId
+	 *            id of the mutation to insert unconditionally, or null to
+	 *            insert all mutations with guards.
+	 */
+	public static void setBakedMutation(Long mutationId) {
+		if (mutationId == null) {
+			bakedMutation.remove();
+		} else {
+			bakedMutation.set(mutationId);
+		}
+	}
+
+	/**
+	 * Returns true if a mutation is inserted without a guard when classes are
+	 * transformed by the calling thread.
+	 * 
+	 * @return true, if a mutation was set via {@link #setBakedMutation(Long)}
+	 */
+	public static boolean hasBakedMutation() {
+		return bakedMutation.get() != null;
+	}
+
 	/**
 	 * Inserts a mutation. The inserted code is like this:
 	 * <code>if(System.getProperty(mutationID)){
@@ -48,6 +87,9 @@ public class BytecodeTasks {
 	 * 			execute unmutated code
 	 * 		}
 	 * 
+	 * When static guards are enabled, the condition compares the mutation id
+	 * with {@link ActiveMutation#id} instead.
+	 * 
 	 * @param mv
 	 *            MethodVisitor where the code is inserted.
 	 * @param unMutated
@@ -57,32 +99,34 @@ public class BytecodeTasks {
 	 */
 	public static void insertIfElse(MethodVisitor mv, MutationCode unMutated,
 			MutationCode[] mutations) {
+		MutationCode baked = getBakedMutation(mutations);
+		if (baked != null) {
+			insertBaked(mv, unMutated, baked);
+			return;
+		}
+		if (ConfigurationLocator.getJavalancheConfiguration().getRunMode() ==
+				RunMode.MUTATION_TEST_WEAK) {
+			insertReached(mv, unMutated, mutations);
+			return;
+		}
+		if (useSwitchDispatch(mutations)) {
+			insertSwitch(mv, unMutated, mutations);
+			return;
+		}
 		Label endLabel = new Label();
 		Label mutationStartLabel = new Label();
 		mutationStartLabel.info = new MutationMarker(true);
 		mv.visitLabel(mutationStartLabel);
 		for (MutationCode mutationCode : mutations) {
 			Mutation mutation = mutationCode.getMutation();
-			mv.visitLdcInsn(mutation.getMutationVariable());
-			// mv.visitLdcInsn(mutation.getMutationType() + "");
-			// mv.visitInsn(Opcodes.POP);
-			mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System",
-					"getProperty", "(Ljava/lang/String;)Ljava/lang/String;");
 			Label l1 = new Label();
-			mv.visitJumpInsn(Opcodes.IFNULL, l1);
+			insertGuard(mv, mutation, l1);
 
 			Label l2 = new Label();
 			mv.visitLabel(l2);
 			// insertPrintStatements(mv, "Mutation touched: " +
 			// mutation.getId());
-			insertMutationTouchedCode(mv, mutation);
-			if (!DebugProperties.INSERT_ORIGINAL_INSTEAD_OF_MUTATION) {
-				mutationCode.insertCodeBlock(mv);
-			} else {
-				logger.warn("Debug mode: not inserting mutated statement");
-				unMutated.insertCodeBlock(mv);
-			}
-			mv.visitJumpInsn(Opcodes.GOTO, endLabel);
+			insertMutatedBlock(mv, unMutated, mutationCode, endLabel);
 			mv.visitLabel(l1);
 		}
 		Label mutationEndLabel = new Label();
@@ -93,6 +137,197 @@ public class BytecodeTasks {
 
 	}
 
+	/**
+	 * Inserts several mutations that are selected by one switch instruction
+	 * on {@link ActiveMutation#id}. The inserted code is like this:
+	 * <code>switch(ActiveMutation.id){
+	 * 			case mutationID1: execute mutated code 1; break;
+	 * 			case mutationID2: execute mutated code 2; break;
+	 * 			default: execute unmutated code
+	 * 		}
+	 * 
+	 * A tableswitch is used when the mutation ids are dense, otherwise a
+	 * lookupswitch.
+	 * 
+	 * @param mv
+	 *            MethodVisitor where the code is inserted.
+	 * @param unMutated
+	 *            code that should be used when no mutation is applied.
+	 * @param mutations
+	 *            code that should be used when one of the mutations is applied.
+	 */
+	private static void insertSwitch(MethodVisitor mv, MutationCode unMutated,
+			MutationCode[] mutations) {
+		MutationCode[] sorted = mutations.clone();
+		Arrays.sort(sorted, new Comparator<MutationCode>() {
+			public int compare(MutationCode o1, MutationCode o2) {
+				return o1.getMutation().getId()
+						.compareTo(o2.getMutation().getId());
+			}
+		});
+		int[] keys = new int[sorted.length];
+		Label[] labels = new Label[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			keys[i] = sorted[i].getMutation().getId().intValue();
+			labels[i] = new Label();
+		}
+		Label endLabel = new Label();
+		Label defaultLabel = new Label();
+		Label mutationStartLabel = new Label();
+		mutationStartLabel.info = new MutationMarker(true);
+		mv.visitLabel(mutationStartLabel);
+		mv.visitFieldInsn(Opcodes.GETSTATIC, ActiveMutation.CLASS_NAME,
+				ActiveMutation.FIELD_NAME, "I");
+		int min = keys[0];
+		int max = keys[keys.length - 1];
+		long range = (long) max - min + 1;
+		if (range <= 2l * keys.length) {
+			Label[] table = new Label[(int) range];
+			Arrays.fill(table, defaultLabel);
+			for (int i = 0; i < keys.length; i++) {
+				table[keys[i] - min] = labels[i];
+			}
+			mv.visitTableSwitchInsn(min, max, defaultLabel, table);
+		} else {
+			mv.visitLookupSwitchInsn(defaultLabel, keys, labels);
+		}
+		for (int i = 0; i < sorted.length; i++) {
+			mv.visitLabel(labels[i]);
+			insertMutatedBlock(mv, unMutated, sorted[i], endLabel);
+		}
+		mv.visitLabel(defaultLabel);
+		Label mutationEndLabel = new Label();
+		mutationEndLabel.info = new MutationMarker(false);
+		mv.visitLabel(mutationEndLabel);
+		unMutated.insertCodeBlock(mv);
+		mv.visitLabel(endLabel);
+	}
+
+	/**
+	 * Inserts the code of the given mutation without a guard. The unmutated
+	 * code is not inserted.
+	 */
+	private static void insertBaked(MethodVisitor mv, MutationCode unMutated,
+			MutationCode mutationCode) {
+		Label mutationStartLabel = new Label();
+		mutationStartLabel.info = new MutationMarker(true);
+		mv.visitLabel(mutationStartLabel);
+		insertMutationTouchedCode(mv, mutationCode.getMutation());
+		if (!DebugProperties.INSERT_ORIGINAL_INSTEAD_OF_MUTATION) {
+			mutationCode.insertCodeBlock(mv);
+		} else {
+			logger.warn("Debug mode: not inserting mutated statement");
+			unMutated.insertCodeBlock(mv);
+		}
+		Label mutationEndLabel = new Label();
+		mutationEndLabel.info = new MutationMarker(false);
+		mv.visitLabel(mutationEndLabel);
+	}
+
+	/**
+	 * Inserts the unmutated code for the weak mutation run. Before the
+	 * unmutated code, all mutations are reported as infecting, since their
+	 * code can not be evaluated next to the unmutated code.
+	 * 
+	 * @see WeakMutations
+	 */
+	private static void insertReached(MethodVisitor mv, MutationCode unMutated,
+			MutationCode[] mutations) {
+		Label mutationStartLabel = new Label();
+		mutationStartLabel.info = new MutationMarker(true);
+		mv.visitLabel(mutationStartLabel);
+		for (MutationCode mutationCode : mutations) {
+			WeakMutations.insertInfected(mv, mutationCode.getMutation());
+		}
+		Label mutationEndLabel = new Label();
+		mutationEndLabel.info = new MutationMarker(false);
+		mv.visitLabel(mutationEndLabel);
+		unMutated.insertCodeBlock(mv);
+	}
+
+	/**
+	 * Returns the code for the mutation that is set via
+	 * {@link #setBakedMutation(Long)}, or null if it is not one of the given
+	 * mutations.
+	 */
+	private static MutationCode getBakedMutation(MutationCode[] mutations) {
+		Long id = bakedMutation.get();
+		if (id != null) {
+			for (MutationCode mutationCode : mutations) {
+				if (id.equals(mutationCode.getMutation().getId())) {
+					return mutationCode;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the given mutations should be selected by a switch
+	 * instruction. This is the case when there is more than one mutation,
+	 * static guards and switch dispatch are enabled, and all mutation ids can
+	 * be stored in {@link ActiveMutation#id}.
+	 */
+	private static boolean useSwitchDispatch(MutationCode[] mutations) {
+		JavalancheConfiguration configuration = ConfigurationLocator
+				.getJavalancheConfiguration();
+		if (mutations.length < 2 || !configuration.useStaticGuards()
+				|| !configuration.useSwitchDispatch()) {
+			return false;
+		}
+		for (MutationCode mutationCode : mutations) {
+			if (!ActiveMutation.isSupportedId(mutationCode.getMutation()
+					.getId())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts the code for one enabled mutation followed by a jump to the
+	 * given end label.
+	 */
+	private static void insertMutatedBlock(MethodVisitor mv,
+			MutationCode unMutated, MutationCode mutationCode, Label endLabel) {
+		insertMutationTouchedCode(mv, mutationCode.getMutation());
+		if (!DebugProperties.INSERT_ORIGINAL_INSTEAD_OF_MUTATION) {
+			mutationCode.insertCodeBlock(mv);
+		} else {
+			logger.warn("Debug mode: not inserting mutated statement");
+			unMutated.insertCodeBlock(mv);
+		}
+		mv.visitJumpInsn(Opcodes.GOTO, endLabel);
+	}
+
+	/**
+	 * Inserts a check that jumps to the given label when the given mutation is
+	 * not enabled.
+	 * 
+	 * @param mv
+	 *            the method visitor to add the statements
+	 * @param mutation
+	 *            the mutation to check for
+	 * @param notEnabled
+	 *            the label to jump to when the mutation is not enabled
+	 */
+	private static void insertGuard(MethodVisitor mv, Mutation mutation,
+			Label notEnabled) {
+		boolean staticGuards = ConfigurationLocator
+				.getJavalancheConfiguration().useStaticGuards();
+		if (staticGuards && ActiveMutation.isSupportedId(mutation.getId())) {
+			mv.visitFieldInsn(Opcodes.GETSTATIC, ActiveMutation.CLASS_NAME,
+					ActiveMutation.FIELD_NAME, "I");
+			mv.visitLdcInsn(mutation.getId().intValue());
+			mv.visitJumpInsn(Opcodes.IF_ICMPNE, notEnabled);
+		} else {
+			mv.visitLdcInsn(mutation.getMutationVariable());
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System",
+					"getProperty", "(Ljava/lang/String;)Ljava/lang/String;");
+			mv.visitJumpInsn(Opcodes.IFNULL, notEnabled);
+		}
+	}
+
 	/**
 	 * Insert calls that signal whether the mutated code was executed.
 	 * 
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+
+/**
+ * Reports the bytecode size of each method before and after the mutations
+ * were inserted. The sizes are logged and written to a csv file in the output
+ * directory. The file is truncated by the first report of a run, and each
+ * class is only reported once per run.
+ */
+public class MethodSizeReport {
+
+	private static final Logger logger = Logger
+			.getLogger(MethodSizeReport.class);
+
+	private static final File REPORT_FILE = new File(ConfigurationLocator
+			.getJavalancheConfiguration().getOutputDir(), "method-sizes.csv");
+
+	private static final Set<String> reportedClasses = new HashSet<String>();
+
+	/**
+	 * True, if the file was already written during this run.
+	 */
+	private static boolean fileStarted;
+
+	private MethodSizeReport() {
+	}
+
+	/**
+	 * Reports the sizes of all methods of the given class.
+	 * 
+	 * @param className
+	 *            the name of the class
+	 * @param before
+	 *            the bytecode of the class before it was transformed
+	 * @param after
+	 *            the bytecode of the class after it was transformed
+	 */
+	public static synchronized void report(String className, byte[] before,
+			byte[] after) {
+		if (!reportedClasses.add(className)) {
+			return;
+		}
+		Map<String, Integer> sizesBefore;
+		Map<String, Integer> sizesAfter;
+		try {
+			sizesBefore = getCodeSizes(before);
+			sizesAfter = getCodeSizes(after);
+		} catch (RuntimeException e) {
+			// do not stop the mutation run because of the report
+			logger.warn("Could not read method sizes of " + className, e);
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Entry<String, Integer> entry : sizesAfter.entrySet()) {
+			String method = entry.getKey();
+			Integer sizeBefore = sizesBefore.get(method);
+			int sizeAfter = entry.getValue();
+			if (sizeBefore == null) {
+				sizeBefore = 0;
+			}
+			if (sizeBefore != sizeAfter) {
+				logger.info("Size of method " + className + "." + method
+						+ ": " + sizeBefore + " -> " + sizeAfter);
+			}
+			sb.append(className + ";" + method + ";" + sizeBefore + ";"
+					+ sizeAfter + "\n");
+		}
+		try {
+			FileWriter fw = new FileWriter(REPORT_FILE, fileStarted);
+			if (!fileStarted) {
+				fw.write("CLASS;METHOD;SIZE_BEFORE;SIZE_AFTER\n");
+			}
+			fw.write(sb.toString());
+			fw.close();
+			fileStarted = true;
+		} catch (IOException e) {
+			logger.warn("Could not write method sizes to " + REPORT_FILE, e);
+		}
+	}
+
+	/**
+	 * Returns the length of the code attribute for each method of the given
+	 * class.
+	 * 
+	 * @param classBytes
+	 *            the bytecode of a class
+	 * @return a map that contains the code size for each method (name and
+	 *         descriptor).
+	 */
+	public static Map<String, Integer> getCodeSizes(byte[] classBytes) {
+		Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				classBytes));
+		try {
+			in.skipBytes(8);
+			int cpCount = in.readUnsignedShort();
+			String[] utf8 = new String[cpCount];
+			for (int i = 1; i < cpCount; i++) {
+				int tag = in.readUnsignedByte();
+				switch (tag) {
+				case 1:
+					utf8[i] = in.readUTF();
+					break;
+				case 5:
+				case 6:
+					in.skipBytes(8);
+					i++;
+					break;
+				case 3:
+				case 4:
+				case 9:
+				case 10:
+				case 11:
+				case 12:
+				case 17:
+				case 18:
+					in.skipBytes(4);
+					break;
+				case 15:
+					in.skipBytes(3);
+					break;
+				case 7:
+				case 8:
+				case 16:
+				case 19:
+				case 20:
+					in.skipBytes(2);
+					break;
+				default:
+					throw new IllegalArgumentException(
+							"Unknown constant pool tag " + tag + " at index "
+									+ i);
+				}
+			}
+			in.skipBytes(6);
+			in.skipBytes(2 * in.readUnsignedShort());
+			int fieldCount = in.readUnsignedShort();
+			for (int i = 0; i < fieldCount; i++) {
+				in.skipBytes(6);
+				skipAttributes(in);
+			}
+			int methodCount = in.readUnsignedShort();
+			for (int i = 0; i < methodCount; i++) {
+				in.skipBytes(2);
+				String name = utf8[in.readUnsignedShort()];
+				String desc = utf8[in.readUnsignedShort()];
+				int attributeCount = in.readUnsignedShort();
+				int codeSize = 0;
+				for (int j = 0; j < attributeCount; j++) {
+					String attributeName = utf8[in.readUnsignedShort()];
+					int length = in.readInt();
+					if (attributeName.equals("Code")) {
+						in.skipBytes(4);
+						codeSize = in.readInt();
+						in.skipBytes(length - 8);
+					} else {
+						in.skipBytes(length);
+					}
+				}
+				result.put(name + desc, codeSize);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read class file", e);
+		}
+		return result;
+	}
+
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int attributeCount = in.readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			in.skipBytes(2);
+			in.skipBytes(in.readInt());
+		}
+	}
+}
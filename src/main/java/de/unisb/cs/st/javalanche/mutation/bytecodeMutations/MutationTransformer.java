@@ -31,7 +31,15 @@ import de.unisb.cs.st.javalanche.mutation.results.persistence.MutationManager;
 public class MutationTransformer extends BytecodeTransformer {
 
 
-	private MutationManager mm = new MutationManager();
+	private final MutationManager mm;
+
+	public MutationTransformer() {
+		this(new MutationManager());
+	}
+
+	public MutationTransformer(MutationManager mm) {
+		this.mm = mm;
+	}
 
 	@Override
 	protected ClassVisitor classVisitorFactory(ClassWriter cw) {
@@ -25,11 +25,13 @@ import org.apache.log4j.Logger;
 import org.objectweb.asm.ClassAdapter;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.AnalyzerAdapter;
 import org.objectweb.asm.util.CheckMethodAdapter;
 
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.absoluteValues.AbsoluteValueMethodAdapter;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.arithmetic.ArithmeticReplaceMethodAdapter;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.loopBudget.LoopBudgetMethodAdapter;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.monitor.MonitorRemoveMethodAdapter;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.negateJumps.NegateJumpsMethodAdapter;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.removeCalls.RemoveMethodCallsMethodAdapter;
@@ -40,6 +42,7 @@ import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.replaceVariables.Rep
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.unaryOperatorInsertion.UnaryOperatorMethodAdapter;
 import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 import de.unisb.cs.st.javalanche.mutation.properties.JavalancheConfiguration;
+import de.unisb.cs.st.javalanche.mutation.properties.RunMode;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
 import de.unisb.cs.st.javalanche.mutation.results.persistence.MutationManager;
 
@@ -78,6 +81,8 @@ public class MutationsClassAdapter extends ClassAdapter {
 
 	private ProjectVariables projectVariables = ProjectVariables.read();
 
+	private OutOfLineMutations outOfLineMutations;
+
 	public MutationsClassAdapter(ClassVisitor cv, MutationManager mm) {
 		super(cv);
 		this.mutationManager = mm;
@@ -91,6 +96,22 @@ public class MutationsClassAdapter extends ClassAdapter {
 			logger.warn("Got no Java 6 Class. Version: " + version);
 		}
 		className = name;
+		boolean isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+		JavalancheConfiguration config = ConfigurationLocator
+				.getJavalancheConfiguration();
+		if (isInterface) {
+			return;
+		}
+		// Generated methods would change the class schema, which prevents
+		// redefinition of the class in hotswap mode. A single mutation that
+		// is inserted without a guard does not need to be moved.
+		if (config.getRunMode() == RunMode.MUTATION_TEST_WEAK) {
+			outOfLineMutations = new WeakMutations(name);
+		} else if (config.useOutOfLineMutations()
+				&& config.getRunMode() != RunMode.MUTATION_TEST_HOTSWAP
+				&& !BytecodeTasks.hasBakedMutation()) {
+			outOfLineMutations = new OutOfLineMutations(name);
+		}
 	}
 
 	public MethodVisitor visitMethod(int access, String name, String desc,
@@ -99,16 +120,25 @@ public class MutationsClassAdapter extends ClassAdapter {
 				exceptions);
 
 		mv = new CheckMethodAdapter(mv);
-		mv = new RicMethodAdapter(mv, className, name, ricPossibilities,
-				mutationManager, desc);
+		JavalancheConfiguration config = ConfigurationLocator
+				.getJavalancheConfiguration();
+		if (config.useLoopBudget()
+				&& mutationManager.hasMutationsInMethod(className, name + desc)) {
+			mv = new LoopBudgetMethodAdapter(mv);
+		}
+		RicMethodAdapter ricAdapter = new RicMethodAdapter(mv, className,
+				name, ricPossibilities, mutationManager, desc);
+		ricAdapter.setOutOfLineMutations(outOfLineMutations);
+		mv = ricAdapter;
 		mv = new NegateJumpsMethodAdapter(mv, className, name,
 				negatePossibilities, mutationManager, desc);
-		mv = new ArithmeticReplaceMethodAdapter(mv, className, name,
-				arithmeticPossibilities, mutationManager, desc);
+		ArithmeticReplaceMethodAdapter arithmeticAdapter = new ArithmeticReplaceMethodAdapter(
+				mv, className, name, arithmeticPossibilities, mutationManager,
+				desc);
+		arithmeticAdapter.setOutOfLineMutations(outOfLineMutations);
+		mv = arithmeticAdapter;
 		mv = new RemoveMethodCallsMethodAdapter(mv, className, name,
 				removeCallsPossibilities, mutationManager, desc);
-		JavalancheConfiguration config = ConfigurationLocator
-				.getJavalancheConfiguration();
 		if (config.enableMutationType(MutationType.REPLACE_VARIABLE)) {
 			ReplaceVariablesMethodAdapter rvAdapter = new ReplaceVariablesMethodAdapter(
 					mv, className, name, replaceVariablePossibilities, desc,
@@ -142,4 +172,12 @@ public class MutationsClassAdapter extends ClassAdapter {
 
 	}
 
+	@Override
+	public void visitEnd() {
+		if (outOfLineMutations != null) {
+			outOfLineMutations.generateMethods(cv);
+		}
+		super.visitEnd();
+	}
+
 }
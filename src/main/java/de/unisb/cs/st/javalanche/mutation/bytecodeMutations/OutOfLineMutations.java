@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Collects the mutations of one class that are moved out of the mutated
+ * methods. Instead of inlining the guards and all mutated code blocks, the
+ * mutated method only contains a call to a synthetic static method that takes
+ * the operands of the mutated instruction. This method contains the guards,
+ * the mutated code, and the unmutated code. This keeps the mutated methods
+ * small, so that they stay below the inlining and compilation thresholds of
+ * the JIT.
+ * 
+ * Only mutations whose code blocks just work on the operand stack (and do not
+ * access local variables) can be moved out of the method.
+ */
+public class OutOfLineMutations {
+
+	private static final Logger logger = Logger
+			.getLogger(OutOfLineMutations.class);
+
+	private static final String METHOD_PREFIX = "__javalanche_mutation_";
+
+	private static class MutationSite {
+
+		private final String methodName;
+
+		private final String desc;
+
+		private final MutationCode unMutated;
+
+		private final MutationCode[] mutations;
+
+		public MutationSite(String methodName, String desc,
+				MutationCode unMutated, MutationCode[] mutations) {
+			this.methodName = methodName;
+			this.desc = desc;
+			this.unMutated = unMutated;
+			this.mutations = mutations;
+		}
+	}
+
+	private final String className;
+
+	private final List<MutationSite> sites = new ArrayList<MutationSite>();
+
+	/**
+	 * @param className
+	 *            the internal name of the class the methods are added to.
+	 */
+	public OutOfLineMutations(String className) {
+		this.className = className;
+	}
+
+	/**
+	 * Inserts a call to a new static method that contains the given
+	 * mutations. The method is added to the class when
+	 * {@link #generateMethods(ClassVisitor)} is called.
+	 * 
+	 * @param mv
+	 *            MethodVisitor where the call is inserted.
+	 * @param desc
+	 *            the descriptor of the static method, i.e. the values the
+	 *            mutated code consumes from the stack and the value it leaves
+	 *            on the stack.
+	 * @param unMutated
+	 *            code that should be used when no mutation is applied.
+	 * @param mutations
+	 *            code that should be used when one of the mutations is applied.
+	 */
+	public void insertCall(MethodVisitor mv, String desc,
+			MutationCode unMutated, MutationCode[] mutations) {
+		String methodName = METHOD_PREFIX + sites.size();
+		sites.add(new MutationSite(methodName, desc, unMutated, mutations));
+		Label startLabel = new Label();
+		startLabel.info = new MutationMarker(true);
+		mv.visitLabel(startLabel);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className, methodName, desc);
+		Label endLabel = new Label();
+		endLabel.info = new MutationMarker(false);
+		mv.visitLabel(endLabel);
+	}
+
+	/**
+	 * Adds the static methods for all mutations that were moved out of the
+	 * mutated methods to the given class visitor.
+	 * 
+	 * @param cv
+	 *            the class visitor to add the methods to.
+	 */
+	public void generateMethods(ClassVisitor cv) {
+		for (MutationSite site : sites) {
+			logger.debug("Adding method " + site.methodName + site.desc
+					+ " to " + className);
+			MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PRIVATE
+					| Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+					site.methodName, site.desc, null, null);
+			mv.visitCode();
+			insertMethodBody(mv, site.desc, site.unMutated, site.mutations);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+	}
+
+	/**
+	 * Inserts the code of one generated method. The operands are passed as
+	 * arguments to the method, and the method returns the value the code
+	 * blocks leave on the stack.
+	 * 
+	 * @param mv
+	 *            MethodVisitor of the generated method.
+	 * @param desc
+	 *            the descriptor of the generated method.
+	 * @param unMutated
+	 *            code that should be used when no mutation is applied.
+	 * @param mutations
+	 *            code that should be used when one of the mutations is applied.
+	 */
+	protected void insertMethodBody(MethodVisitor mv, String desc,
+			MutationCode unMutated, MutationCode[] mutations) {
+		loadArguments(mv, desc);
+		BytecodeTasks.insertIfElse(mv, unMutated, mutations);
+		Type returnType = Type.getReturnType(desc);
+		mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+	}
+
+	/**
+	 * Pushes all arguments of a static method with the given descriptor onto
+	 * the stack.
+	 * 
+	 * @return the index of the first local variable after the arguments
+	 */
+	protected static int loadArguments(MethodVisitor mv, String desc) {
+		int local = 0;
+		for (Type argument : Type.getArgumentTypes(desc)) {
+			mv.visitVarInsn(argument.getOpcode(Opcodes.ILOAD), local);
+			local += argument.getSize();
+		}
+		return local;
+	}
+
+	/**
+	 * Returns true if the given method was generated by this class.
+	 * 
+	 * @param methodName
+	 *            the name of the method to check
+	 * @return true if the given method was generated by this class
+	 */
+	public static boolean isGeneratedMethod(String methodName) {
+		return methodName.startsWith(METHOD_PREFIX);
+	}
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.HibernateUtil;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.MutationManager;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+import de.unisb.cs.st.javalanche.mutation.runtime.MutationObserver;
+import de.unisb.cs.st.javalanche.mutation.util.BytecodeHash;
+
+/**
+ * Detects trivially equivalent mutations. Each mutation is inserted into its
+ * class without a guard, and the mutated method is canonicalized and hashed.
+ * A mutation is marked as equivalent when the hash is the same as the hash of
+ * the original method, or as the hash of the method of a mutation with a
+ * smaller id. Mutations that could not be inserted are left unclassified.
+ */
+public class TrivialEquivalenceDetector {
+
+	private static Logger logger = Logger
+			.getLogger(TrivialEquivalenceDetector.class);
+
+	private static final String OBSERVER_CLASS = MutationObserver.class
+			.getName().replace('.', '/');
+
+	private final SingleMutationManager mutationManager = new SingleMutationManager();
+
+	private final MutationTransformer mutationTransformer = new MutationTransformer(
+			mutationManager);
+
+	/**
+	 * Checks all mutations of the given class and stores the result in the
+	 * database.
+	 * 
+	 * @param className
+	 *            the name of the class
+	 * @param bytecode
+	 *            the original bytecode of the class
+	 * @return a map from the ids of the classified mutations to the id of
+	 *         the mutation they are equivalent to, or null if they are not
+	 *         equivalent
+	 */
+	public Map<Long, Long> detect(String className, byte[] bytecode) {
+		List<Mutation> mutations = new ArrayList<Mutation>(
+				QueryManager.getMutationsForClass(className));
+		Collections.sort(mutations, new java.util.Comparator<Mutation>() {
+			public int compare(Mutation o1, Mutation o2) {
+				return o1.getId().compareTo(o2.getId());
+			}
+		});
+		Map<String, String> originalHashes = hashMethods(bytecode, null);
+		Map<String, Long> seen = new HashMap<String, Long>();
+		Map<Long, Long> equivalences = new HashMap<Long, Long>();
+		for (Mutation m : mutations) {
+			if (m.getMutationType() == MutationType.NO_MUTATION) {
+				continue;
+			}
+			String hash;
+			try {
+				hash = hashMethods(bytecode, m).get(m.getMethodName());
+			} catch (RuntimeException e) {
+				logger.warn("Could not insert mutation " + m, e);
+				continue;
+			}
+			if (!mutationManager.applied) {
+				logger.info("Mutation was not applied, leaving it unclassified: "
+						+ m);
+				continue;
+			}
+			if (hash == null) {
+				continue;
+			}
+			Long equivalentTo = null;
+			if (hash.equals(originalHashes.get(m.getMethodName()))) {
+				equivalentTo = Mutation.ORIGINAL_ID;
+			} else {
+				String key = m.getMethodName() + hash;
+				equivalentTo = seen.get(key);
+				if (equivalentTo == null) {
+					seen.put(key, m.getId());
+				}
+			}
+			equivalences.put(m.getId(), equivalentTo);
+		}
+		store(equivalences);
+		return equivalences;
+	}
+
+	private static void store(Map<Long, Long> equivalences) {
+		Session session = HibernateUtil.getSessionFactory().openSession();
+		Transaction tx = session.beginTransaction();
+		int equivalent = 0;
+		for (Map.Entry<Long, Long> entry : equivalences.entrySet()) {
+			Mutation m = QueryManager.getMutationByID(entry.getKey(), session);
+			m.setEquivalentTo(entry.getValue());
+			if (entry.getValue() != null) {
+				logger.debug("Mutation " + m.getId() + " is equivalent to "
+						+ entry.getValue());
+				equivalent++;
+			}
+		}
+		tx.commit();
+		session.close();
+		logger.info(equivalent + " of " + equivalences.size()
+				+ " mutations are trivially equivalent");
+	}
+
+	/**
+	 * Inserts the given mutation and returns the canonical hashes of all
+	 * methods of the resulting class.
+	 */
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	private Map<String, String> hashMethods(byte[] bytecode, Mutation mutation) {
+		mutationManager.target = mutation;
+		mutationManager.applied = false;
+		BytecodeTasks.setBakedMutation(mutation == null ? null : mutation
+				.getId());
+		byte[] mutated;
+		try {
+			mutated = mutationTransformer.transformBytecode(bytecode);
+		} finally {
+			BytecodeTasks.setBakedMutation(null);
+		}
+		ClassNode classNode = new ClassNode();
+		new ClassReader(mutated).accept(classNode, ClassReader.SKIP_DEBUG
+				| ClassReader.SKIP_FRAMES);
+		Map<String, String> result = new HashMap<String, String>();
+		Iterator<MethodNode> it = classNode.methods.iterator();
+		while (it.hasNext()) {
+			MethodNode method = it.next();
+			canonicalize(method);
+			result.put(method.name + method.desc,
+					BytecodeHash.hashMethod(method));
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the calls that report the execution of a mutation and all labels
+	 * that are not referenced.
+	 */
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	static void canonicalize(MethodNode method) {
+		Set<LabelNode> referenced = new HashSet<LabelNode>();
+		Iterator<TryCatchBlockNode> tryCatchBlocks = method.tryCatchBlocks
+				.iterator();
+		while (tryCatchBlocks.hasNext()) {
+			TryCatchBlockNode block = tryCatchBlocks.next();
+			referenced.add(block.start);
+			referenced.add(block.end);
+			referenced.add(block.handler);
+		}
+		AbstractInsnNode[] insns = method.instructions.toArray();
+		for (AbstractInsnNode insn : insns) {
+			if (insn instanceof JumpInsnNode) {
+				referenced.add(((JumpInsnNode) insn).label);
+			} else if (insn instanceof TableSwitchInsnNode) {
+				TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+				referenced.add(tableSwitch.dflt);
+				referenced.addAll(tableSwitch.labels);
+			} else if (insn instanceof LookupSwitchInsnNode) {
+				LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+				referenced.add(lookupSwitch.dflt);
+				referenced.addAll(lookupSwitch.labels);
+			}
+		}
+		for (int i = 0; i < insns.length; i++) {
+			AbstractInsnNode insn = insns[i];
+			if (insn instanceof LabelNode && !referenced.contains(insn)) {
+				method.instructions.remove(insn);
+			} else if (isTouchCall(insn) && i > 0
+					&& insns[i - 1] instanceof LdcInsnNode) {
+				method.instructions.remove(insns[i - 1]);
+				method.instructions.remove(insn);
+			}
+		}
+	}
+
+	private static boolean isTouchCall(AbstractInsnNode insn) {
+		if (insn instanceof MethodInsnNode) {
+			MethodInsnNode methodInsn = (MethodInsnNode) insn;
+			return methodInsn.owner.equals(OBSERVER_CLASS)
+					&& methodInsn.name.equals("touch");
+		}
+		return false;
+	}
+
+	/**
+	 * Applies only the target mutation. The operators pass mutations without
+	 * an id, so these are looked up in the database.
+	 */
+	private static class SingleMutationManager extends MutationManager {
+
+		private Mutation target;
+
+		private boolean applied;
+
+		public SingleMutationManager() {
+			super(null);
+		}
+
+		@Override
+		public boolean shouldApplyMutation(Mutation mutation) {
+			if (mutation == null || target == null) {
+				return false;
+			}
+			if (mutation.getId() == null) {
+				if (mutation.getLineNumber() != target.getLineNumber()
+						|| mutation.getMutationType() != target
+								.getMutationType()) {
+					return false;
+				}
+				mutation = QueryManager.getMutationOrNull(mutation);
+			}
+			if (mutation != null && target.getId().equals(mutation.getId())) {
+				applied = true;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean hasMutationsInMethod(String className,
+				String methodName) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.runtime.WeakMutation;
+
+/**
+ * Generates the methods for the weak mutation run. A generated method
+ * evaluates the unmutated code and all mutated code blocks on the same
+ * operands, reports to {@link WeakMutation} whether the values differ, and
+ * returns the value of the unmutated code. Thus one run of the tests checks
+ * all mutations for state infection, and the tests behave as for the
+ * unmutated program.
+ * 
+ * Exceptions that are thrown by a mutated code block count as infection and
+ * are not propagated. When the unmutated code throws an exception, all
+ * mutations of the site are considered to infect the state.
+ */
+public class WeakMutations extends OutOfLineMutations {
+
+	/**
+	 * @param className
+	 *            the internal name of the class the methods are added to.
+	 */
+	public WeakMutations(String className) {
+		super(className);
+	}
+
+	@Override
+	protected void insertMethodBody(MethodVisitor mv, String desc,
+			MutationCode unMutated, MutationCode[] mutations) {
+		Type returnType = Type.getReturnType(desc);
+		if (returnType == Type.VOID_TYPE) {
+			super.insertMethodBody(mv, desc, unMutated, mutations);
+			return;
+		}
+		int resultLocal = 0;
+		for (Type argument : Type.getArgumentTypes(desc)) {
+			resultLocal += argument.getSize();
+		}
+		int exceptionLocal = resultLocal + returnType.getSize();
+		Label originalStart = new Label();
+		Label originalEnd = new Label();
+		Label originalHandler = new Label();
+		Label mutationsStart = new Label();
+		mv.visitTryCatchBlock(originalStart, originalEnd, originalHandler,
+				null);
+		mv.visitLabel(originalStart);
+		loadArguments(mv, desc);
+		unMutated.insertCodeBlock(mv);
+		mv.visitLabel(originalEnd);
+		mv.visitVarInsn(returnType.getOpcode(Opcodes.ISTORE), resultLocal);
+		mv.visitJumpInsn(Opcodes.GOTO, mutationsStart);
+		mv.visitLabel(originalHandler);
+		mv.visitVarInsn(Opcodes.ASTORE, exceptionLocal);
+		for (MutationCode mutationCode : mutations) {
+			insertInfected(mv, mutationCode.getMutation());
+		}
+		mv.visitVarInsn(Opcodes.ALOAD, exceptionLocal);
+		mv.visitInsn(Opcodes.ATHROW);
+		mv.visitLabel(mutationsStart);
+		String compareDesc = WeakMutation.getCompareDescriptor(returnType
+				.getDescriptor());
+		for (MutationCode mutationCode : mutations) {
+			Mutation mutation = mutationCode.getMutation();
+			Label start = new Label();
+			Label end = new Label();
+			Label handler = new Label();
+			Label next = new Label();
+			mv.visitTryCatchBlock(start, end, handler, null);
+			mv.visitLabel(start);
+			loadArguments(mv, desc);
+			mutationCode.insertCodeBlock(mv);
+			mv.visitLabel(end);
+			mv.visitVarInsn(returnType.getOpcode(Opcodes.ILOAD), resultLocal);
+			mv.visitLdcInsn(mutation.getId());
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, WeakMutation.CLASS_NAME,
+					"compare", compareDesc);
+			mv.visitJumpInsn(Opcodes.GOTO, next);
+			mv.visitLabel(handler);
+			mv.visitInsn(Opcodes.POP);
+			insertInfected(mv, mutation);
+			mv.visitLabel(next);
+		}
+		mv.visitVarInsn(returnType.getOpcode(Opcodes.ILOAD), resultLocal);
+		mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+	}
+
+	/**
+	 * Inserts a call that reports the given mutation as infecting.
+	 * 
+	 * @param mv
+	 *            the method visitor to add the statements
+	 * @param mutation
+	 *            the mutation that is reached
+	 */
+	static void insertInfected(MethodVisitor mv, Mutation mutation) {
+		mv.visitLdcInsn(mutation.getId());
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, WeakMutation.CLASS_NAME,
+				"infected", "(J)V");
+	}
+
+}
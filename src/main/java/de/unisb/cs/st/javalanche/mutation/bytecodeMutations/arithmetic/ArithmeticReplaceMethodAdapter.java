@@ -27,7 +27,6 @@ import org.objectweb.asm.Opcodes;
 
 import java.util.ArrayList;
 
-import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.BytecodeTasks;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.MutationCode;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
@@ -107,7 +106,7 @@ public class ArithmeticReplaceMethodAdapter extends
 			}
 		}
 		if (mutationCode.size() > 0) {
-			BytecodeTasks.insertIfElse(mv, unMutated,
+			insertIfElse(ReplaceMap.getOperandDescriptor(opcode), unMutated,
 					mutationCode.toArray(new MutationCode[0]));
 		} else {
 			mv.visitInsn(opcode);
@@ -76,6 +76,8 @@ public class ReplaceMap {
 
 	private static Map<Integer, Integer> replaceMap;
 
+	private static final String[] TYPES = { "I", "J", "F", "D" };
+
 	private ReplaceMap() {
 	}
 
@@ -91,4 +93,31 @@ public class ReplaceMap {
 		return replaceMap;
 
 	}
+
+	/**
+	 * Returns the descriptor of a static method that takes the operands of
+	 * the given arithmetic instruction and returns its result, e.g. (II)I for
+	 * IADD.
+	 * 
+	 * @param opcode
+	 *            an arithmetic opcode between IADD and LXOR
+	 * @return the descriptor for the operands of the instruction, or null if
+	 *         the opcode is not an arithmetic instruction
+	 */
+	public static String getOperandDescriptor(int opcode) {
+		if (opcode < Opcodes.IADD || opcode > Opcodes.LXOR) {
+			return null;
+		}
+		if (opcode >= Opcodes.ISHL && opcode <= Opcodes.LUSHR) {
+			return (opcode - Opcodes.ISHL) % 2 == 0 ? "(II)I" : "(JI)J";
+		}
+		if (opcode >= Opcodes.IAND) {
+			return (opcode - Opcodes.IAND) % 2 == 0 ? "(II)I" : "(JJ)J";
+		}
+		String type = TYPES[(opcode - Opcodes.IADD) % 4];
+		if (opcode >= Opcodes.INEG) {
+			return "(" + type + ")" + type;
+		}
+		return "(" + type + type + ")" + type;
+	}
 }
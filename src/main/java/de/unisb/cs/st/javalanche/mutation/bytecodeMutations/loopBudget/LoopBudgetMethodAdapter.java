@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations.loopBudget;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodAdapter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import de.unisb.cs.st.javalanche.mutation.runtime.LoopBudget;
+
+/**
+ * Inserts calls to {@link LoopBudget#tick()} at the start of a method and
+ * before each backward branch. Thus every loop iteration and every recursive
+ * call is counted.
+ */
+public class LoopBudgetMethodAdapter extends MethodAdapter {
+
+	/**
+	 * Labels that were already visited. A jump to one of these labels is a
+	 * backward branch.
+	 */
+	private Set<Label> visitedLabels = new HashSet<Label>();
+
+	public LoopBudgetMethodAdapter(MethodVisitor mv) {
+		super(mv);
+	}
+
+	@Override
+	public void visitCode() {
+		super.visitCode();
+		insertTick();
+	}
+
+	@Override
+	public void visitLabel(Label label) {
+		visitedLabels.add(label);
+		super.visitLabel(label);
+	}
+
+	@Override
+	public void visitJumpInsn(int opcode, Label label) {
+		if (visitedLabels.contains(label)) {
+			insertTick();
+		}
+		super.visitJumpInsn(opcode, label);
+	}
+
+	@Override
+	public void visitTableSwitchInsn(int min, int max, Label dflt,
+			Label[] labels) {
+		if (containsBackwardTarget(dflt, labels)) {
+			insertTick();
+		}
+		super.visitTableSwitchInsn(min, max, dflt, labels);
+	}
+
+	@Override
+	public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+		if (containsBackwardTarget(dflt, labels)) {
+			insertTick();
+		}
+		super.visitLookupSwitchInsn(dflt, keys, labels);
+	}
+
+	private boolean containsBackwardTarget(Label dflt, Label[] labels) {
+		if (visitedLabels.contains(dflt)) {
+			return true;
+		}
+		for (Label label : labels) {
+			if (visitedLabels.contains(label)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void insertTick() {
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				"de/unisb/cs/st/javalanche/mutation/runtime/LoopBudget",
+				"tick", "()V");
+	}
+
+}
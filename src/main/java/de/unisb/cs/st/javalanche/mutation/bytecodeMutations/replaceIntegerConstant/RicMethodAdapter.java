@@ -27,7 +27,6 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.AbstractMutationAdapter;
-import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.BytecodeTasks;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.MutationCode;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
@@ -241,7 +240,7 @@ public class RicMethodAdapter extends AbstractMutationAdapter {
 		}
 		if (insert) {
 			logger.debug("Applying mutations for line: " + getLineNumber());
-			BytecodeTasks.insertIfElse(mv, unmutated,
+			insertIfElse("()J", unmutated,
 					mutationCode.toArray(new MutationCode[0]));
 		} else {
 			logger.debug("Applying no mutation for line: " + getLineNumber());
@@ -279,7 +278,7 @@ public class RicMethodAdapter extends AbstractMutationAdapter {
 
 		if (insert) {
 			logger.debug("Applying mutations for line: " + getLineNumber());
-			BytecodeTasks.insertIfElse(mv, unmutated,
+			insertIfElse("()F", unmutated,
 					mutationCode.toArray(new MutationCode[0]));
 		} else {
 			logger.debug("Applying no mutation for line: " + getLineNumber());
@@ -317,7 +316,7 @@ public class RicMethodAdapter extends AbstractMutationAdapter {
 
 		if (insert) {
 			logger.debug("Applying mutations for line: " + getLineNumber());
-			BytecodeTasks.insertIfElse(mv, unmutated,
+			insertIfElse("()D", unmutated,
 					mutationCode.toArray(new MutationCode[0]));
 		} else {
 			logger.debug("Applying no mutation for line: " + getLineNumber());
@@ -357,7 +356,7 @@ public class RicMethodAdapter extends AbstractMutationAdapter {
 
 		if (insert) {
 			logger.debug("Applying mutations for line: " + getLineNumber());
-			BytecodeTasks.insertIfElse(mv, unmutated,
+			insertIfElse("()I", unmutated,
 					mutationCode.toArray(new MutationCode[0]));
 		} else {
 			logger.debug("Applying no mutation for line: " + getLineNumber());
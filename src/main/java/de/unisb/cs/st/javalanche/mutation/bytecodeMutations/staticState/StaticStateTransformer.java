@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations.staticState;
+
+import java.util.Iterator;
+
+import org.apache.log4j.Logger;
+import org.objectweb.asm.ClassAdapter;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodAdapter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import de.unisb.cs.st.javalanche.mutation.runtime.StaticState;
+
+/**
+ * Adds a call to {@link StaticState#classInitialized(Class, boolean)} to the
+ * static initializer of a class. When the static initializer can be run again
+ * safely, a copy of it is added as a private static method.
+ * 
+ * A static initializer is considered safe when the class is neither an
+ * interface nor an enum, when the initializer does not access other classes
+ * of the project, and when it does not assign final static fields. Final
+ * static fields may have been folded into compiled code by the just-in-time
+ * compiler, so assigning them again would not reach all readers.
+ */
+public class StaticStateTransformer {
+
+	private static final Logger logger = Logger
+			.getLogger(StaticStateTransformer.class);
+
+	private static final String CLASS_INIT = "<clinit>";
+
+	/**
+	 * First class file version that supports class constants.
+	 */
+	private static final int MIN_VERSION = Opcodes.V1_5;
+
+	/**
+	 * First class file version that does not allow to assign final static
+	 * fields outside of the static initializer.
+	 */
+	private static final int MAX_VERSION = 53;
+
+	private final String projectPrefix;
+
+	/**
+	 * Creates a new transformer.
+	 * 
+	 * @param projectPrefix
+	 *            prefix of the project classes, in the form 'org.example'
+	 */
+	public StaticStateTransformer(String projectPrefix) {
+		this.projectPrefix = projectPrefix.replace('.', '/');
+	}
+
+	/**
+	 * Transforms the given bytecode.
+	 * 
+	 * @param bytecode
+	 *            the bytecode of the class
+	 * @return the transformed bytecode
+	 */
+	public byte[] transformBytecode(byte[] bytecode) {
+		ClassReader cr = new ClassReader(bytecode);
+		ClassNode classNode = new ClassNode();
+		cr.accept(classNode, ClassReader.EXPAND_FRAMES);
+		int version = classNode.version & 0xFFFF;
+		if (version < MIN_VERSION) {
+			logger.debug("Class version too old to record static state: "
+					+ classNode.name);
+			return bytecode;
+		}
+		MethodNode classInit = getClassInit(classNode);
+		boolean reinitializable = version < MAX_VERSION
+				&& classInit != null && isSafe(classNode, classInit);
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cr.accept(new StaticStateClassAdapter(cw, reinitializable ? classInit
+				: null), ClassReader.EXPAND_FRAMES);
+		return cw.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	private static MethodNode getClassInit(ClassNode classNode) {
+		Iterator<MethodNode> it = classNode.methods.iterator();
+		while (it.hasNext()) {
+			MethodNode method = it.next();
+			if (method.name.equals(CLASS_INIT)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	private boolean isSafe(ClassNode classNode, MethodNode classInit) {
+		if ((classNode.access & (Opcodes.ACC_INTERFACE | Opcodes.ACC_ENUM)) != 0) {
+			return false;
+		}
+		Iterator<AbstractInsnNode> it = classInit.instructions.iterator();
+		while (it.hasNext()) {
+			AbstractInsnNode insn = it.next();
+			String owner = null;
+			if (insn instanceof FieldInsnNode) {
+				owner = ((FieldInsnNode) insn).owner;
+			} else if (insn instanceof MethodInsnNode) {
+				owner = ((MethodInsnNode) insn).owner;
+			}
+			if (owner != null && !owner.equals(classNode.name)
+					&& owner.startsWith(projectPrefix)) {
+				logger.debug("Static initializer of " + classNode.name
+						+ " accesses " + owner);
+				return false;
+			}
+			if (insn.getOpcode() == Opcodes.PUTSTATIC
+					&& owner.equals(classNode.name)
+					&& isFinal(classNode, ((FieldInsnNode) insn).name)) {
+				logger.debug("Static initializer of " + classNode.name
+						+ " assigns final field " + ((FieldInsnNode) insn).name);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	private static boolean isFinal(ClassNode classNode, String fieldName) {
+		Iterator<FieldNode> it = classNode.fields.iterator();
+		while (it.hasNext()) {
+			FieldNode field = it.next();
+			if (field.name.equals(fieldName)) {
+				return (field.access & Opcodes.ACC_FINAL) != 0;
+			}
+		}
+		return false;
+	}
+
+	private static class StaticStateClassAdapter extends ClassAdapter {
+
+		private final MethodNode reinitializeCopy;
+
+		private String className;
+
+		private boolean hasClassInit;
+
+		/**
+		 * @param cv
+		 *            the visitor to pass the class to
+		 * @param reinitializeCopy
+		 *            the static initializer to copy, or null if the class
+		 *            cannot be initialized again
+		 */
+		public StaticStateClassAdapter(ClassVisitor cv,
+				MethodNode reinitializeCopy) {
+			super(cv);
+			this.reinitializeCopy = reinitializeCopy;
+		}
+
+		@Override
+		public void visit(int version, int access, String name,
+				String signature, String superName, String[] interfaces) {
+			super.visit(version, access, name, signature, superName,
+					interfaces);
+			className = name;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String desc,
+				String signature, String[] exceptions) {
+			MethodVisitor mv = super.visitMethod(access, name, desc,
+					signature, exceptions);
+			if (name.equals(CLASS_INIT)) {
+				hasClassInit = true;
+				mv = new RegisterMethodAdapter(mv);
+			}
+			return mv;
+		}
+
+		@Override
+		public void visitEnd() {
+			if (!hasClassInit) {
+				MethodVisitor mv = super.visitMethod(Opcodes.ACC_STATIC,
+						CLASS_INIT, "()V", null, null);
+				mv.visitCode();
+				insertRegistration(mv);
+				mv.visitInsn(Opcodes.RETURN);
+				mv.visitMaxs(0, 0);
+				mv.visitEnd();
+			}
+			if (reinitializeCopy != null) {
+				MethodVisitor mv = super.visitMethod(Opcodes.ACC_PRIVATE
+						| Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+						StaticState.REINITIALIZE_METHOD_NAME, "()V", null,
+						null);
+				reinitializeCopy.accept(mv);
+			}
+			super.visitEnd();
+		}
+
+		private void insertRegistration(MethodVisitor mv) {
+			mv.visitLdcInsn(Type.getObjectType(className));
+			mv.visitInsn(reinitializeCopy != null ? Opcodes.ICONST_1
+					: Opcodes.ICONST_0);
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+					"de/unisb/cs/st/javalanche/mutation/runtime/StaticState",
+					"classInitialized", "(Ljava/lang/Class;Z)V");
+		}
+
+		private class RegisterMethodAdapter extends MethodAdapter {
+
+			public RegisterMethodAdapter(MethodVisitor mv) {
+				super(mv);
+			}
+
+			@Override
+			public void visitInsn(int opcode) {
+				if (opcode == Opcodes.RETURN) {
+					insertRegistration(mv);
+				}
+				super.visitInsn(opcode);
+			}
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.javaagent;
+
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.BytecodeTasks;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.MutationTransformer;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.MutationManager;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+import de.unisb.cs.st.javalanche.mutation.runtime.MutationObserver;
+import de.unisb.cs.st.javalanche.mutation.util.AsmUtil;
+
+/**
+ * Activates mutations by redefining the mutated class with only this mutation
+ * inserted, and restores the original class afterwards. Thus, no guards are
+ * executed while the tests run.
+ * 
+ * Mutations in static initializers can not be handled this way, because the
+ * initializer is not executed again after a redefinition. These mutations are
+ * inserted with guards when the class is loaded.
+ * 
+ */
+public class HotSwapper {
+
+	private static final Logger logger = Logger.getLogger(HotSwapper.class);
+
+	private static final String CLASS_INIT = "<clinit>";
+
+	private static Instrumentation instrumentation;
+
+	private static final HotSwapMutationManager mutationManager = new HotSwapMutationManager();
+
+	private static final MutationTransformer mutationTransformer = new MutationTransformer(
+			mutationManager);
+
+	/**
+	 * Bytecode of the loaded classes before any mutation was inserted. A
+	 * class is identified by its loader and name, since classes with the same
+	 * name can be loaded by different loaders.
+	 */
+	private static final Map<LoadedClass, byte[]> originalBytecode = new HashMap<LoadedClass, byte[]>();
+
+	/**
+	 * The loaded classes by name.
+	 */
+	private static final Map<String, List<LoadedClass>> loadedClasses = new HashMap<String, List<LoadedClass>>();
+
+	/**
+	 * The mutation that is currently inserted without guards.
+	 */
+	private static Mutation activeMutation;
+
+	/**
+	 * The classes that were redefined or loaded with the active mutation
+	 * inserted.
+	 */
+	private static final List<LoadedClass> swapped = new ArrayList<LoadedClass>();
+
+	private HotSwapper() {
+	}
+
+	static void setInstrumentation(Instrumentation instrumentation) {
+		HotSwapper.instrumentation = instrumentation;
+	}
+
+	/**
+	 * Returns true if classes can be redefined in this virtual machine.
+	 * 
+	 * @return true, if classes can be redefined
+	 */
+	public static boolean isEnabled() {
+		return instrumentation != null
+				&& instrumentation.isRedefineClassesSupported();
+	}
+
+	/**
+	 * Returns true if the given mutation can be activated by redefining its
+	 * class.
+	 * 
+	 * @param mutation
+	 *            the mutation to check
+	 * @return true, if the mutation can be activated by redefining its class
+	 */
+	public static boolean canSwap(Mutation mutation) {
+		return isEnabled() && !isClassInit(mutation);
+	}
+
+	private static boolean isClassInit(Mutation mutation) {
+		String methodName = mutation.getMethodName();
+		return methodName != null && methodName.startsWith(CLASS_INIT);
+	}
+
+	/**
+	 * Called when a class is loaded for the first time. Returns the bytecode
+	 * that should be used for the class. It contains the active mutation if
+	 * the mutation belongs to this class, and the mutations of the static
+	 * initializer with guards.
+	 * 
+	 * @param classNameWithDots
+	 *            name of the loaded class
+	 * @param loader
+	 *            the class loader that loads the class
+	 * @param bytecode
+	 *            the original bytecode of the class
+	 * @return the transformed bytecode
+	 */
+	public static synchronized byte[] classLoaded(String classNameWithDots,
+			ClassLoader loader, byte[] bytecode) {
+		LoadedClass loadedClass = new LoadedClass(loader, classNameWithDots);
+		if (originalBytecode.put(loadedClass, bytecode) == null) {
+			List<LoadedClass> classes = loadedClasses.get(classNameWithDots);
+			if (classes == null) {
+				classes = new ArrayList<LoadedClass>();
+				loadedClasses.put(classNameWithDots, classes);
+			}
+			classes.add(loadedClass);
+		}
+		Long id = null;
+		if (activeMutation != null
+				&& activeMutation.getClassName().equals(classNameWithDots)) {
+			id = activeMutation.getId();
+			swapped.add(loadedClass);
+		}
+		return transform(bytecode, id);
+	}
+
+	/**
+	 * Activates the given mutation. If its class is already loaded, it is
+	 * redefined for every loader that loaded it. Otherwise the mutation is
+	 * inserted when the class gets loaded.
+	 * 
+	 * @param mutation
+	 *            the mutation to activate
+	 */
+	public static synchronized void swapIn(Mutation mutation) {
+		activeMutation = mutation;
+		swapped.clear();
+		List<LoadedClass> classes = loadedClasses.get(mutation.getClassName());
+		if (classes != null) {
+			for (LoadedClass loadedClass : classes) {
+				if (redefine(loadedClass, mutation.getId())) {
+					swapped.add(loadedClass);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restores the class of the active mutation.
+	 */
+	public static synchronized void swapOut() {
+		for (LoadedClass loadedClass : swapped) {
+			redefine(loadedClass, null);
+		}
+		activeMutation = null;
+		swapped.clear();
+	}
+
+	private static boolean redefine(LoadedClass loadedClass, Long mutationId) {
+		String classNameWithDots = loadedClass.name;
+		try {
+			Class<?> clazz = Class.forName(classNameWithDots, false,
+					loadedClass.loader);
+			byte[] bytecode = transform(originalBytecode.get(loadedClass),
+					mutationId);
+			instrumentation.redefineClasses(new ClassDefinition(clazz,
+					bytecode));
+			logger.debug("Redefined class " + classNameWithDots
+					+ " for mutation " + mutationId);
+			return true;
+		} catch (Exception e) {
+			logger.warn("Could not redefine class " + classNameWithDots, e);
+		} catch (LinkageError e) {
+			logger.warn("Could not redefine class " + classNameWithDots, e);
+		}
+		return false;
+	}
+
+	private static byte[] transform(byte[] bytecode, Long mutationId) {
+		mutationManager.mutationId = mutationId;
+		BytecodeTasks.setBakedMutation(mutationId);
+		try {
+			byte[] result = mutationTransformer.transformBytecode(bytecode);
+			AsmUtil.checkClass(result);
+			return result;
+		} finally {
+			BytecodeTasks.setBakedMutation(null);
+		}
+	}
+
+	/**
+	 * A class name together with the loader that defined the class. Loaders
+	 * are compared by identity.
+	 */
+	static final class LoadedClass {
+
+		final ClassLoader loader;
+
+		final String name;
+
+		LoadedClass(ClassLoader loader, String name) {
+			this.loader = loader;
+			this.name = name;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(loader) + name.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof LoadedClass)) {
+				return false;
+			}
+			LoadedClass other = (LoadedClass) obj;
+			return loader == other.loader && name.equals(other.name);
+		}
+	}
+
+	/**
+	 * Applies the mutations of static initializers as usual, and besides
+	 * these only the mutation with the given id.
+	 */
+	private static class HotSwapMutationManager extends MutationManager {
+
+		private Long mutationId;
+
+		@Override
+		public boolean shouldApplyMutation(Mutation mutation) {
+			if (mutation == null) {
+				return false;
+			}
+			if (isClassInit(mutation)) {
+				return super.shouldApplyMutation(mutation);
+			}
+			if (mutationId == null) {
+				return false;
+			}
+			Mutation mutationFromDb = QueryManager.getMutationOrNull(mutation);
+			if (mutationFromDb != null
+					&& mutationId.equals(mutationFromDb.getId())) {
+				MutationObserver.mutationApplied(mutationFromDb);
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
@@ -27,10 +27,13 @@ import java.lang.instrument.Instrumentation;
 import de.unisb.cs.st.javalanche.coverage.CoverageTransformer;
 //import de.unisb.cs.st.javalanche.invariants.javaagent.InvariantTransformer;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.DistanceTransformer;
+import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.HotSwapTransformer;
+import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.MethodHashTransformer;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.MutationFileTransformer;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.MutationScanner;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.ScanProjectTransformer;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.ScanVariablesTransformer;
+import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.StaticStateFileTransformer;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.SysExitTransformer;
 import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 import de.unisb.cs.st.javalanche.mutation.properties.JavalancheConfiguration;
@@ -62,6 +65,7 @@ public class MutationPreMain {
 				sysout.println("Run mutation testing (without impact detection)");
 				addClassFileTransformer(instrumentation,
 						new MutationFileTransformer());
+				addStaticStateTransformer(instrumentation);
 				return;
 
 				/*
@@ -72,15 +76,34 @@ public class MutationPreMain {
 				 * addClassFileTransformer(instrumentation, new
 				 * MutationFileTransformer()); return;
 				 */
+			} else if (runMode == MUTATION_TEST_WEAK) {
+				sysout.println("Check mutations for state infection (weak mutation)");
+				addClassFileTransformer(instrumentation,
+						new MutationFileTransformer());
+				return;
+			} else if (runMode == MUTATION_TEST_HOTSWAP) {
+				sysout.println("Run mutation testing (redefining mutated classes)");
+				HotSwapper.setInstrumentation(instrumentation);
+				addClassFileTransformer(instrumentation,
+						new HotSwapTransformer());
+				return;
+			} else if (runMode == MUTATION_SUPERVISOR) {
+				sysout.println("Supervising mutation testing workers");
+				return;
 			} else if (runMode == MUTATION_TEST_COVERAGE) {
 				sysout.println("Run mutation tests with tracing of coverage data per test");
 				addClassFileTransformer(instrumentation,
 						new MutationFileTransformer());
+				addStaticStateTransformer(instrumentation);
 				addClassFileTransformer(instrumentation,
 						new CoverageTransformer());
 				return;
 			} else if (runMode == SCAN) {
 				sysout.println("Scanning for mutations");
+				if (javalancheConfiguration.useIncrementalMode()) {
+					addClassFileTransformer(instrumentation,
+							new MethodHashTransformer());
+				}
 				addClassFileTransformer(instrumentation, new MutationScanner());
 				return;
 			} else if (runMode == CHECK_TESTS || runMode == TEST_PERMUTED) {
@@ -118,6 +141,20 @@ public class MutationPreMain {
 		}
 	}
 
+	/**
+	 * Adds the transformer that records the static state of the project
+	 * classes, if static state reset is enabled.
+	 */
+	private static void addStaticStateTransformer(
+			Instrumentation instrumentation) {
+		if (ConfigurationLocator.getJavalancheConfiguration()
+				.useStaticStateReset()) {
+			sysout.println("Resetting static state after each mutation");
+			addClassFileTransformer(instrumentation,
+					new StaticStateFileTransformer());
+		}
+	}
+
 	private static void addClassFileTransformer(
 			Instrumentation instrumentation, ClassFileTransformer clt) {
 		instrumentation.addTransformer(clt);
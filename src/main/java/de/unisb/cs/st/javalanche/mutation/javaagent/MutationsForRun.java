@@ -54,6 +54,12 @@ public class MutationsForRun {
 	 */
 	private List<Mutation> mutations;
 
+	/**
+	 * Names of the methods that contain mutations for this run, in the form
+	 * className.methodName.
+	 */
+	private Set<String> mutatedMethods;
+
 	/**
 	 * @return an instance that contains all mutations for IDs from a file
 	 *         specified at the command line.
@@ -200,4 +206,25 @@ public class MutationsForRun {
 		return false;
 	}
 
+	/**
+	 * Checks whether the given method contains a mutation for this run.
+	 * 
+	 * @param className
+	 *            the name of the class that contains the method
+	 * @param methodName
+	 *            the name of the method including its descriptor
+	 * @return true, if the method contains a mutation for this run
+	 */
+	public synchronized boolean containsMethod(String className,
+			String methodName) {
+		if (mutatedMethods == null) {
+			mutatedMethods = new HashSet<String>();
+			for (Mutation m : mutations) {
+				mutatedMethods.add(m.getClassName() + "." + m.getMethodName());
+			}
+		}
+		return mutatedMethods.contains(className.replace('/', '.') + "."
+				+ methodName);
+	}
+
 }
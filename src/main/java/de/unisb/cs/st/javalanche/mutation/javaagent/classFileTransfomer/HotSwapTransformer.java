@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.removeSystemExit.RemoveSystemExitTransformer;
+import de.unisb.cs.st.javalanche.mutation.javaagent.HotSwapper;
+import de.unisb.cs.st.javalanche.mutation.javaagent.MutationsForRun;
+import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.MutationDecision;
+import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.MutationDecisionFactory;
+import de.unisb.cs.st.javalanche.mutation.util.AsmUtil;
+
+/**
+ * Transformer for the hotswap mode. Classes are loaded without guards for the
+ * mutations, and the {@link HotSwapper} keeps their bytecode so that they can
+ * be redefined with a mutation later.
+ * 
+ */
+public class HotSwapTransformer implements ClassFileTransformer {
+
+	private static Logger logger = Logger.getLogger(HotSwapTransformer.class);
+
+	private static RemoveSystemExitTransformer systemExitTransformer = new RemoveSystemExitTransformer();
+
+	private static MutationDecision mutationDecision = MutationDecisionFactory
+			.getStandardMutationDecision(MutationsForRun
+					.getFromDefaultLocation().getClassNames());
+
+	public byte[] transform(ClassLoader loader, String className,
+			Class<?> classBeingRedefined, ProtectionDomain protectionDomain,
+			byte[] classfileBuffer) throws IllegalClassFormatException {
+		// Redefinitions are issued by the HotSwapper with the final bytecode.
+		if (className != null && classBeingRedefined == null) {
+			try {
+				String classNameWithDots = className.replace('/', '.');
+				if (mutationDecision.shouldBeHandled(classNameWithDots)) {
+					logger.debug("Removing calls to System.exit() from class: "
+							+ classNameWithDots);
+					classfileBuffer = systemExitTransformer
+							.transformBytecode(classfileBuffer);
+					AsmUtil.checkClass(classfileBuffer);
+					logger.info("Transforming: " + classNameWithDots);
+					return HotSwapper.classLoaded(classNameWithDots, loader,
+							classfileBuffer);
+				}
+			} catch (Throwable t) {
+				logger.fatal(
+						"Transformation of class " + className + " failed", t);
+				t.printStackTrace();
+				System.exit(0);
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.results.MethodHashes;
+import de.unisb.cs.st.javalanche.mutation.util.BytecodeHash;
+
+/**
+ * Records the hashes of the methods of all project classes, including the
+ * tests. The hashes are written when the JVM shuts down.
+ */
+public class MethodHashTransformer implements ClassFileTransformer {
+
+	private static Logger logger = Logger
+			.getLogger(MethodHashTransformer.class);
+
+	private final String projectPrefix = ConfigurationLocator
+			.getJavalancheConfiguration().getProjectPrefix();
+
+	private final MethodHashes methodHashes = new MethodHashes();
+
+	public MethodHashTransformer() {
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				methodHashes.write();
+			}
+		});
+	}
+
+	public byte[] transform(ClassLoader loader, String className,
+			Class<?> classBeingRedefined, ProtectionDomain protectionDomain,
+			byte[] classfileBuffer) throws IllegalClassFormatException {
+		if (className != null) {
+			String classNameWithDots = className.replace('/', '.');
+			if (classNameWithDots.startsWith(projectPrefix)) {
+				try {
+					// the class hash does not change when only lines move
+					methodHashes.addClass(classNameWithDots, BytecodeHash
+							.hashMethods(classfileBuffer), BytecodeHash
+							.hashClass(classfileBuffer));
+				} catch (Throwable t) {
+					logger.warn("Could not compute hashes for class "
+							+ classNameWithDots, t);
+				}
+			}
+		}
+		return classfileBuffer;
+	}
+}
@@ -28,11 +28,13 @@ import java.util.Collection;
 import org.apache.log4j.Logger;
 
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.BytecodeTransformer;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.MethodSizeReport;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.MutationTransformer;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.removeSystemExit.RemoveSystemExitTransformer;
 import de.unisb.cs.st.javalanche.mutation.javaagent.MutationsForRun;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.MutationDecision;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.MutationDecisionFactory;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 import de.unisb.cs.st.javalanche.mutation.util.AsmUtil;
 
 /**
@@ -106,6 +108,11 @@ public class MutationFileTransformer implements ClassFileTransformer {
 					}
 					logger.debug("Class transformed: " + classNameWithDots);
 					AsmUtil.checkClass(transformedBytecode);
+					if (ConfigurationLocator.getJavalancheConfiguration()
+							.useOutOfLineMutations()) {
+						MethodSizeReport.report(classNameWithDots,
+								classfileBuffer, transformedBytecode);
+					}
 					return transformedBytecode;
 				}
 			} catch (Throwable t) {
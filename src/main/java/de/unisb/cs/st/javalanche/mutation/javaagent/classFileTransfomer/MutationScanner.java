@@ -31,6 +31,7 @@ import org.objectweb.asm.util.TraceClassVisitor;
 
 import de.unisb.cs.st.ds.util.Util;
 import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.MutationsCollectorClassAdapter;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.TrivialEquivalenceDetector;
 import de.unisb.cs.st.javalanche.mutation.javaagent.MutationPreMain;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.MutationDecision;
 import de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer.mutationDecision.MutationDecisionFactory;
@@ -39,7 +40,9 @@ import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 import de.unisb.cs.st.javalanche.mutation.properties.DebugProperties;
 import de.unisb.cs.st.javalanche.mutation.results.MutationCoverageFile;
 import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+import de.unisb.cs.st.javalanche.mutation.run.task.ChangedMutations;
 import de.unisb.cs.st.javalanche.mutation.util.AsmUtil;
+import de.unisb.cs.st.javalanche.mutation.util.BytecodeHash;
 
 public class MutationScanner implements ClassFileTransformer {
 
@@ -49,6 +52,8 @@ public class MutationScanner implements ClassFileTransformer {
 
 	private MutationDecision md = MutationDecisionFactory.SCAN_DECISION;
 
+	private TrivialEquivalenceDetector equivalenceDetector = new TrivialEquivalenceDetector();
+
 
 
 	public MutationScanner() {
@@ -108,6 +113,8 @@ public class MutationScanner implements ClassFileTransformer {
 				String classNameWithDots = className.replace('/', '.');
 				logger.debug(classNameWithDots);
 				if (md.shouldBeHandled(classNameWithDots)) {
+					boolean changed = needsScan(classNameWithDots,
+							classfileBuffer);
 
 					ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
 
@@ -118,6 +125,7 @@ public class MutationScanner implements ClassFileTransformer {
 								MutationPreMain.sysout));
 					}
 					cv = new MutationsCollectorClassAdapter(cv, mpc);
+					byte[] originalBytecode = classfileBuffer;
 					ClassReader cr = new ClassReader(classfileBuffer);
 					// cr.accept(cv, ClassReader.EXPAND_FRAMES);
 					cr.accept(cv, ClassReader.SKIP_FRAMES);
@@ -131,7 +139,18 @@ public class MutationScanner implements ClassFileTransformer {
 							+ " mutation possibilities found for class "
 							+ className);
 
-					mpc.updateDB();
+					if (changed) {
+						mpc.updateDB();
+						if (ConfigurationLocator.getJavalancheConfiguration()
+								.useEquivalenceDetection()) {
+							equivalenceDetector.detect(classNameWithDots,
+									originalBytecode);
+						}
+					} else {
+						// the mutations are already stored, only the coverage
+						// calls are needed
+						logger.debug("Class did not change " + className);
+					}
 					mpc.clear();
 
 				} else {
@@ -150,6 +169,22 @@ public class MutationScanner implements ClassFileTransformer {
 		return classfileBuffer;
 	}
 
+	/**
+	 * Checks if the mutations of a class need to be stored. In incremental
+	 * mode, classes that already have mutations are only stored again when
+	 * one of their methods changed. Unchanged classes are still instrumented,
+	 * so that the coverage of their mutations is recorded for the current
+	 * tests.
+	 */
+	private boolean needsScan(String classNameWithDots, byte[] classfileBuffer) {
+		if (!ConfigurationLocator.getJavalancheConfiguration()
+				.useIncrementalMode()) {
+			return true;
+		}
+		return ChangedMutations.prepareRescan(classNameWithDots, BytecodeHash
+				.hashMethods(classfileBuffer));
+	}
+
 	// private void computeBytecodeInfo(byte[] classfileBuffer) {
 	// ClassReader cr = new ClassReader(classfileBuffer);
 	// ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
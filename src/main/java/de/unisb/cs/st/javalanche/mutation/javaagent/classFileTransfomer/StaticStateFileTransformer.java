@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.javaagent.classFileTransfomer;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.staticState.StaticStateTransformer;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.runtime.StaticState;
+
+/**
+ * Instruments the project classes so that their static state can be recorded
+ * and restored by {@link StaticState}.
+ */
+public class StaticStateFileTransformer implements ClassFileTransformer {
+
+	private static Logger logger = Logger
+			.getLogger(StaticStateFileTransformer.class);
+
+	private final String projectPrefix = ConfigurationLocator
+			.getJavalancheConfiguration().getProjectPrefix();
+
+	private final StaticStateTransformer staticStateTransformer = new StaticStateTransformer(
+			projectPrefix);
+
+	public byte[] transform(ClassLoader loader, String className,
+			Class<?> classBeingRedefined, ProtectionDomain protectionDomain,
+			byte[] classfileBuffer) throws IllegalClassFormatException {
+		if (className != null && classBeingRedefined == null) {
+			String classNameWithDots = className.replace('/', '.');
+			if (classNameWithDots.startsWith(projectPrefix)) {
+				try {
+					logger.debug("Recording static state of class: "
+							+ classNameWithDots);
+					return staticStateTransformer
+							.transformBytecode(classfileBuffer);
+				} catch (Throwable t) {
+					logger.warn("Could not instrument class "
+							+ classNameWithDots + " for static state reset", t);
+				}
+			}
+		}
+		return classfileBuffer;
+	}
+}
@@ -50,7 +50,10 @@ public class MutationDecisionFactory {
 				return false;
 			}
 			if (classNameWithDots.startsWith(configuration.getProjectPrefix())) {
-				if (QueryManager.hasMutationsforClass(classNameWithDots)) {
+				// In incremental mode the scanner decides whether a class
+				// changed since it was scanned (see ChangedMutations).
+				if (!configuration.useIncrementalMode()
+						&& QueryManager.hasMutationsforClass(classNameWithDots)) {
 					return false;
 				}
 				return true;
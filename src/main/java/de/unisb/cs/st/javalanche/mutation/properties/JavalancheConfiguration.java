@@ -207,4 +207,133 @@ public interface JavalancheConfiguration {
 	 */
 	boolean useJunit3Runner();
 
+	/**
+	 * Returns true, when the inserted mutation guards should read the id of
+	 * the active mutation from a static field instead of querying a system
+	 * property for every mutation that is executed.
+	 * 
+	 * @return true, when the mutation guards should use a static field.
+	 */
+	boolean useStaticGuards();
+
+	/**
+	 * Returns true, when instructions that carry several mutations should
+	 * select the enabled mutation with a single switch instruction instead of
+	 * checking each mutation in turn. This setting only has an effect when
+	 * static guards are used.
+	 * 
+	 * @return true, when a switch instruction should be used to select between several mutations.
+	 */
+	boolean useSwitchDispatch();
+
+	/**
+	 * Returns true, when mutated code blocks should be moved into separate
+	 * static methods, so that the mutated methods only contain a call to these
+	 * methods.
+	 * 
+	 * @return true, when mutated code blocks should be moved into separate methods.
+	 */
+	boolean useOutOfLineMutations();
+
+	/**
+	 * Returns the number of workers that test mutations concurrently in one
+	 * virtual machine. Each worker loads the project and the tests in its own
+	 * class loader. Values greater than 1 require static guards.
+	 * 
+	 * @return the number of workers that test mutations concurrently.
+	 */
+	int getParallelWorkers();
+
+	/**
+	 * Returns the number of worker virtual machines that are started by the
+	 * mutation supervisor.
+	 * 
+	 * @return the number of worker virtual machines started by the supervisor.
+	 */
+	int getWorkerProcesses();
+
+	/**
+	 * Returns true, when the tests for a mutation should be run in the order
+	 * of their expected kill probability per unit of time. This is most useful
+	 * together with stopping after the first failing test.
+	 * 
+	 * @return true, when the tests should be run in the order of their expected kill probability per unit of time.
+	 */
+	boolean usePrioritizedTestOrder();
+
+	/**
+	 * Returns the multiple of the baseline duration of a test that is used as
+	 * its timeout when a mutation is tested. The baseline duration is recorded
+	 * during the scan and the cold run. A value of 0 disables adaptive
+	 * timeouts, and the global timeout is used for every test.
+	 * 
+	 * @return the multiple of the baseline duration used as test timeout, or 0 if adaptive timeouts are disabled
+	 */
+	int getAdaptiveTimeoutFactor();
+
+	/**
+	 * Returns the time in milliseconds that is added to the adaptive timeout
+	 * of each test. This prevents spurious timeouts for very short tests.
+	 * 
+	 * @return the minimum adaptive timeout in milliseconds
+	 */
+	int getAdaptiveTimeoutFloor();
+
+	/**
+	 * Determines whether backward branches and method entries of methods that
+	 * contain mutations are instrumented with a budget counter. A test that
+	 * exceeds its budget while a mutation is active is aborted in the running
+	 * JVM, and the mutation is recorded as causing a timeout.
+	 * 
+	 * @return true, if loop budget instrumentation should be used
+	 */
+	boolean useLoopBudget();
+
+	/**
+	 * Returns the multiple of the counter value of the unmutated run of a test
+	 * that is used as its loop budget.
+	 * 
+	 * @return the multiple of the baseline counter value used as loop budget
+	 */
+	int getLoopBudgetFactor();
+
+	/**
+	 * Determines whether the static fields of project classes are reset after
+	 * each mutation. The values are recorded after the cold run. Classes that
+	 * were initialized while a mutation was active get their static
+	 * initializer run again, when this is safe.
+	 * 
+	 * @return true, if static state should be reset after each mutation
+	 */
+	boolean useStaticStateReset();
+
+	/**
+	 * Determines whether results of previous runs are reused. When enabled,
+	 * the scan records hashes of the bytecode of all methods and tests, and
+	 * only mutations in changed methods or covered by changed tests are tested
+	 * again.
+	 * 
+	 * @return true, if results of previous runs should be reused
+	 */
+	boolean useIncrementalMode();
+
+	/**
+	 * Determines whether the scan detects mutations whose mutated method has
+	 * the same bytecode as the original method or as the method of another
+	 * mutation. These mutations are marked in the database and are not
+	 * included in mutation tasks.
+	 * 
+	 * @return true, if trivially equivalent mutations should be detected
+	 */
+	boolean useEquivalenceDetection();
+
+	/**
+	 * Returns the maximum number of mutations that are enabled together. The
+	 * mutations of a group are covered by disjoint sets of tests. Each test is
+	 * attributed to the mutation it covers. A value of 1 disables grouping.
+	 * Groups are only used in the mutation run mode without static guards.
+	 * 
+	 * @return the maximum number of mutations that are enabled together
+	 */
+	int getMutationGroupSize();
 }
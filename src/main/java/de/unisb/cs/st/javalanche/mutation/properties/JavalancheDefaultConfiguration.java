@@ -143,4 +143,73 @@ public class JavalancheDefaultConfiguration implements JavalancheConfiguration {
 		return false;
 	}
 
+	@Override
+	public boolean useStaticGuards() {
+		return false;
+	}
+
+	@Override
+	public boolean useSwitchDispatch() {
+		return false;
+	}
+
+	@Override
+	public boolean useOutOfLineMutations() {
+		return false;
+	}
+
+	@Override
+	public int getParallelWorkers() {
+		return 1;
+	}
+
+	@Override
+	public int getWorkerProcesses() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	@Override
+	public boolean usePrioritizedTestOrder() {
+		return false;
+	}
+
+	@Override
+	public int getAdaptiveTimeoutFactor() {
+		return 0;
+	}
+
+	@Override
+	public int getAdaptiveTimeoutFloor() {
+		return 1000;
+	}
+
+	@Override
+	public boolean useLoopBudget() {
+		return false;
+	}
+
+	@Override
+	public int getLoopBudgetFactor() {
+		return 100;
+	}
+
+	@Override
+	public boolean useStaticStateReset() {
+		return false;
+	}
+
+	@Override
+	public boolean useIncrementalMode() {
+		return false;
+	}
+
+	@Override
+	public boolean useEquivalenceDetection() {
+		return false;
+	}
+
+	@Override
+	public int getMutationGroupSize() {
+		return 1;
+	}
 }
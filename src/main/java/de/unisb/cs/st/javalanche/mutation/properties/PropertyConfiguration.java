@@ -102,7 +102,7 @@ public class PropertyConfiguration extends JavalancheDefaultConfiguration {
 	 */
 	public static final String PROJECT_SOURCE_DIR_KEY = "javalanche.project.source.dir";
 
-	private static final String RUN_MODE_KEY = "javalanche.run.mode";
+	public static final String RUN_MODE_KEY = "javalanche.run.mode";
 
 	/**
 	 * The save interval in which the mutation results are written to the
@@ -135,6 +135,46 @@ public class PropertyConfiguration extends JavalancheDefaultConfiguration {
 
 	public static final String RUN_ALL_TESTS_FOR_MUTATION_KEY = "javalanche.run.all.tests.for.mutation";
 
+	/**
+	 * Controls whether mutated code checks a static field instead of a system
+	 * property to decide if a mutation is enabled.
+	 */
+	public static final String USE_STATIC_GUARDS_KEY = "javalanche.use.static.guards";
+
+	/**
+	 * Controls whether a switch instruction is used to select between several
+	 * mutations of one instruction.
+	 */
+	public static final String USE_SWITCH_DISPATCH_KEY = "javalanche.use.switch.dispatch";
+
+	/**
+	 * Controls whether mutated code blocks are moved into separate static
+	 * methods.
+	 */
+	public static final String USE_OUT_OF_LINE_MUTATIONS_KEY = "javalanche.use.out.of.line.mutations";
+
+	public static final String PARALLEL_WORKERS_KEY = "javalanche.parallel.workers";
+
+	public static final String WORKER_PROCESSES_KEY = "javalanche.worker.processes";
+
+	public static final String USE_PRIORITIZED_TEST_ORDER_KEY = "javalanche.use.prioritized.test.order";
+
+	public static final String ADAPTIVE_TIMEOUT_FACTOR_KEY = "javalanche.adaptive.timeout.factor";
+
+	public static final String ADAPTIVE_TIMEOUT_FLOOR_KEY = "javalanche.adaptive.timeout.floor";
+
+	public static final String USE_LOOP_BUDGET_KEY = "javalanche.use.loop.budget";
+
+	public static final String LOOP_BUDGET_FACTOR_KEY = "javalanche.loop.budget.factor";
+
+	public static final String USE_STATIC_STATE_RESET_KEY = "javalanche.use.static.state.reset";
+
+	public static final String USE_INCREMENTAL_MODE_KEY = "javalanche.incremental";
+
+	public static final String USE_EQUIVALENCE_DETECTION_KEY = "javalanche.use.equivalence.detection";
+
+	public static final String MUTATION_GROUP_SIZE_KEY = "javalanche.mutation.group.size";
+
 	static {
 
 		logger.info("Loaded log4j configuration from "
@@ -220,6 +260,62 @@ public class PropertyConfiguration extends JavalancheDefaultConfiguration {
 
 	private boolean useJunit3Runner;
 
+	private boolean useStaticGuardsCalled;
+
+	private boolean useStaticGuards;
+
+	private boolean useSwitchDispatchCalled;
+
+	private boolean useSwitchDispatch;
+
+	private boolean useOutOfLineMutationsCalled;
+
+	private boolean useOutOfLineMutations;
+
+	private boolean parallelWorkersCalled;
+
+	private int parallelWorkers;
+
+	private boolean workerProcessesCalled;
+
+	private int workerProcesses;
+
+	private boolean usePrioritizedTestOrderCalled;
+
+	private boolean usePrioritizedTestOrder;
+
+	private boolean adaptiveTimeoutFactorCalled;
+
+	private int adaptiveTimeoutFactor;
+
+	private boolean adaptiveTimeoutFloorCalled;
+
+	private int adaptiveTimeoutFloor;
+
+	private boolean useLoopBudgetCalled;
+
+	private boolean useLoopBudget;
+
+	private boolean loopBudgetFactorCalled;
+
+	private int loopBudgetFactor;
+
+	private boolean useStaticStateResetCalled;
+
+	private boolean useStaticStateReset;
+
+	private boolean useIncrementalModeCalled;
+
+	private boolean useIncrementalMode;
+
+	private boolean useEquivalenceDetectionCalled;
+
+	private boolean useEquivalenceDetection;
+
+	private boolean mutationGroupSizeCalled;
+
+	private int mutationGroupSize;
+
 	@Override
 	public boolean enableMutationType(MutationType t) {
 		if (!enableMutationCalled) {
@@ -441,4 +537,144 @@ public class PropertyConfiguration extends JavalancheDefaultConfiguration {
 		}
 		return useJunit3Runner;
 	}
+
+	@Override
+	public boolean useStaticGuards() {
+		if (!useStaticGuardsCalled) {
+			useStaticGuardsCalled = true;
+			useStaticGuards = getPropertyOrDefault(USE_STATIC_GUARDS_KEY,
+					super.useStaticGuards());
+		}
+		return useStaticGuards;
+	}
+
+	@Override
+	public boolean useSwitchDispatch() {
+		if (!useSwitchDispatchCalled) {
+			useSwitchDispatchCalled = true;
+			useSwitchDispatch = getPropertyOrDefault(USE_SWITCH_DISPATCH_KEY,
+					super.useSwitchDispatch());
+		}
+		return useSwitchDispatch;
+	}
+
+	@Override
+	public boolean useOutOfLineMutations() {
+		if (!useOutOfLineMutationsCalled) {
+			useOutOfLineMutationsCalled = true;
+			useOutOfLineMutations = getPropertyOrDefault(USE_OUT_OF_LINE_MUTATIONS_KEY,
+					super.useOutOfLineMutations());
+		}
+		return useOutOfLineMutations;
+	}
+
+	@Override
+	public int getParallelWorkers() {
+		if (!parallelWorkersCalled) {
+			parallelWorkersCalled = true;
+			parallelWorkers = getPropertyOrDefault(PARALLEL_WORKERS_KEY,
+					super.getParallelWorkers());
+		}
+		return parallelWorkers;
+	}
+
+	@Override
+	public int getWorkerProcesses() {
+		if (!workerProcessesCalled) {
+			workerProcessesCalled = true;
+			workerProcesses = getPropertyOrDefault(WORKER_PROCESSES_KEY,
+					super.getWorkerProcesses());
+		}
+		return workerProcesses;
+	}
+
+	@Override
+	public boolean usePrioritizedTestOrder() {
+		if (!usePrioritizedTestOrderCalled) {
+			usePrioritizedTestOrderCalled = true;
+			usePrioritizedTestOrder = getPropertyOrDefault(USE_PRIORITIZED_TEST_ORDER_KEY,
+					super.usePrioritizedTestOrder());
+		}
+		return usePrioritizedTestOrder;
+	}
+
+	@Override
+	public int getAdaptiveTimeoutFactor() {
+		if (!adaptiveTimeoutFactorCalled) {
+			adaptiveTimeoutFactorCalled = true;
+			adaptiveTimeoutFactor = getPropertyOrDefault(ADAPTIVE_TIMEOUT_FACTOR_KEY,
+					super.getAdaptiveTimeoutFactor());
+		}
+		return adaptiveTimeoutFactor;
+	}
+
+	@Override
+	public int getAdaptiveTimeoutFloor() {
+		if (!adaptiveTimeoutFloorCalled) {
+			adaptiveTimeoutFloorCalled = true;
+			adaptiveTimeoutFloor = getPropertyOrDefault(ADAPTIVE_TIMEOUT_FLOOR_KEY,
+					super.getAdaptiveTimeoutFloor());
+		}
+		return adaptiveTimeoutFloor;
+	}
+
+	@Override
+	public boolean useLoopBudget() {
+		if (!useLoopBudgetCalled) {
+			useLoopBudgetCalled = true;
+			useLoopBudget = getPropertyOrDefault(USE_LOOP_BUDGET_KEY,
+					super.useLoopBudget());
+		}
+		return useLoopBudget;
+	}
+
+	@Override
+	public int getLoopBudgetFactor() {
+		if (!loopBudgetFactorCalled) {
+			loopBudgetFactorCalled = true;
+			loopBudgetFactor = getPropertyOrDefault(LOOP_BUDGET_FACTOR_KEY,
+					super.getLoopBudgetFactor());
+		}
+		return loopBudgetFactor;
+	}
+
+	@Override
+	public boolean useStaticStateReset() {
+		if (!useStaticStateResetCalled) {
+			useStaticStateResetCalled = true;
+			useStaticStateReset = getPropertyOrDefault(USE_STATIC_STATE_RESET_KEY,
+					super.useStaticStateReset());
+		}
+		return useStaticStateReset;
+	}
+
+	@Override
+	public boolean useIncrementalMode() {
+		if (!useIncrementalModeCalled) {
+			useIncrementalModeCalled = true;
+			useIncrementalMode = getPropertyOrDefault(USE_INCREMENTAL_MODE_KEY,
+					super.useIncrementalMode());
+		}
+		return useIncrementalMode;
+	}
+
+	@Override
+	public boolean useEquivalenceDetection() {
+		if (!useEquivalenceDetectionCalled) {
+			useEquivalenceDetectionCalled = true;
+			useEquivalenceDetection = getPropertyOrDefault(USE_EQUIVALENCE_DETECTION_KEY,
+					super.useEquivalenceDetection());
+		}
+		return useEquivalenceDetection;
+	}
+
+	@Override
+	public int getMutationGroupSize() {
+		if (!mutationGroupSizeCalled) {
+			mutationGroupSizeCalled = true;
+			mutationGroupSize = getPropertyOrDefault(MUTATION_GROUP_SIZE_KEY,
+					super.getMutationGroupSize());
+		}
+		return mutationGroupSize;
+	}
 }
@@ -22,7 +22,9 @@ public enum RunMode {
 	SCAN("scan"), MUTATION_TEST("mutation"), CHECK_TESTS("check-tests"), TEST_PERMUTED(
 			"check-tests-permuted"), MUTATION_TEST_INVARIANT(
 			"mutation-invariant"), MUTATION_TEST_COVERAGE("mutation-coverage"), CREATE_COVERAGE_MULT(
-			"create-coverage-mult"), OFF("off"), SCAN_PROJECT("scan-project");
+			"create-coverage-mult"), OFF("off"), SCAN_PROJECT("scan-project"), MUTATION_TEST_HOTSWAP(
+			"mutation-hotswap"), MUTATION_SUPERVISOR("mutation-supervisor"), MUTATION_TEST_WEAK(
+			"mutation-weak");
 
 	private String key;
 
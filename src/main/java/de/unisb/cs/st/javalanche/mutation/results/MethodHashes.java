@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.results;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.ds.util.io.SerializeIo;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.util.BytecodeHash;
+
+/**
+ * Stores the hashes of the methods and classes of a project, which are
+ * recorded during the scan. They are used to decide which results of
+ * previous runs can be reused.
+ */
+public class MethodHashes implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static Logger logger = Logger.getLogger(MethodHashes.class);
+
+	private static final File HASH_FILE = new File(ConfigurationLocator
+			.getJavalancheConfiguration().getOutputDir(), "method-hashes.ser");
+
+	/**
+	 * Maps className.methodName to the hash of the method.
+	 */
+	private final Map<String, String> methodHashes = new HashMap<String, String>();
+
+	/**
+	 * Maps class names to the hash of the class.
+	 */
+	private final Map<String, String> classHashes = new HashMap<String, String>();
+
+	/**
+	 * Adds the hashes of the methods of a class.
+	 * 
+	 * @param className
+	 *            the name of the class
+	 * @param hashes
+	 *            a map from method names including their descriptor to hashes
+	 */
+	public void addClass(String className, Map<String, String> hashes) {
+		addClass(className, hashes, BytecodeHash.hashClass(hashes));
+	}
+
+	/**
+	 * Adds the hashes of the methods of a class and the hash of the class.
+	 * 
+	 * @param className
+	 *            the name of the class
+	 * @param hashes
+	 *            a map from method names including their descriptor to hashes
+	 * @param classHash
+	 *            the hash of the class
+	 */
+	public synchronized void addClass(String className,
+			Map<String, String> hashes, String classHash) {
+		String classNameWithDots = className.replace('/', '.');
+		for (Map.Entry<String, String> entry : hashes.entrySet()) {
+			methodHashes.put(classNameWithDots + "." + entry.getKey(),
+					entry.getValue());
+		}
+		classHashes.put(classNameWithDots, classHash);
+	}
+
+	/**
+	 * Returns the hash of the method that contains the given mutation.
+	 * 
+	 * @param mutation
+	 *            the mutation to get the method hash for
+	 * @return the hash of the method, or null if the method is not known
+	 */
+	public synchronized String getMethodHash(Mutation mutation) {
+		return methodHashes.get(mutation.getClassName() + "."
+				+ mutation.getMethodName());
+	}
+
+	/**
+	 * Returns true if hashes were recorded for the given class.
+	 * 
+	 * @param className
+	 *            the name of the class, in the form 'org.example.Foo'
+	 * @return true, if hashes were recorded for the class
+	 */
+	public synchronized boolean hasClass(String className) {
+		return classHashes.containsKey(className);
+	}
+
+	/**
+	 * Returns a combined hash for the given tests, which changes when a test
+	 * is added or removed, or when the class of one of the tests changes.
+	 * 
+	 * @param testNames
+	 *            the names of the tests, in the form className.methodName
+	 * @return the hash of the tests
+	 */
+	public synchronized String getTestsHash(Collection<String> testNames) {
+		SortedSet<String> sorted = new TreeSet<String>(testNames);
+		StringBuilder sb = new StringBuilder();
+		for (String testName : sorted) {
+			int index = testName.lastIndexOf('.');
+			String className = index > 0 ? testName.substring(0, index)
+					: testName;
+			sb.append(testName).append('=').append(classHashes.get(className))
+					.append('\n');
+		}
+		return BytecodeHash.hash(sb.toString());
+	}
+
+	/**
+	 * Writes the hashes to the default location. Hashes from an earlier scan
+	 * are kept for classes that were not loaded during this scan.
+	 */
+	public synchronized void write() {
+		MethodHashes merged = read();
+		merged.methodHashes.putAll(methodHashes);
+		merged.classHashes.putAll(classHashes);
+		SerializeIo.serializeToFile(merged, HASH_FILE);
+		logger.info("Saved hashes of " + merged.methodHashes.size()
+				+ " methods to " + HASH_FILE);
+	}
+
+	/**
+	 * Reads the hashes from the default location.
+	 * 
+	 * @return the hashes that were stored, or an empty instance if no hashes
+	 *         were stored yet
+	 */
+	public static MethodHashes read() {
+		if (HASH_FILE.exists()) {
+			MethodHashes hashes = SerializeIo.get(HASH_FILE);
+			return hashes;
+		}
+		return new MethodHashes();
+	}
+}
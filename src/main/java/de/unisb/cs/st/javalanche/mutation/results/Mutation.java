@@ -54,6 +54,12 @@ public class Mutation implements Serializable, Comparable<Mutation> {
 
 	private static final String PREFIX = "mutationId";
 
+	/**
+	 * Value of {@link #getEquivalentTo()} for mutations whose bytecode is the
+	 * same as the original bytecode.
+	 */
+	public static final long ORIGINAL_ID = 0;
+
 	static int mutionIdGenerator = 0;
 
 	public enum MutationType {
@@ -130,6 +136,19 @@ public class Mutation implements Serializable, Comparable<Mutation> {
 
 	private Long baseMutationId;
 
+	/**
+	 * Hash of the bytecode of the method that contains this mutation, used to
+	 * detect changes of the method in incremental mode.
+	 */
+	private String methodHash;
+
+	/**
+	 * Id of a mutation that results in the same bytecode, or
+	 * {@link #ORIGINAL_ID} if the mutated bytecode is the same as the original
+	 * bytecode. Null if no equivalence was detected.
+	 */
+	private Long equivalentTo;
+
 	/**
 	 * Default constructor needed by Hibernate.
 	 */
@@ -414,6 +433,39 @@ public class Mutation implements Serializable, Comparable<Mutation> {
 		return baseMutationId;
 	}
 
+	/**
+	 * @return the hash of the method that contains this mutation
+	 */
+	public String getMethodHash() {
+		return methodHash;
+	}
+
+	/**
+	 * @param methodHash
+	 *            the hash of the method that contains this mutation
+	 */
+	public void setMethodHash(String methodHash) {
+		this.methodHash = methodHash;
+	}
+
+	/**
+	 * @return the id of a mutation that results in the same bytecode,
+	 *         {@link #ORIGINAL_ID} if the bytecode is the same as the original
+	 *         bytecode, or null if no equivalence was detected
+	 */
+	public Long getEquivalentTo() {
+		return equivalentTo;
+	}
+
+	/**
+	 * @param equivalentTo
+	 *            the id of a mutation that results in the same bytecode, or
+	 *            {@link #ORIGINAL_ID}
+	 */
+	public void setEquivalentTo(Long equivalentTo) {
+		this.equivalentTo = equivalentTo;
+	}
+
 	/**
 	 * Copies the mutation but does not copy the additional info fields.
 	 * @param m the mutation to copy
@@ -18,25 +18,49 @@
  */
 package de.unisb.cs.st.javalanche.mutation.results;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
 import de.unisb.cs.st.ds.util.io.SerializeIo;
 import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 
+/**
+ * Stores which tests cover which mutation. All coverage data is kept in one
+ * binary file that is mapped into memory, so that several JVMs can share it
+ * without deserializing it.
+ * 
+ * The file starts with a header (magic number, version, number of tests,
+ * number of mutations, offset of the index), followed by the names of the
+ * tests. The index holds the mutation ids in ascending order, each followed
+ * by the offset of its entry. An entry either lists the test ids as
+ * delta-encoded variable length integers, or holds a bitmap of the test ids,
+ * whichever is smaller.
+ * 
+ * When coverage data is saved, the entries of mutations that were not
+ * covered by the current run are taken over from the existing file, so that
+ * a scan that does not instrument all classes keeps their coverage.
+ */
 public class MutationCoverageFile {
 
 	private static Logger logger = Logger.getLogger(MutationCoverageFile.class);
@@ -44,11 +68,24 @@ public class MutationCoverageFile {
 	private static final File COVERAGE_DIR = new File(ConfigurationLocator
 			.getJavalancheConfiguration().getOutputDir() + "/coverage-data/");
 
-	private static BiMap<String, Integer> idMap;
+	private static final File COVERAGE_FILE = new File(COVERAGE_DIR,
+			"coverage.dat");
 
-	private static Multimap<Long, Long> baseMutations = HashMultimap.create();
+	private static final int MAGIC = 0x4a4c4356;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 20;
 
-	private static final File FILE_MAP = new File(COVERAGE_DIR, "file-map.ser");
+	private static final int INDEX_ENTRY_SIZE = 12;
+
+	private static final byte ENCODING_LIST = 0;
+
+	private static final byte ENCODING_BITMAP = 1;
+
+	private static final int[] NO_TESTS = new int[0];
+
+	private static Multimap<Long, Long> baseMutations = HashMultimap.create();
 
 	private static final Set<String> EMPTY_SET = new HashSet<String>();
 
@@ -57,94 +94,398 @@ public class MutationCoverageFile {
 
 	private static Set<Long> coveredMutations = null;
 
-	public static void saveCoverageData(Map<Long, Set<String>> coverageData) {
+	private static MappedByteBuffer buffer;
+
+	private static String[] testNames;
+
+	public static void saveCoverageData(Map<Long, Set<String>> newCoverageData) {
 		COVERAGE_DIR.mkdirs();
+		Map<Long, Set<String>> coverageData = readCoverageData();
+		int previousEntries = coverageData.size();
+		coverageData.putAll(newCoverageData);
+		Set<Long> previousCovered = getCoveredMutations();
 		coveredMutations = new HashSet<Long>();
-		BiMap<String, Integer> allTests = getAllTests(coverageData.values());
-		SerializeIo.serializeToFile(allTests, FILE_MAP);
-
-		Set<Entry<Long, Set<String>>> entrySet = coverageData.entrySet();
-		for (Entry<Long, Set<String>> entry : entrySet) {
-			Set<Integer> testIDs = new HashSet<Integer>();
-			for (String testName : entry.getValue()) {
-				if (testName != null) {
-					testIDs.add(allTests.get(testName));
+		if (previousCovered != null) {
+			// derived mutations are added again for their base mutation
+			for (Long id : previousCovered) {
+				if (!coverageData.containsKey(id)
+						&& !baseMutations.containsValue(id)) {
+					coveredMutations.add(id);
 				}
 			}
-			Long id = entry.getKey();
-			if (testIDs.size() > 0) {
-				coveredMutations.add(id);
-				logger.debug("Adding covered mutation" + id);
-				Collection<Long> collection = baseMutations.get(id);
-				if (collection.size() > 0) {
-					logger.debug("Adding children of base mutation"
-							+ collection);
-					coveredMutations.addAll(collection);
+		}
+		List<String> allTests = getAllTests(coverageData.values());
+		Map<String, Integer> testIds = new HashMap<String, Integer>();
+		for (String test : allTests) {
+			testIds.put(test, testIds.size());
+		}
+		List<Long> ids = new ArrayList<Long>(coverageData.keySet());
+		Collections.sort(ids);
+		try {
+			ByteArrayOutputStream names = new ByteArrayOutputStream();
+			DataOutputStream namesOut = new DataOutputStream(names);
+			for (String test : allTests) {
+				namesOut.writeUTF(test);
+			}
+			int indexOffset = HEADER_SIZE + names.size();
+			int entriesOffset = indexOffset + ids.size() * INDEX_ENTRY_SIZE;
+			ByteArrayOutputStream index = new ByteArrayOutputStream();
+			DataOutputStream indexOut = new DataOutputStream(index);
+			ByteArrayOutputStream entries = new ByteArrayOutputStream();
+			for (Long id : ids) {
+				BitSet testIDs = new BitSet();
+				for (String testName : coverageData.get(id)) {
+					if (testName != null) {
+						testIDs.set(testIds.get(testName));
+					}
+				}
+				if (testIDs.cardinality() > 0) {
+					coveredMutations.add(id);
+					logger.debug("Adding covered mutation" + id);
+					Collection<Long> collection = baseMutations.get(id);
+					if (collection.size() > 0) {
+						logger.debug("Adding children of base mutation"
+								+ collection);
+						coveredMutations.addAll(collection);
+					}
 				}
+				indexOut.writeLong(id);
+				indexOut.writeInt(entriesOffset + entries.size());
+				writeEntry(entries, testIDs);
 			}
-			SerializeIo.serializeToFile(testIDs,
-					new File(COVERAGE_DIR, "" + id));
+			File tmp = new File(COVERAGE_DIR, COVERAGE_FILE.getName() + ".tmp");
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(
+					tmp));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(allTests.size());
+				out.writeInt(ids.size());
+				out.writeInt(indexOffset);
+				names.writeTo(out);
+				index.writeTo(out);
+				entries.writeTo(out);
+			} finally {
+				out.close();
+			}
+			COVERAGE_FILE.delete();
+			if (!tmp.renameTo(COVERAGE_FILE)) {
+				throw new IOException("Could not rename " + tmp + " to "
+						+ COVERAGE_FILE);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		synchronized (MutationCoverageFile.class) {
+			buffer = null;
+			testNames = null;
 		}
+		logger.info("Saved coverage of " + newCoverageData.size()
+				+ " mutations, kept " + (ids.size() - newCoverageData.size())
+				+ " of " + previousEntries + " previous entries");
 		logger.info("Saving Ids of Covered Mutations "
 				+ coveredMutations.size());
 		SerializeIo.serializeToFile(coveredMutations, COVERED_FILE);
 	}
 
-	public static Set<String> getCoverageData(Mutation m) {
-		if (m.getBaseMutationId() != null) {
-			return _getCoverageDataId(m.getBaseMutationId());
+	/**
+	 * Reads all entries of the existing coverage file. The test ids are
+	 * resolved to test names, because the ids change when the file is
+	 * written again.
+	 */
+	private static Map<Long, Set<String>> readCoverageData() {
+		Map<Long, Set<String>> result = new HashMap<Long, Set<String>>();
+		MappedByteBuffer buffer = getBuffer();
+		if (buffer == null) {
+			return result;
+		}
+		String[] names = getTestNames();
+		int indexOffset = buffer.getInt(16);
+		int size = buffer.getInt(12);
+		for (int i = 0; i < size; i++) {
+			long id = buffer.getLong(indexOffset + i * INDEX_ENTRY_SIZE);
+			Set<String> tests = new HashSet<String>();
+			for (int testId : getCoveredTestIds(id)) {
+				tests.add(names[testId]);
+			}
+			result.put(id, tests);
 		}
-		return _getCoverageDataId(m.getId());
+		return result;
 	}
 
-	private static Set<String> _getCoverageDataId(long id) {
-		if (idMap == null) {
-			idMap = SerializeIo.get(FILE_MAP);
+	/**
+	 * Writes the ids of the given tests either as list or as bitmap.
+	 */
+	private static void writeEntry(ByteArrayOutputStream out, BitSet testIDs) {
+		int listSize = 0;
+		int last = 0;
+		for (int i = testIDs.nextSetBit(0); i >= 0; i = testIDs
+				.nextSetBit(i + 1)) {
+			listSize += varIntSize(i - last);
+			last = i;
+		}
+		listSize += varIntSize(testIDs.cardinality());
+		int words = (testIDs.length() + 63) / 64;
+		if (listSize <= 1 + words * 8) {
+			out.write(ENCODING_LIST);
+			writeVarInt(out, testIDs.cardinality());
+			last = 0;
+			for (int i = testIDs.nextSetBit(0); i >= 0; i = testIDs
+					.nextSetBit(i + 1)) {
+				writeVarInt(out, i - last);
+				last = i;
+			}
+		} else {
+			out.write(ENCODING_BITMAP);
+			writeVarInt(out, words);
+			for (int w = 0; w < words; w++) {
+				long word = 0;
+				for (int bit = 0; bit < 64; bit++) {
+					if (testIDs.get(w * 64 + bit)) {
+						word |= 1L << bit;
+					}
+				}
+				for (int b = 0; b < 8; b++) {
+					out.write((int) (word >>> (8 * b)));
+				}
+			}
 		}
-		File f = new File(COVERAGE_DIR, "" + id);
-		if (!f.exists()) {
+	}
+
+	private static int varIntSize(int value) {
+		int size = 1;
+		while ((value & ~0x7f) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	public static Set<String> getCoverageData(Mutation m) {
+		int[] testIds = getCoveredTestIds(m);
+		if (testIds.length == 0) {
 			return EMPTY_SET;
 		}
-		BiMap<Integer, String> inverse = idMap.inverse();
-		Set<Integer> ids = SerializeIo.get(f);
+		String[] names = getTestNames();
 		Set<String> result = new HashSet<String>();
-		for (Integer i : ids) {
-			String string = inverse.get(i);
-			if (string == null) {
-				throw new RuntimeException("Got null for " + i + "\n" + idMap);
+		for (int testId : testIds) {
+			result.add(names[testId]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the ids of the tests that cover the given mutation. The names
+	 * of the tests can be looked up with {@link #getTestName(int)}.
+	 * 
+	 * @param m
+	 *            the mutation to get the tests for
+	 * @return the ids of the covering tests in ascending order
+	 */
+	public static int[] getCoveredTestIds(Mutation m) {
+		if (m.getBaseMutationId() != null) {
+			return getCoveredTestIds(m.getBaseMutationId());
+		}
+		return getCoveredTestIds(m.getId());
+	}
+
+	private static int[] getCoveredTestIds(long id) {
+		MappedByteBuffer buffer = getBuffer();
+		if (buffer == null) {
+			return NO_TESTS;
+		}
+		int offset = findEntry(buffer, id);
+		if (offset < 0) {
+			return NO_TESTS;
+		}
+		byte encoding = buffer.get(offset++);
+		int[] value = new int[1];
+		offset = readVarInt(buffer, offset, value);
+		if (encoding == ENCODING_LIST) {
+			int[] result = new int[value[0]];
+			int last = 0;
+			for (int i = 0; i < result.length; i++) {
+				offset = readVarInt(buffer, offset, value);
+				last += value[0];
+				result[i] = last;
+			}
+			return result;
+		}
+		int words = value[0];
+		int count = 0;
+		for (int w = 0; w < words; w++) {
+			count += Long.bitCount(readWord(buffer, offset + w * 8));
+		}
+		int[] result = new int[count];
+		int pos = 0;
+		for (int w = 0; w < words; w++) {
+			long word = readWord(buffer, offset + w * 8);
+			while (word != 0) {
+				int bit = Long.numberOfTrailingZeros(word);
+				result[pos++] = w * 64 + bit;
+				word &= word - 1;
 			}
-			result.add(string);
 		}
 		return result;
 	}
 
-	private static BiMap<String, Integer> getAllTests(
-			Collection<Set<String>> values) {
-		int key = 0;
-		BiMap<String, Integer> result = HashBiMap.create();
-		for (Set<String> tests : values) {
-			for (String test : tests) {
-				if (!result.containsKey(test)) {
-					result.put(test, key++);
+	private static long readWord(MappedByteBuffer buffer, int offset) {
+		long word = 0;
+		for (int b = 7; b >= 0; b--) {
+			word = (word << 8) | (buffer.get(offset + b) & 0xff);
+		}
+		return word;
+	}
+
+	private static int readVarInt(MappedByteBuffer buffer, int offset,
+			int[] value) {
+		int result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get(offset++);
+			result |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		value[0] = result;
+		return offset;
+	}
+
+	/**
+	 * Returns the offset of the entry for the given mutation, or -1 if there
+	 * is no entry.
+	 */
+	private static int findEntry(MappedByteBuffer buffer, long id) {
+		int indexOffset = buffer.getInt(16);
+		int low = 0;
+		int high = buffer.getInt(12) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int pos = indexOffset + mid * INDEX_ENTRY_SIZE;
+			long midId = buffer.getLong(pos);
+			if (midId < id) {
+				low = mid + 1;
+			} else if (midId > id) {
+				high = mid - 1;
+			} else {
+				return buffer.getInt(pos + 8);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the name of the test with the given id.
+	 * 
+	 * @param testId
+	 *            the id of the test as returned by
+	 *            {@link #getCoveredTestIds(Mutation)}
+	 * @return the name of the test
+	 */
+	public static String getTestName(int testId) {
+		return getTestNames()[testId];
+	}
+
+	/**
+	 * @return the number of tests in the coverage file
+	 */
+	public static int getNumberOfTests() {
+		MappedByteBuffer buffer = getBuffer();
+		return buffer == null ? 0 : buffer.getInt(8);
+	}
+
+	private static synchronized String[] getTestNames() {
+		if (testNames == null) {
+			MappedByteBuffer buffer = getBuffer();
+			int count = buffer == null ? 0 : buffer.getInt(8);
+			String[] names = new String[count];
+			int offset = HEADER_SIZE;
+			for (int i = 0; i < count; i++) {
+				int length = ((buffer.get(offset) & 0xff) << 8)
+						| (buffer.get(offset + 1) & 0xff);
+				byte[] bytes = new byte[length];
+				for (int j = 0; j < length; j++) {
+					bytes[j] = buffer.get(offset + 2 + j);
 				}
+				names[i] = decodeUTF(bytes);
+				offset += 2 + length;
 			}
+			testNames = names;
 		}
-		return result;
+		return testNames;
 	}
 
-	public static void reset() {
-		idMap = null;
-		coveredMutations = null;
+	/**
+	 * Decodes a string in the modified UTF-8 format of
+	 * {@link DataOutputStream#writeUTF(String)}.
+	 */
+	private static String decodeUTF(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length);
+		int i = 0;
+		while (i < bytes.length) {
+			int b = bytes[i] & 0xff;
+			if (b < 0x80) {
+				sb.append((char) b);
+				i++;
+			} else if ((b & 0xe0) == 0xc0) {
+				sb.append((char) (((b & 0x1f) << 6) | (bytes[i + 1] & 0x3f)));
+				i += 2;
+			} else {
+				sb.append((char) (((b & 0x0f) << 12)
+						| ((bytes[i + 1] & 0x3f) << 6) | (bytes[i + 2] & 0x3f)));
+				i += 3;
+			}
+		}
+		return sb.toString();
 	}
 
-	public static void copyCoverageData(long srcId, long destId) {
-		File src = new File(COVERAGE_DIR, "" + srcId);
-		File dest = new File(COVERAGE_DIR, "" + destId);
-		try {
-			FileUtils.copyFile(src, dest);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	private static synchronized MappedByteBuffer getBuffer() {
+		if (buffer == null && COVERAGE_FILE.exists()) {
+			try {
+				RandomAccessFile file = new RandomAccessFile(COVERAGE_FILE,
+						"r");
+				try {
+					FileChannel channel = file.getChannel();
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+							channel.size());
+				} finally {
+					file.close();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new RuntimeException("Not a coverage file: "
+						+ COVERAGE_FILE);
+			}
 		}
+		return buffer;
+	}
+
+	private static List<String> getAllTests(Collection<Set<String>> values) {
+		Set<String> result = new TreeSet<String>();
+		for (Set<String> tests : values) {
+			for (String test : tests) {
+				if (test != null) {
+					result.add(test);
+				}
+			}
+		}
+		return new ArrayList<String>(result);
+	}
+
+	public static synchronized void reset() {
+		buffer = null;
+		testNames = null;
+		coveredMutations = null;
 	}
 
 	public static long getNumberOfCoveredMutations() {
@@ -188,7 +529,10 @@ public class MutationCoverageFile {
 	}
 
 	public static void deleteCoverageData() {
+		COVERAGE_FILE.delete();
+		COVERED_FILE.delete();
 		COVERAGE_DIR.delete();
+		reset();
 	}
 
 	public static boolean isCovered(long id) {
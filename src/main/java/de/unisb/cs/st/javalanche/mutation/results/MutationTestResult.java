@@ -60,6 +60,18 @@ public class MutationTestResult implements Serializable {
 	 */
 	boolean touched;
 
+	/**
+	 * Combined hash of the tests that cover the mutation, used to detect
+	 * changes of these tests in incremental mode.
+	 */
+	private String testsHash;
+
+	/**
+	 * True if the mutation was covered in a weak mutation run, but never
+	 * changed a value. The tests were not run against the mutation.
+	 */
+	private boolean notInfected;
+
 	@OneToMany(cascade = CascadeType.ALL)
 	// , fetch = FetchType.EAGER)
 	@OrderBy("testCaseName")
@@ -303,6 +315,38 @@ public class MutationTestResult implements Serializable {
 		this.touched = touched;
 	}
 
+	/**
+	 * @return the combined hash of the tests that cover the mutation
+	 */
+	public String getTestsHash() {
+		return testsHash;
+	}
+
+	/**
+	 * @param testsHash
+	 *            the combined hash of the tests that cover the mutation
+	 */
+	public void setTestsHash(String testsHash) {
+		this.testsHash = testsHash;
+	}
+
+	/**
+	 * @return true if the mutation was covered in a weak mutation run, but
+	 *         never changed a value
+	 */
+	public boolean isNotInfected() {
+		return notInfected;
+	}
+
+	/**
+	 * @param notInfected
+	 *            true if the mutation was covered in a weak mutation run, but
+	 *            never changed a value
+	 */
+	public void setNotInfected(boolean notInfected) {
+		this.notInfected = notInfected;
+	}
+
 	// /**
 	// * @return the differentViolatedInvariants
 	// */
@@ -52,6 +52,17 @@ public class MutationManager {
 		mutationsForRun = MutationsForRun.getFromDefaultLocation();
 	}
 
+	/**
+	 * Creates a manager for the given mutations. Subclasses may pass null
+	 * when they decide on their own which mutations are applied.
+	 * 
+	 * @param mutationsForRun
+	 *            the mutations that are applied
+	 */
+	protected MutationManager(MutationsForRun mutationsForRun) {
+		this.mutationsForRun = mutationsForRun;
+	}
+
 	public boolean shouldApplyMutation(Mutation mutation) {
 		boolean result = false;
 		if (mutation == null) {
@@ -82,6 +93,20 @@ public class MutationManager {
 		return result;
 	}
 
+	/**
+	 * Checks whether mutations may be applied to the given method.
+	 * 
+	 * @param className
+	 *            the name of the class that contains the method
+	 * @param methodName
+	 *            the name of the method including its descriptor
+	 * @return true, if mutations may be applied to the method
+	 */
+	public boolean hasMutationsInMethod(String className, String methodName) {
+		return applyAllMutation
+				|| mutationsForRun.containsMethod(className, methodName);
+	}
+
 	public void reportAppliedMutations(Mutation... mutations) {
 		for (Mutation mutation : mutations) {
 			Mutation mutationFromDb = QueryManager.getMutationOrNull(mutation);
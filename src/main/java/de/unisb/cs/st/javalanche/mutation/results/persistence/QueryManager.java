@@ -605,6 +605,7 @@ public class QueryManager {
 				+ " WHERE "
 				// +"NOT m.classInit AND"
 				+ " m.mutationResult_id IS NULL "
+				+ " AND m.equivalentTo IS NULL"
 				+ " AND m.mutationType != 0"
 				+ " AND m.className LIKE '"
 				+ ConfigurationLocator.getJavalancheConfiguration()
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.run.task;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.results.MethodHashes;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.results.MutationCoverageFile;
+import de.unisb.cs.st.javalanche.mutation.results.MutationTestResult;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.HibernateUtil;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+
+/**
+ * Decides which results of previous runs are still valid in incremental mode.
+ * A result is kept when neither the method of the mutation nor one of the
+ * tests that cover the mutation changed since the result was computed.
+ * Otherwise the result is deleted, so that the mutation gets into the next
+ * mutation tasks.
+ */
+public class ChangedMutations {
+
+	private static Logger logger = Logger.getLogger(ChangedMutations.class);
+
+	private ChangedMutations() {
+	}
+
+	/**
+	 * Deletes the results of mutations whose method or covering tests
+	 * changed, and stores the current method hash for all mutations. Results
+	 * without stored hashes are considered outdated. Mutations of methods
+	 * that no longer exist in a class with recorded hashes are deleted.
+	 * 
+	 * @return the number of deleted results
+	 */
+	public static int deleteOutdatedResults() {
+		MethodHashes hashes = MethodHashes.read();
+		String prefix = ConfigurationLocator.getJavalancheConfiguration()
+				.getProjectPrefix();
+		Session session = HibernateUtil.getSessionFactory().openSession();
+		Transaction tx = session.beginTransaction();
+		List<Mutation> mutations = QueryManager.getMutationsForProject(prefix,
+				session);
+		int deleted = 0, kept = 0, removed = 0;
+		for (Mutation m : mutations) {
+			if (m.getMutationType() == MutationType.NO_MUTATION) {
+				continue;
+			}
+			String methodHash = hashes.getMethodHash(m);
+			MutationTestResult result = m.getMutationResult();
+			if (methodHash == null) {
+				if (hashes.hasClass(m.getClassName())) {
+					logger.debug("Deleting mutation of removed method " + m);
+					session.delete(m);
+					removed++;
+				} else if (result != null) {
+					logger.debug("Deleting result of mutation without hash "
+							+ m);
+					m.setMutationResult(null);
+					session.delete(result);
+					deleted++;
+				}
+				continue;
+			}
+			if (result != null) {
+				String testsHash = hashes.getTestsHash(MutationCoverageFile
+						.getCoverageData(m));
+				if (methodHash.equals(m.getMethodHash())
+						&& testsHash.equals(result.getTestsHash())) {
+					kept++;
+				} else {
+					logger.debug("Deleting outdated result of mutation " + m);
+					m.setMutationResult(null);
+					session.delete(result);
+					deleted++;
+				}
+			}
+			m.setMethodHash(methodHash);
+		}
+		tx.commit();
+		session.close();
+		logger.info("Kept " + kept + " results. Deleted " + deleted
+				+ " outdated results and " + removed
+				+ " mutations of removed methods.");
+		return deleted;
+	}
+
+	/**
+	 * Prepares a class that is scanned again in incremental mode. Mutations
+	 * of methods that changed or were removed since their hash was stored are
+	 * deleted, so that the scan stores the mutations of the current code
+	 * instead.
+	 * 
+	 * @param className
+	 *            the name of the class
+	 * @param methodHashes
+	 *            the current hashes of the methods of the class
+	 * @return true, if the class has to be scanned
+	 */
+	public static boolean prepareRescan(String className,
+			Map<String, String> methodHashes) {
+		Session session = HibernateUtil.getSessionFactory().openSession();
+		Transaction tx = session.beginTransaction();
+		List<Mutation> mutations = QueryManager.getMutationsForClass(
+				className, session);
+		boolean scan = mutations.isEmpty();
+		int deleted = 0;
+		for (Mutation m : mutations) {
+			if (m.getMutationType() == MutationType.NO_MUTATION) {
+				continue;
+			}
+			String storedHash = m.getMethodHash();
+			if (storedHash == null) {
+				scan = true;
+			} else if (!storedHash.equals(methodHashes.get(m
+					.getMethodName()))) {
+				logger.debug("Deleting mutation of changed method " + m);
+				session.delete(m);
+				deleted++;
+				scan = true;
+			}
+		}
+		tx.commit();
+		session.close();
+		if (deleted > 0) {
+			logger.info("Deleted " + deleted + " mutations of changed methods in "
+					+ className);
+		}
+		return scan;
+	}
+}
@@ -80,6 +80,12 @@ public class MutationTaskCreator {
 
 	public static void createMutationTasks() throws IOException {
 		deleteTasks();
+		if (ConfigurationLocator.getJavalancheConfiguration()
+				.useIncrementalMode()) {
+			int deleted = ChangedMutations.deleteOutdatedResults();
+			System.out.println("Deleted " + deleted
+					+ " results of changed mutations");
+		}
 		int numberOfTasks = DEFAULT_NUMBER_OF_TASKS;
 		int mutationsPerTask = DEFAULT_MUTATIONS_PER_TASK;
 		String mutationsPerTaskProperty = System
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+/**
+ * Holds the id of the mutation that is currently enabled. Mutated code that
+ * was instrumented with static guards compares against this field instead of
+ * querying a system property.
+ * 
+ * The field is deliberately not volatile, because reading a plain static
+ * field allows the JIT to hoist the check out of loops. It is written by the
+ * {@link MutationSwitcher} before the tests of a mutation are submitted to
+ * the {@link de.unisb.cs.st.javalanche.mutation.runtime.testDriver.TestExecutor}.
+ * The handoff of each test through the queue of its worker thread orders the
+ * write before the reads of that test. Threads that were started by earlier
+ * tests and are still running have no such ordering, and may keep seeing the
+ * id of an earlier mutation.
+ * 
+ * @see MutationSwitcher
+ */
+public class ActiveMutation {
+
+	/**
+	 * Value of {@link #id} when no mutation is enabled.
+	 */
+	public static final int NO_MUTATION = 0;
+
+	public static final String CLASS_NAME = "de/unisb/cs/st/javalanche/mutation/runtime/ActiveMutation";
+
+	public static final String FIELD_NAME = "id";
+
+	/**
+	 * The id of the currently enabled mutation.
+	 */
+	public static int id = NO_MUTATION;
+
+	private ActiveMutation() {
+	}
+
+	/**
+	 * Returns true if the given mutation id can be used with static guards.
+	 * 
+	 * @param mutationId
+	 *            the id to check
+	 * @return true if the id fits into the static guard field
+	 */
+	public static boolean isSupportedId(Long mutationId) {
+		return mutationId != null && mutationId > NO_MUTATION
+				&& mutationId <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Enables the mutation with given id. Ids that do not fit into the field
+	 * are guarded by system properties, so the field is cleared for them.
+	 * 
+	 * @param mutationId
+	 *            the id of the mutation to enable
+	 */
+	public static void set(Long mutationId) {
+		if (isSupportedId(mutationId)) {
+			id = mutationId.intValue();
+		} else {
+			id = NO_MUTATION;
+		}
+	}
+
+	public static void clear() {
+		id = NO_MUTATION;
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bit set that can be modified concurrently without locking. Setting a bit
+ * that is already set does not write to memory and no objects are allocated
+ * by {@link #set(int)} and {@link #get(int)}.
+ * 
+ * The capacity only grows via {@link #ensureCapacity(int)}, which should not
+ * be called concurrently with {@link #set(int)}.
+ * 
+ */
+public class ConcurrentBitSet {
+
+	private static final int ADDRESS_BITS = 6;
+
+	private volatile AtomicLongArray words;
+
+	public ConcurrentBitSet(int capacity) {
+		words = new AtomicLongArray(wordIndex(Math.max(capacity, 1) - 1) + 1);
+	}
+
+	private static int wordIndex(int bit) {
+		return bit >> ADDRESS_BITS;
+	}
+
+	/**
+	 * Sets the given bit. Bits outside the capacity are ignored.
+	 * 
+	 * @param bit
+	 *            the bit to set
+	 */
+	public void set(int bit) {
+		AtomicLongArray w = words;
+		int index = wordIndex(bit);
+		if (bit < 0 || index >= w.length()) {
+			return;
+		}
+		long mask = 1l << bit;
+		long old = w.get(index);
+		while ((old & mask) == 0 && !w.compareAndSet(index, old, old | mask)) {
+			old = w.get(index);
+		}
+	}
+
+	/**
+	 * Returns true if the given bit is set.
+	 * 
+	 * @param bit
+	 *            the bit to check
+	 * @return true, if the bit is set
+	 */
+	public boolean get(int bit) {
+		AtomicLongArray w = words;
+		int index = wordIndex(bit);
+		if (bit < 0 || index >= w.length()) {
+			return false;
+		}
+		return (w.get(index) & (1l << bit)) != 0;
+	}
+
+	/**
+	 * Clears all bits.
+	 */
+	public void clear() {
+		AtomicLongArray w = words;
+		for (int i = 0; i < w.length(); i++) {
+			w.set(i, 0l);
+		}
+	}
+
+	/**
+	 * Grows this set so that it can hold at least the given number of bits.
+	 * 
+	 * @param capacity
+	 *            the number of bits this set should be able to hold
+	 */
+	public void ensureCapacity(int capacity) {
+		AtomicLongArray w = words;
+		int length = wordIndex(Math.max(capacity, 1) - 1) + 1;
+		if (length > w.length()) {
+			AtomicLongArray grown = new AtomicLongArray(Math.max(length,
+					2 * w.length()));
+			for (int i = 0; i < w.length(); i++) {
+				grown.set(i, w.get(i));
+			}
+			words = grown;
+		}
+	}
+
+	/**
+	 * @return the number of bits this set can hold
+	 */
+	public int capacity() {
+		return words.length() << ADDRESS_BITS;
+	}
+}
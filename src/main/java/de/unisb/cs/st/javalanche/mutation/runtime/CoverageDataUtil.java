@@ -54,9 +54,10 @@ public class CoverageDataUtil {
 			}
 		}
 		logger.debug("Inserting Coverage calls for:  " + id + " " + mutation);
-		mv.visitLdcInsn(id);
+		int probeId = CoverageDataRuntime.registerProbe(id);
+		mv.visitLdcInsn(probeId);
 		mv.visitMethodInsn(INVOKESTATIC, "java/lang/CoverageDataRuntime",
-				"touch", "(J)V");
+				"touch", "(I)V");
 		mv.visitLabel(endLabel);
 	}
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+/**
+ * Counts the executions of backward branches and method entries in methods
+ * that contain mutations. The counter is compared against a budget that is
+ * derived from the unmutated run of a test. When the budget is exceeded, a
+ * {@link LoopBudgetExceededError} is thrown, which aborts a mutated test that
+ * does not terminate without restarting the JVM.
+ * 
+ * The counter is not synchronized and may miss concurrent increments.
+ */
+public class LoopBudget {
+
+	/**
+	 * Budget value that never gets exceeded.
+	 */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	private static volatile long budget = UNLIMITED;
+
+	private static long count;
+
+	private LoopBudget() {
+	}
+
+	/**
+	 * This method is called by the code that is added to methods that contain
+	 * mutations.
+	 */
+	public static void tick() {
+		if (++count > budget) {
+			throw new LoopBudgetExceededError(budget);
+		}
+	}
+
+	/**
+	 * Sets the counter to zero.
+	 */
+	public static void reset() {
+		count = 0;
+	}
+
+	/**
+	 * @return the value of the counter
+	 */
+	public static long getCount() {
+		return count;
+	}
+
+	/**
+	 * Sets the budget for the tests that are started afterwards.
+	 * 
+	 * @param newBudget
+	 *            the maximum value of the counter, or {@link #UNLIMITED}
+	 */
+	public static void setBudget(long newBudget) {
+		budget = newBudget;
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import de.unisb.cs.st.javalanche.mutation.properties.JavalancheMessages;
+
+/**
+ * Thrown when a mutated test exceeds its {@link LoopBudget}. It is an
+ * {@link Error} so that it is not caught by exception handlers of the tested
+ * code that catch {@link Exception}.
+ */
+public class LoopBudgetExceededError extends Error {
+
+	private static final long serialVersionUID = 1L;
+
+	public LoopBudgetExceededError(long budget) {
+		super(JavalancheMessages.MUTATION_TIME_LIMIT_MESSAGE
+				+ " Loop budget of " + budget + " exceeded.");
+	}
+
+}
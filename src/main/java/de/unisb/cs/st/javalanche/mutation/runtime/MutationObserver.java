@@ -19,13 +19,14 @@
 package de.unisb.cs.st.javalanche.mutation.runtime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 
@@ -47,41 +48,81 @@ public class MutationObserver implements MutationTestListener {
 	private static Logger logger = Logger.getLogger(MutationObserver.class);
 
 	/**
-	 * All mutations that were activated.
+	 * Number of executions of a touched mutation after which it is checked
+	 * whether the time limit is exceeded. Must be a power of two.
 	 */
-	private static List<Mutation> reportedMutations = new ArrayList<Mutation>();
+	private static final int TIME_CHECK_INTERVAL = 1024;
 
 	/**
-	 * All tests that where touched by tests.
+	 * All mutations that were activated. The position of a mutation in this
+	 * array is its run local index.
 	 */
-	private static Collection<String> touchingTestCases = new HashSet<String>();
+	private static Mutation[] reportedMutations = new Mutation[64];
+
+	/**
+	 * Number of entries in {@link #reportedMutations}.
+	 */
+	private static int reportedCount;
+
+	/**
+	 * Number of executions for each activated mutation, indexed by the run
+	 * local index.
+	 */
+	private static long[] executions = new long[64];
+
+	/**
+	 * Indicates for each activated mutation whether it was touched, indexed
+	 * by the run local index.
+	 */
+	private static boolean[] touchedFlags = new boolean[64];
+
+	/**
+	 * Ids of all tests that touched the currently active mutation.
+	 */
+	private static final ConcurrentBitSet touchingTestIds = new ConcurrentBitSet(
+			256);
+
+	/**
+	 * Maps the names of the tests to their ids.
+	 */
+	private static final Map<String, Integer> testIds = new HashMap<String, Integer>();
 
 	/**
 	 * Id of the currently active mutation.
 	 */
-	private static AtomicLong expectedID = new AtomicLong();
+	private static volatile long expectedID;
 
 	/**
-	 * Name of the currently active test.
+	 * Ids of the mutations that are enabled together with the currently
+	 * active mutation.
+	 */
+	private static volatile Set<Long> groupIds = Collections.emptySet();
+
+	/**
+	 * Ids of the group mutations that were executed by a test that is not
+	 * attributed to them, and of the mutations these tests are attributed to.
 	 */
-	private static AtomicReference<String> actualTestCase = new AtomicReference<String>();
+	private static final Set<Long> groupConflicts = new HashSet<Long>();
 
 	/**
-	 * Set of all mutations that where touched during this run.
+	 * Run local index of the currently active mutation.
 	 */
-	private static Set<Mutation> touchedMutations = new HashSet<Mutation>();
+	private static volatile int actualIndex;
 
 	/**
-	 * Currently active mutation.
+	 * Name of the currently active test.
 	 */
-	private static AtomicReference<Mutation> actualMutation = new AtomicReference<Mutation>();
+	private static volatile String actualTestCase;
 
 	/**
-	 * Indicates whether the currently active Mutation was touched or not.
+	 * Id of the currently active test, or -1 if no test is active.
 	 */
-	private static AtomicBoolean touched = new AtomicBoolean();
+	private static volatile int actualTestId = -1;
 
-	private static long time;
+	/**
+	 * Start time of the currently active test, or 0 if no test is active.
+	 */
+	private static volatile long time;
 
 	/**
 	 * Contains all mutations that are reported to have been applied.
@@ -91,42 +132,107 @@ public class MutationObserver implements MutationTestListener {
 	public static final int LIMIT = ConfigurationLocator
 			.getJavalancheConfiguration().getTimeoutInSeconds() * 1000;
 
+	/**
+	 * Time in milliseconds the currently active test may run before the
+	 * mutated code aborts it.
+	 */
+	private static volatile long limit = LIMIT;
+
 	/**
 	 * This method is called by statements that are added to the mutated code.
 	 * It is called every time the mutated statements get executed.
 	 * 
+	 * It does not allocate objects or acquire locks, except for the first
+	 * execution of a mutation. The execution counter is not synchronized and
+	 * may miss concurrent executions.
+	 * 
 	 * @param mutationID
 	 *            the id of the mutation that is executed
 	 */
 	public static void touch(long mutationID) {
-		// (actualMutation == null ? "null " : actualMutation.getId() + ""));
-		if (mutationID != expectedID.get()) {
+		if (mutationID != expectedID) {
+			if (groupIds.contains(mutationID)) {
+				groupConflict(mutationID);
+				return;
+			}
 			String message = "Expected ID did not match reported ID "
-					+ expectedID.get() + "  - " + mutationID;
+					+ expectedID + "  - " + mutationID;
 			logger.warn(message);
 			throw new RuntimeException(message);
-		} else {
-
-			touchingTestCases.add(actualTestCase.get());
-			if (!touched.get()) {
-				touchedMutations.add(actualMutation.get());
-				logger.info("Touch called by mutated code in test: "
-						+ actualTestCase + " for mutation: " + mutationID
-						+ " Thread " + Thread.currentThread()
-						+ " loaded by class loader "
-						+ MutationObserver.class.getClassLoader());
-				// + "Trace " + Util.getStackTraceString());
-				touched.set(true);
-				time = System.currentTimeMillis();
-			} else {
-				if (System.currentTimeMillis() - time > LIMIT) {
-					throw new RuntimeException(
-							JavalancheMessages.MUTATION_TIME_LIMIT_MESSAGE);
-				}
+		}
+		int index = actualIndex;
+		long count = ++executions[index];
+		touchingTestIds.set(actualTestId);
+		if (!touchedFlags[index]) {
+			firstTouch(index, mutationID);
+		} else if ((count & (TIME_CHECK_INTERVAL - 1)) == 0) {
+			long start = time;
+			if (start != 0 && System.currentTimeMillis() - start > limit) {
+				throw new RuntimeException(
+						JavalancheMessages.MUTATION_TIME_LIMIT_MESSAGE);
 			}
 		}
 	}
 
+	private static synchronized void firstTouch(int index, long mutationID) {
+		if (!touchedFlags[index]) {
+			logger.info("Touch called by mutated code in test: "
+					+ actualTestCase + " for mutation: " + mutationID
+					+ " Thread " + Thread.currentThread()
+					+ " loaded by class loader "
+					+ MutationObserver.class.getClassLoader());
+			touchedFlags[index] = true;
+		}
+	}
+
+	private static synchronized void groupConflict(long mutationID) {
+		if (groupConflicts.add(mutationID)) {
+			logger.info("Mutation " + mutationID
+					+ " executed by test attributed to mutation " + expectedID
+					+ ": " + actualTestCase);
+		}
+		groupConflicts.add(expectedID);
+	}
+
+	/**
+	 * Sets the mutations that are enabled together. Each of them is expected
+	 * to be executed only by the tests that are attributed to it.
+	 * 
+	 * @param group
+	 *            the mutations that are enabled together
+	 */
+	public static synchronized void setGroup(Collection<Mutation> group) {
+		Set<Long> ids = new HashSet<Long>();
+		for (Mutation m : group) {
+			ids.add(m.getId());
+		}
+		groupIds = ids;
+		groupConflicts.clear();
+	}
+
+	/**
+	 * Returns the ids of the group mutations whose test results can not be
+	 * attributed, because they were executed by a test of another mutation,
+	 * or their tests executed another mutation of the group.
+	 * 
+	 * @return the ids of the mutations that need to be run on their own
+	 */
+	public static synchronized Set<Long> getGroupConflicts() {
+		return new HashSet<Long>(groupConflicts);
+	}
+
+	/**
+	 * Sets the time limit for the tests that are started afterwards. The mutated
+	 * code throws an exception when it is executed after the limit is
+	 * exceeded.
+	 * 
+	 * @param millis
+	 *            the time limit in milliseconds
+	 */
+	public static void setTimeLimit(long millis) {
+		limit = millis;
+	}
+
 	public static void mutationApplied(Mutation m) {
 		appliedMutations.add(m);
 	}
@@ -138,8 +244,8 @@ public class MutationObserver implements MutationTestListener {
 	 * @return String containing the summary.
 	 */
 	public static String summary(boolean finishedNormal) {
-		RunResult runResult = new RunResult(reportedMutations,
-				touchedMutations, appliedMutations, finishedNormal);
+		RunResult runResult = new RunResult(getReportedMutations(),
+				getTouchedMutations(), appliedMutations, finishedNormal);
 		return runResult.toString();
 	}
 
@@ -149,8 +255,36 @@ public class MutationObserver implements MutationTestListener {
 	 * 
 	 * @return the test cases that touched the currently active mutation
 	 */
-	public static Collection<String> getTouchingTestCases() {
-		return touchingTestCases;
+	public static synchronized Collection<String> getTouchingTestCases() {
+		List<String> result = new ArrayList<String>();
+		for (Map.Entry<String, Integer> entry : testIds.entrySet()) {
+			if (touchingTestIds.get(entry.getValue())) {
+				result.add(entry.getKey());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if the given test touched the currently active mutation up
+	 * to this point.
+	 * 
+	 * @param testName
+	 *            the name of the test to check
+	 * @return true, if the test touched the currently active mutation
+	 */
+	public static synchronized boolean isTouchingTestCase(String testName) {
+		Integer id = testIds.get(testName);
+		return id != null && touchingTestIds.get(id);
+	}
+
+	/**
+	 * Returns how often the currently active mutation was executed.
+	 * 
+	 * @return the number of executions of the currently active mutation
+	 */
+	public static long getExecutionCount() {
+		return executions[actualIndex];
 	}
 
 	/*
@@ -170,18 +304,29 @@ public class MutationObserver implements MutationTestListener {
 	 */
 	public void mutationStart(Mutation mutation) {
 		logger.info("Mutation start");
-		reportedMutations.add(mutation);
-		actualMutation.set(mutation);
-		touchingTestCases.clear();
-		expectedID.set(mutation.getId());
-		touched.set(false);
+		synchronized (MutationObserver.class) {
+			if (reportedCount == reportedMutations.length) {
+				int length = 2 * reportedCount;
+				reportedMutations = Arrays.copyOf(reportedMutations, length);
+				executions = Arrays.copyOf(executions, length);
+				touchedFlags = Arrays.copyOf(touchedFlags, length);
+			}
+			int index = reportedCount++;
+			reportedMutations[index] = mutation;
+			touchingTestIds.clear();
+			time = 0;
+			expectedID = mutation.getId();
+			actualIndex = index;
+		}
 		// shouldEnd.set(false);
 	}
 
 	/**
-	 * Not used
+	 * Logs how often the mutation was executed.
 	 */
 	public void mutationEnd(Mutation mutation) {
+		logger.debug("Mutation " + mutation.getId() + " was executed "
+				+ getExecutionCount() + " times");
 	}
 
 	/**
@@ -198,7 +343,9 @@ public class MutationObserver implements MutationTestListener {
 	 * #testEnd(java.lang.String)
 	 */
 	public void testEnd(String testName) {
-		actualTestCase.set(null);
+		time = 0;
+		actualTestId = -1;
+		actualTestCase = null;
 	}
 
 	/*
@@ -209,7 +356,17 @@ public class MutationObserver implements MutationTestListener {
 	 * #testStart(java.lang.String)
 	 */
 	public void testStart(String testName) {
-		actualTestCase.set(testName);
+		synchronized (MutationObserver.class) {
+			Integer id = testIds.get(testName);
+			if (id == null) {
+				id = testIds.size();
+				testIds.put(testName, id);
+				touchingTestIds.ensureCapacity(id + 1);
+			}
+			actualTestCase = testName;
+			actualTestId = id;
+			time = System.currentTimeMillis();
+		}
 	}
 
 	/**
@@ -245,8 +402,19 @@ public class MutationObserver implements MutationTestListener {
 		}
 	}
 
-	public static Set<Mutation> getTouchedMutations() {
+	public static synchronized Set<Mutation> getTouchedMutations() {
+		Set<Mutation> touchedMutations = new HashSet<Mutation>();
+		for (int i = 0; i < reportedCount; i++) {
+			if (touchedFlags[i]) {
+				touchedMutations.add(reportedMutations[i]);
+			}
+		}
 		return touchedMutations;
 	}
 
+	private static synchronized List<Mutation> getReportedMutations() {
+		return new ArrayList<Mutation>(Arrays.asList(reportedMutations).subList(
+				0, reportedCount));
+	}
+
 }
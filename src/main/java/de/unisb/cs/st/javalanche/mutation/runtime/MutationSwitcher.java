@@ -18,15 +18,27 @@
  */
 package de.unisb.cs.st.javalanche.mutation.runtime;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.time.DurationFormatUtils;
 import org.apache.commons.lang.time.StopWatch;
 import org.apache.log4j.Logger;
 
+import de.unisb.cs.st.javalanche.mutation.javaagent.HotSwapper;
 import de.unisb.cs.st.javalanche.mutation.javaagent.MutationsForRun;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.properties.RunMode;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.MutationCoverageFile;
 
 /**
  * Class handles the activation and deactivation of the mutations during
@@ -42,9 +54,10 @@ public class MutationSwitcher {
 	private static Logger logger = Logger.getLogger(MutationSwitcher.class);
 
 	/**
-	 * The mutations that get activated in this run.
+	 * Number of mutations per group member that are considered when a group
+	 * is formed.
 	 */
-	private Collection<Mutation> mutations;
+	private static final int GROUP_LOOKAHEAD = 8;
 
 	private Iterator<Mutation> iter;
 
@@ -53,12 +66,52 @@ public class MutationSwitcher {
 	 */
 	private Mutation currentMutation;
 
+	/**
+	 * The mutations that are enabled together. Contains only the current
+	 * mutation when no group is used.
+	 */
+	private List<Mutation> currentGroup = Collections.emptyList();
+
+	/**
+	 * Mutations that were taken from the iterator, but not yet returned.
+	 */
+	private final LinkedList<Mutation> pending = new LinkedList<Mutation>();
+
+	/**
+	 * The tests that cover the pending mutations.
+	 */
+	private final Map<Long, Set<String>> pendingCoverage = new HashMap<Long, Set<String>>();
+
+	/**
+	 * True, if the current mutations are enabled.
+	 */
+	private boolean switchedOn;
+
 	private StopWatch stopWatch = new StopWatch();
 
+	/**
+	 * True, if the current mutation is activated by redefining its class.
+	 */
+	private boolean hotSwapped;
+
 	public MutationSwitcher() {
-		mutations = MutationsForRun.getFromDefaultLocation().getMutations();
+		this(MutationsForRun.getFromDefaultLocation().getMutations());
+	}
+
+	public MutationSwitcher(Collection<Mutation> mutations) {
+		this(mutations.iterator());
 		logger.info(mutations);
-		iter = mutations.iterator();
+	}
+
+	/**
+	 * Creates a switcher that takes the mutations from the given iterator.
+	 * The iterator may fetch the mutations lazily.
+	 * 
+	 * @param iter
+	 *            the iterator that provides the mutations
+	 */
+	public MutationSwitcher(Iterator<Mutation> iter) {
+		this.iter = iter;
 	}
 
 	/**
@@ -67,7 +120,7 @@ public class MutationSwitcher {
 	 * @return True, if next() will return a mutation.
 	 */
 	public boolean hasNext() {
-		return iter.hasNext();
+		return !pending.isEmpty() || iter.hasNext();
 	}
 
 	/**
@@ -77,15 +130,115 @@ public class MutationSwitcher {
 	 * @return The mutation that is now the current mutation.
 	 */
 	public Mutation next() {
+		if (!pending.isEmpty()) {
+			return select(pending.removeFirst());
+		}
 		while (iter.hasNext()) {
 			currentMutation = iter.next();
 			if (currentMutation.getMutationResult() == null) {
-				return currentMutation;
+				return select(currentMutation);
+			} else {
+				logger.info("Mutation already got Results");
+			}
+		}
+		return select(currentMutation);
+	}
+
+	/**
+	 * Sets the given mutation as the current mutation, which is enabled
+	 * without other mutations.
+	 * 
+	 * @param mutation
+	 *            the mutation to enable on the next call of
+	 *            {@link #switchOn()}
+	 * @return the given mutation
+	 */
+	public Mutation select(Mutation mutation) {
+		currentMutation = mutation;
+		currentGroup = mutation == null ? Collections.<Mutation> emptyList()
+				: Collections.singletonList(mutation);
+		return mutation;
+	}
+
+	/**
+	 * Takes up to the given number of mutations that are covered by disjoint
+	 * sets of tests, and sets them as the current group. Mutations without
+	 * coverage data are returned in a group of their own.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of mutations in the group
+	 * @return the mutations that are now the current group, may be empty if
+	 *         all remaining mutations already got results
+	 */
+	public List<Mutation> nextGroup(int maxSize) {
+		if (maxSize <= 1) {
+			Mutation m = next();
+			return m == null || m.getMutationResult() != null ? Collections
+					.<Mutation> emptyList() : currentGroup;
+		}
+		while (pending.size() < maxSize * GROUP_LOOKAHEAD && iter.hasNext()) {
+			Mutation m = iter.next();
+			if (m.getMutationResult() == null) {
+				pending.add(m);
 			} else {
 				logger.info("Mutation already got Results");
 			}
 		}
-		return currentMutation;
+		if (pending.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Set<String>> coverage = new ArrayList<Set<String>>();
+		for (Mutation m : pending) {
+			Set<String> tests = pendingCoverage.get(m.getId());
+			if (tests == null) {
+				tests = MutationCoverageFile.getCoverageData(m);
+				pendingCoverage.put(m.getId(), tests);
+			}
+			coverage.add(tests);
+		}
+		currentGroup = takeGroup(pending, coverage, maxSize);
+		for (Mutation m : currentGroup) {
+			pendingCoverage.remove(m.getId());
+		}
+		currentMutation = currentGroup.get(0);
+		return currentGroup;
+	}
+
+	/**
+	 * Removes a group of mutations that are covered by disjoint, non-empty
+	 * sets of tests from the given candidates. The first candidate is always
+	 * part of the group.
+	 * 
+	 * @param candidates
+	 *            the mutations to choose from
+	 * @param coverage
+	 *            the tests that cover each candidate
+	 * @param maxSize
+	 *            the maximum number of mutations in the group
+	 * @return the mutations of the group
+	 */
+	static List<Mutation> takeGroup(List<Mutation> candidates,
+			List<Set<String>> coverage, int maxSize) {
+		List<Mutation> group = new ArrayList<Mutation>();
+		group.add(candidates.get(0));
+		if (coverage.get(0).isEmpty()) {
+			candidates.remove(0);
+			return group;
+		}
+		Set<String> groupTests = new HashSet<String>(coverage.get(0));
+		Iterator<Mutation> it = candidates.iterator();
+		it.next();
+		it.remove();
+		for (int i = 1; it.hasNext() && group.size() < maxSize; i++) {
+			Mutation m = it.next();
+			Set<String> tests = coverage.get(i);
+			if (!tests.isEmpty() && Collections.disjoint(groupTests, tests)) {
+				group.add(m);
+				groupTests.addAll(tests);
+				it.remove();
+			}
+		}
+		return group;
 	}
 
 	/**
@@ -99,7 +252,27 @@ public class MutationSwitcher {
 					+ currentMutation.toString());
 			stopWatch.reset();
 			stopWatch.start();
-			System.setProperty(currentMutation.getMutationVariable(), "1");
+			switchedOn = true;
+			if (currentGroup.size() > 1) {
+				for (Mutation m : currentGroup) {
+					logger.info("enabling mutation in group: "
+							+ m.getMutationVariable());
+					System.setProperty(m.getMutationVariable(), "1");
+				}
+				return;
+			}
+			hotSwapped = ConfigurationLocator.getJavalancheConfiguration()
+					.getRunMode() == RunMode.MUTATION_TEST_HOTSWAP
+					&& HotSwapper.canSwap(currentMutation);
+			if (hotSwapped) {
+				HotSwapper.swapIn(currentMutation);
+			} else if (ActiveMutation.isSupportedId(currentMutation.getId())
+					&& ConfigurationLocator.getJavalancheConfiguration()
+							.useStaticGuards()) {
+				ActiveMutation.set(currentMutation.getId());
+			} else {
+				System.setProperty(currentMutation.getMutationVariable(), "1");
+			}
 			System.setProperty(CURRENT_MUTATION_KEY,
 					currentMutation.getId() + "");
 
@@ -111,6 +284,14 @@ public class MutationSwitcher {
 	 */
 	public void switchOff() {
 		if (currentMutation != null) {
+			if (hotSwapped) {
+				HotSwapper.swapOut();
+				hotSwapped = false;
+			}
+			ActiveMutation.clear();
+			for (Mutation m : currentGroup) {
+				System.clearProperty(m.getMutationVariable());
+			}
 			System.clearProperty(currentMutation.getMutationVariable());
 			System.clearProperty(CURRENT_MUTATION_KEY);
 			stopWatch.stop();
@@ -120,8 +301,20 @@ public class MutationSwitcher {
 					+ DurationFormatUtils
 							.formatDurationHMS(stopWatch.getTime()));
 			currentMutation = null;
+			currentGroup = Collections.emptyList();
+			switchedOn = false;
 		}
 	}
 
+	/**
+	 * Returns true if the current mutations are enabled.
+	 * 
+	 * @return true, if {@link #switchOff()} was not called after
+	 *         {@link #switchOn()}
+	 */
+	public boolean isSwitchedOn() {
+		return switchedOn;
+	}
+
 	
 }
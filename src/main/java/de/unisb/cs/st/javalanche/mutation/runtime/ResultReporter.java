@@ -124,9 +124,9 @@ public class ResultReporter implements MutationTestListener {
 
 	/**
 	 * Report the result of the mutation and store them to the db in regular
-	 * intervals.
+	 * intervals. May be called by several workers concurrently.
 	 */
-	public void mutationEnd(Mutation mutation) {
+	public synchronized void mutationEnd(Mutation mutation) {
 		if (!reportedMutations.contains(mutation)) {
 			report(mutation);
 			reportCount++;
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records the values of the static fields of project classes and restores
+ * them, so that a mutation that corrupts static state does not affect the
+ * mutations that are tested afterwards in the same JVM.
+ * 
+ * Project classes report their initialization by calls that are added to
+ * their static initializers. Classes that can be initialized again safely
+ * contain a copy of their static initializer named
+ * {@link #REINITIALIZE_METHOD_NAME}.
+ * 
+ * The restore is shallow. Only the references stored in non final static
+ * fields are reset. Objects that are reachable from static fields and are
+ * modified in place, such as singletons and collections, keep their
+ * modifications, and final static fields are never assigned again. Classes
+ * whose static initializer assigns final static fields are therefore not
+ * initialized again (see StaticStateTransformer).
+ */
+public class StaticState {
+
+	private static final Logger logger = Logger.getLogger(StaticState.class);
+
+	/**
+	 * Name of the method that contains a copy of the static initializer.
+	 */
+	public static final String REINITIALIZE_METHOD_NAME = "javalanche$clinit";
+
+	/**
+	 * The initialized classes in the order of their initialization.
+	 */
+	private static final List<Class<?>> initializedClasses = new ArrayList<Class<?>>();
+
+	/**
+	 * Classes whose static initializer can be run again.
+	 */
+	private static final Set<Class<?>> reinitializableClasses = new HashSet<Class<?>>();
+
+	/**
+	 * The recorded values of the non final static fields.
+	 */
+	private static Map<Field, Object> snapshot = new HashMap<Field, Object>();
+
+	/**
+	 * Number of classes whose fields were handled by the snapshot.
+	 */
+	private static int snapshotSize;
+
+	private StaticState() {
+	}
+
+	/**
+	 * This method is called at the end of the static initializer of project
+	 * classes.
+	 * 
+	 * @param clazz
+	 *            the class that was initialized
+	 * @param reinitializable
+	 *            true, if the class contains a copy of its static initializer
+	 */
+	public static synchronized void classInitialized(Class<?> clazz,
+			boolean reinitializable) {
+		initializedClasses.add(clazz);
+		if (reinitializable) {
+			reinitializableClasses.add(clazz);
+		}
+	}
+
+	/**
+	 * Records the values of the non final static fields of all classes that
+	 * are initialized.
+	 */
+	public static synchronized void snapshot() {
+		snapshot = new HashMap<Field, Object>();
+		for (Class<?> clazz : initializedClasses) {
+			for (Field field : getStaticFields(clazz)) {
+				try {
+					snapshot.put(field, field.get(null));
+				} catch (IllegalAccessException e) {
+					logger.warn("Could not read field " + field, e);
+				}
+			}
+		}
+		snapshotSize = initializedClasses.size();
+		logger.info("Recorded " + snapshot.size() + " static fields of "
+				+ snapshotSize + " classes");
+	}
+
+	/**
+	 * Restores the recorded values of the static fields and runs the static
+	 * initializers of the classes that were first initialized since the last
+	 * restore again, when this is safe. The fields of these classes are then
+	 * added to the snapshot, so that later restores only reset their fields.
+	 */
+	public static void restore() {
+		Map<Field, Object> values;
+		List<Class<?>> newClasses;
+		synchronized (StaticState.class) {
+			values = snapshot;
+			newClasses = new ArrayList<Class<?>>();
+			for (Class<?> clazz : initializedClasses.subList(snapshotSize,
+					initializedClasses.size())) {
+				if (reinitializableClasses.contains(clazz)) {
+					newClasses.add(clazz);
+				}
+			}
+			snapshotSize = initializedClasses.size();
+		}
+		for (Map.Entry<Field, Object> entry : values.entrySet()) {
+			Field field = entry.getKey();
+			try {
+				field.set(null, entry.getValue());
+			} catch (IllegalAccessException e) {
+				logger.warn("Could not restore field " + field, e);
+			}
+		}
+		if (newClasses.isEmpty()) {
+			return;
+		}
+		Map<Field, Object> newValues = new HashMap<Field, Object>();
+		for (Class<?> clazz : newClasses) {
+			if (reinitialize(clazz)) {
+				for (Field field : getStaticFields(clazz)) {
+					try {
+						newValues.put(field, field.get(null));
+					} catch (IllegalAccessException e) {
+						logger.warn("Could not read field " + field, e);
+					}
+				}
+			}
+		}
+		synchronized (StaticState.class) {
+			// the snapshot is replaced, so that concurrent restores can keep
+			// iterating the old one
+			Map<Field, Object> extended = new HashMap<Field, Object>(snapshot);
+			extended.putAll(newValues);
+			snapshot = extended;
+		}
+	}
+
+	private static boolean reinitialize(Class<?> clazz) {
+		try {
+			Method method = clazz
+					.getDeclaredMethod(REINITIALIZE_METHOD_NAME);
+			method.setAccessible(true);
+			method.invoke(null);
+			return true;
+		} catch (Exception e) {
+			logger.warn("Could not reinitialize class " + clazz.getName(), e);
+		} catch (LinkageError e) {
+			logger.warn("Could not reinitialize class " + clazz.getName(), e);
+		}
+		return false;
+	}
+
+	private static List<Field> getStaticFields(Class<?> clazz) {
+		List<Field> result = new ArrayList<Field>();
+		try {
+			for (Field field : clazz.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers)
+						&& !Modifier.isFinal(modifiers)) {
+					field.setAccessible(true);
+					result.add(field);
+				}
+			}
+		} catch (SecurityException e) {
+			logger.warn("Could not access fields of " + clazz.getName(), e);
+		} catch (LinkageError e) {
+			logger.warn("Could not access fields of " + clazz.getName(), e);
+		}
+		return result;
+	}
+
+}
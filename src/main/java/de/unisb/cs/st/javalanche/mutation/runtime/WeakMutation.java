@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which mutations are covered and which infect the program state in a
+ * weak mutation run. In this run the mutated code is evaluated next to the
+ * unmutated code, and the value of the unmutated code is used. A mutation
+ * infects the state when its value differs from the unmutated value, or when
+ * its evaluation throws an exception.
+ */
+public class WeakMutation {
+
+	public static final String CLASS_NAME = "de/unisb/cs/st/javalanche/mutation/runtime/WeakMutation";
+
+	private static final Set<Long> covered = Collections
+			.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	private static final Set<Long> infected = Collections
+			.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	private WeakMutation() {
+	}
+
+	public static void compare(int original, int mutated, long mutationId) {
+		record(mutationId, original != mutated);
+	}
+
+	public static void compare(long original, long mutated, long mutationId) {
+		record(mutationId, original != mutated);
+	}
+
+	public static void compare(float original, float mutated, long mutationId) {
+		record(mutationId,
+				Float.floatToIntBits(original) != Float.floatToIntBits(mutated));
+	}
+
+	public static void compare(double original, double mutated,
+			long mutationId) {
+		record(mutationId, Double.doubleToLongBits(original) != Double
+				.doubleToLongBits(mutated));
+	}
+
+	public static void compare(Object original, Object mutated,
+			long mutationId) {
+		record(mutationId, original != mutated);
+	}
+
+	/**
+	 * Called for mutations whose code can not be evaluated next to the
+	 * unmutated code. These mutations are considered to infect the state
+	 * whenever they are reached.
+	 * 
+	 * @param mutationId
+	 *            the id of the reached mutation
+	 */
+	public static void infected(long mutationId) {
+		record(mutationId, true);
+	}
+
+	private static void record(long mutationId, boolean differs) {
+		Long id = mutationId;
+		if (!covered.contains(id)) {
+			covered.add(id);
+		}
+		if (differs && !infected.contains(id)) {
+			infected.add(id);
+		}
+	}
+
+	/**
+	 * Returns the descriptor of the compare method for values of the given
+	 * type.
+	 * 
+	 * @param descriptor
+	 *            the descriptor of the compared type
+	 * @return the descriptor of the compare method to call
+	 */
+	public static String getCompareDescriptor(String descriptor) {
+		String type;
+		switch (descriptor.charAt(0)) {
+		case 'J':
+		case 'F':
+		case 'D':
+			type = descriptor;
+			break;
+		case 'L':
+		case '[':
+			type = "Ljava/lang/Object;";
+			break;
+		default:
+			type = "I";
+		}
+		return "(" + type + type + "J)V";
+	}
+
+	public static boolean isCovered(long mutationId) {
+		return covered.contains(mutationId);
+	}
+
+	public static boolean isInfected(long mutationId) {
+		return infected.contains(mutationId);
+	}
+
+	/**
+	 * Forgets all recorded mutations.
+	 */
+	public static void reset() {
+		covered.clear();
+		infected.clear();
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.unisb.cs.st.javalanche.mutation.runtime.ResultReporter;
+
+/**
+ * Class loader that loads the classes of the class path itself instead of
+ * asking its parent first. Thus, each instance holds its own copy of the
+ * project and the test classes, including their static state.
+ * 
+ * Classes that are used to exchange results between the loaders, the
+ * configuration and the database access are shared via the parent.
+ * 
+ */
+public class IsolatingClassLoader extends URLClassLoader {
+
+	private static final String[] SHARED_PREFIXES = { "java.", "javax.",
+			"sun.", "com.sun.", "org.apache.log4j.", "org.hibernate.",
+			"org.objectweb.asm.",
+			"de.unisb.cs.st.javalanche.mutation.properties.",
+			"de.unisb.cs.st.javalanche.mutation.results.",
+			"de.unisb.cs.st.javalanche.mutation.javaagent.",
+			"de.unisb.cs.st.javalanche.mutation.bytecodeMutations.",
+			MutationTestListener.class.getName(),
+			ResultReporter.class.getName(),
+			ParallelMutationRunner.class.getName() };
+
+	public IsolatingClassLoader(URL[] urls, ClassLoader parent) {
+		super(urls, parent);
+	}
+
+	/**
+	 * Creates a loader for the class path of this virtual machine.
+	 * 
+	 * @param parent
+	 *            the loader that provides the shared classes
+	 * @return a loader for the class path of this virtual machine
+	 */
+	public static IsolatingClassLoader forClassPath(ClassLoader parent) {
+		String classPath = System.getProperty("java.class.path");
+		List<URL> urls = new ArrayList<URL>();
+		for (String entry : classPath.split(File.pathSeparator)) {
+			if (entry.length() > 0) {
+				try {
+					urls.add(new File(entry).toURI().toURL());
+				} catch (MalformedURLException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+		return new IsolatingClassLoader(urls.toArray(new URL[0]), parent);
+	}
+
+	/**
+	 * Returns true if the class with the given name is loaded by the parent.
+	 * 
+	 * @param className
+	 *            the name of the class
+	 * @return true, if the class is shared with the parent
+	 */
+	public static boolean isShared(String className) {
+		for (String prefix : SHARED_PREFIXES) {
+			if (className.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected synchronized Class<?> loadClass(String name, boolean resolve)
+			throws ClassNotFoundException {
+		if (isShared(name)) {
+			return super.loadClass(name, resolve);
+		}
+		Class<?> c = findLoadedClass(name);
+		if (c == null) {
+			try {
+				c = findClass(name);
+			} catch (ClassNotFoundException e) {
+				return super.loadClass(name, resolve);
+			}
+		}
+		if (resolve) {
+			resolveClass(c);
+		}
+		return c;
+	}
+}
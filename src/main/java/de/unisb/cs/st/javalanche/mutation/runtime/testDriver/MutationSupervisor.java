@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.javaagent.MutationsForRun;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.properties.PropertyConfiguration;
+import de.unisb.cs.st.javalanche.mutation.properties.RunMode;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+import de.unisb.cs.st.javalanche.mutation.runtime.testDriver.junit.JavalancheWrapperTestSuite;
+
+/**
+ * Starts several worker virtual machines and hands out the mutations of this
+ * run to them one at a time. Workers request the next mutation via a local
+ * socket (see {@link SupervisorClient}). Thus, a worker that finishes early
+ * takes over work of the others.
+ * 
+ * A worker that exits with the restart code 10 (see
+ * {@link MutationTestDriver#RESTART_MESSAGE}) is started again and continues
+ * with the remaining mutations. If a worker exits unexpectedly,
+ * the mutation it was testing is stored as causing a JVM breakdown.
+ * 
+ * The workers are started with the same virtual machine arguments and class
+ * path as the supervisor, but in the regular mutation run mode.
+ * 
+ */
+public class MutationSupervisor {
+
+	private static Logger logger = Logger.getLogger(MutationSupervisor.class);
+
+	/**
+	 * Property that tells a worker the port of the supervisor.
+	 */
+	public static final String PORT_KEY = "javalanche.supervisor.port";
+
+	/**
+	 * Property that tells a worker its number.
+	 */
+	public static final String WORKER_KEY = "javalanche.supervisor.worker";
+
+	static final String NEXT_COMMAND = "NEXT";
+
+	static final String DONE_REPLY = "DONE";
+
+	/**
+	 * Exit code of a worker that shut down because of a mutation that could
+	 * not be stopped.
+	 */
+	static final int RESTART_EXIT_CODE = 10;
+
+	/**
+	 * Number of consecutive starts of a worker that do not take a mutation
+	 * after which the worker is given up.
+	 */
+	private static final int MAX_RESTARTS_WITHOUT_PROGRESS = 3;
+
+	private final int workers;
+
+	private final ConcurrentLinkedQueue<Long> queue = new ConcurrentLinkedQueue<Long>();
+
+	/**
+	 * The mutation each worker is currently testing.
+	 */
+	private final Map<Integer, Long> inFlight = new HashMap<Integer, Long>();
+
+	/**
+	 * The number of mutations each worker requested.
+	 */
+	private final Map<Integer, Integer> requested = new HashMap<Integer, Integer>();
+
+	private ServerSocket serverSocket;
+
+	public MutationSupervisor(int workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * Runs the workers until all mutations are tested.
+	 */
+	public void run() {
+		for (Mutation m : MutationsForRun.getFromDefaultLocation()
+				.getMutations()) {
+			queue.add(m.getId());
+		}
+		logger.info("Distributing " + queue.size() + " mutations to "
+				+ workers + " workers");
+		startServer();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < workers; i++) {
+			final int worker = i;
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					superviseWorker(worker);
+				}
+			}, "javalanche-supervisor-worker-" + worker);
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		stopServer();
+		if (queue.isEmpty()) {
+			String tag = "ALL_RESULTS";
+			System.out.println(tag);
+			logger.info(tag);
+		} else {
+			logger.warn(queue.size() + " mutations were not tested");
+		}
+	}
+
+	/**
+	 * Opens the socket on which the workers request their mutations.
+	 */
+	void startServer() {
+		try {
+			serverSocket = new ServerSocket(0, 50, InetAddress
+					.getByName("localhost"));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				acceptConnections();
+			}
+		}, "javalanche-supervisor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	void stopServer() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			logger.warn("Could not close server socket", e);
+		}
+	}
+
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	void addMutationId(Long id) {
+		queue.add(id);
+	}
+
+	private void superviseWorker(int worker) {
+		int startsWithoutProgress = 0;
+		while (startsWithoutProgress < MAX_RESTARTS_WITHOUT_PROGRESS) {
+			int requestedBefore = getRequested(worker);
+			int exitCode = startWorker(worker);
+			Long id = takeInFlight(worker);
+			logger.info("Worker " + worker + " exited with code " + exitCode);
+			if (exitCode == 0 && queue.isEmpty()) {
+				return;
+			}
+			if (exitCode != RESTART_EXIT_CODE && exitCode != 0 && id != null) {
+				Mutation m = QueryManager.getMutationByID(id);
+				if (m != null && m.getMutationResult() == null) {
+					logger.warn("Mutation " + id + " caused worker " + worker
+							+ " to exit");
+					MutationTestDriver.setShutdownResult(m);
+				}
+			}
+			if (getRequested(worker) > requestedBefore) {
+				startsWithoutProgress = 0;
+			} else {
+				startsWithoutProgress++;
+			}
+			if (queue.isEmpty()) {
+				return;
+			}
+			logger.info("Restarting worker " + worker);
+		}
+		logger.warn("Giving up worker " + worker + " after "
+				+ MAX_RESTARTS_WITHOUT_PROGRESS
+				+ " starts that did not take a mutation");
+	}
+
+	private int startWorker(int worker) {
+		List<String> command = getWorkerCommand(worker);
+		logger.debug("Starting worker: " + command);
+		File outputFile = new File(ConfigurationLocator
+				.getJavalancheConfiguration().getOutputDir(),
+				"output-worker-" + worker + ".txt");
+		try {
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectErrorStream(true);
+			Process process = builder.start();
+			OutputStream out = new FileOutputStream(outputFile, true);
+			try {
+				copy(process.getInputStream(), out);
+				return process.waitFor();
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not start worker " + worker, e);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void copy(InputStream in, OutputStream out)
+			throws IOException {
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Returns the command that starts a worker. The worker uses the same
+	 * virtual machine arguments as this virtual machine, except for the run
+	 * mode.
+	 */
+	private List<String> getWorkerCommand(int worker) {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java");
+		String runModeArg = "-D" + PropertyConfiguration.RUN_MODE_KEY + "=";
+		for (String arg : ManagementFactory.getRuntimeMXBean()
+				.getInputArguments()) {
+			if (!arg.startsWith(runModeArg)
+					&& !arg.startsWith("-D" + PORT_KEY + "=")
+					&& !arg.startsWith("-D" + WORKER_KEY + "=")) {
+				command.add(arg);
+			}
+		}
+		command.add(runModeArg + RunMode.MUTATION_TEST.getKey());
+		command.add("-D" + PORT_KEY + "=" + serverSocket.getLocalPort());
+		command.add("-D" + WORKER_KEY + "=" + worker);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("org.junit.runner.JUnitCore");
+		command.add(JavalancheWrapperTestSuite.class.getName());
+		return command;
+	}
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				Thread thread = new Thread(new Runnable() {
+					public void run() {
+						serve(socket);
+					}
+				}, "javalanche-supervisor-connection");
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					logger.warn("Could not accept connection", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Answers the requests of one worker. A request for the next mutation
+	 * also signals that the previous mutation of this worker is finished.
+	 */
+	private void serve(Socket socket) {
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream()));
+			PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] split = line.split(" ");
+				if (split.length != 2 || !split[0].equals(NEXT_COMMAND)) {
+					logger.warn("Unexpected request: " + line);
+					continue;
+				}
+				int worker = Integer.parseInt(split[1]);
+				Long id = queue.poll();
+				synchronized (this) {
+					inFlight.put(worker, id);
+					if (id != null) {
+						requested.put(worker, getRequested(worker) + 1);
+					}
+				}
+				out.println(id != null ? id.toString() : DONE_REPLY);
+			}
+			socket.close();
+		} catch (IOException e) {
+			logger.warn("Connection to worker failed", e);
+		}
+	}
+
+	synchronized int getRequested(int worker) {
+		Integer count = requested.get(worker);
+		return count == null ? 0 : count;
+	}
+
+	synchronized Long takeInFlight(int worker) {
+		return inFlight.remove(worker);
+	}
+}
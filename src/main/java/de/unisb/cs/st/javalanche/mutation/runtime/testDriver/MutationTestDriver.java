@@ -25,25 +25,24 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.lang.management.ManagementFactory;
-import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.time.DurationFormatUtils;
 import org.apache.commons.lang.time.StopWatch;
 import org.apache.log4j.Logger;
@@ -56,6 +55,7 @@ import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
 import de.unisb.cs.st.javalanche.mutation.properties.JavalancheConfiguration;
 import de.unisb.cs.st.javalanche.mutation.properties.JavalancheMessages;
 import de.unisb.cs.st.javalanche.mutation.properties.RunMode;
+import de.unisb.cs.st.javalanche.mutation.results.MethodHashes;
 import de.unisb.cs.st.javalanche.mutation.results.Mutation;
 import de.unisb.cs.st.javalanche.mutation.results.MutationCoverageFile;
 import de.unisb.cs.st.javalanche.mutation.results.MutationTestResult;
@@ -63,10 +63,12 @@ import de.unisb.cs.st.javalanche.mutation.results.TestMessage;
 import de.unisb.cs.st.javalanche.mutation.results.TestName;
 import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
 import de.unisb.cs.st.javalanche.mutation.runtime.CoverageDataUtil;
+import de.unisb.cs.st.javalanche.mutation.runtime.LoopBudget;
 import de.unisb.cs.st.javalanche.mutation.runtime.MutationObserver;
 import de.unisb.cs.st.javalanche.mutation.runtime.MutationSwitcher;
 import de.unisb.cs.st.javalanche.mutation.runtime.ResultReporter;
-import de.unisb.cs.st.javalanche.mutation.util.ThreadUtilities;
+import de.unisb.cs.st.javalanche.mutation.runtime.StaticState;
+import de.unisb.cs.st.javalanche.mutation.runtime.WeakMutation;
 
 /**
  * Abstract class that drives the mutation test process. Driver for specific
@@ -89,9 +91,18 @@ public abstract class MutationTestDriver {
 
 	public static final String RESTART_MESSAGE = "Shutting down JVM.";
 
+	/**
+	 * Lower bound for the loop budget of a test, so that tests that execute
+	 * mutated methods only rarely in the unmutated run are not aborted.
+	 */
+	private static final long MIN_LOOP_BUDGET = 1000000;
+
 	private static Logger logger = Logger.getLogger(MutationTestDriver.class);
 
-	final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+	/**
+	 * Executes the tests in a reused thread and enforces the timeout.
+	 */
+	private final TestExecutor testExecutor = new TestExecutor();
 
 	JavalancheConfiguration configuration = ConfigurationLocator
 			.getJavalancheConfiguration();
@@ -137,6 +148,24 @@ public abstract class MutationTestDriver {
 
 	private Thread shutDownThread;
 
+	/**
+	 * True if this driver is one of several workers of a
+	 * {@link ParallelMutationRunner}. A worker must not stop the virtual
+	 * machine, since the other workers are still running.
+	 */
+	private boolean parallelWorker;
+
+	/**
+	 * The mutations of the group that is currently tested, or null if no
+	 * group is tested.
+	 */
+	private List<Mutation> currentGroup;
+
+	/**
+	 * The members of the current group whose tests finished.
+	 */
+	private List<Mutation> groupTested;
+
 	private Long lastId;
 
 	private FileWriter controlFileWriter;
@@ -145,12 +174,50 @@ public abstract class MutationTestDriver {
 
 	private ResultReporter resultReporter;
 
+	/**
+	 * Orders the tests for each mutation, if enabled.
+	 */
+	private TestPrioritizer testPrioritizer;
+
+	/**
+	 * Baseline durations of the tests in milliseconds, used to compute
+	 * adaptive timeouts.
+	 */
+	private Map<String, Long> baselineDurations;
+
+	/**
+	 * Values of the {@link LoopBudget} counter for the unmutated runs of the
+	 * tests.
+	 */
+	private Map<String, Long> baselineLoopCounts = new HashMap<String, Long>();
+
+	/**
+	 * Number of mutations and test runs of the current mutation run.
+	 */
+	private int totalMutations, totalTests;
+
+	/**
+	 * Hashes of the tests recorded during the scan, used in incremental mode.
+	 */
+	private MethodHashes methodHashes;
+
 	public static void main(String[] args) throws ClassNotFoundException,
 			InstantiationException, IllegalAccessException {
 		runFromProperty();
 	}
 
 	public MutationTestDriver() {
+	}
+
+	/**
+	 * Opens the control file that records the id of the mutation that is
+	 * currently tested, and reads the id of the last mutation from a previous
+	 * run.
+	 * 
+	 * @param suffix
+	 *            suffix for the name of the control file
+	 */
+	private void openControlFile(String suffix) {
 		File dir = configuration.getOutputDir();
 		lastId = 0l;
 		try {
@@ -161,7 +228,8 @@ public abstract class MutationTestDriver {
 			} else {
 				s = "default";
 			}
-			controlFile = new File(dir, s + "-mutation-id-control-file");
+			controlFile = new File(dir, s + suffix
+					+ "-mutation-id-control-file");
 			logger.info("Control file: " + controlFile + " "
 					+ Util.getStackTraceString());
 			if (controlFile.exists()) {
@@ -208,14 +276,25 @@ public abstract class MutationTestDriver {
 		RunMode runMode = configuration.getRunMode();
 		logger.debug("Run Mode" + runMode);
 		if (runMode == MUTATION_TEST || runMode == MUTATION_TEST_INVARIANT
-				|| runMode == MUTATION_TEST_COVERAGE) {
+				|| runMode == MUTATION_TEST_COVERAGE
+				|| runMode == MUTATION_TEST_HOTSWAP) {
 			if (runMode == MUTATION_TEST_COVERAGE) {
 				addMutationTestListener(new CoverageMutationListener());
 				// runNormalTests();
 			}
 			resultReporter = new ResultReporter();
 			listeners.addLast(resultReporter);
-			runMutations();
+			int workers = configuration.getParallelWorkers();
+			if (runMode == MUTATION_TEST && workers > 1) {
+				new ParallelMutationRunner(getClass().getName(), workers,
+						resultReporter).run();
+			} else {
+				runMutations();
+			}
+		} else if (runMode == MUTATION_TEST_WEAK) {
+			runWeakMutations();
+		} else if (runMode == MUTATION_SUPERVISOR) {
+			new MutationSupervisor(configuration.getWorkerProcesses()).run();
 		} else if (runMode == SCAN) {
 			scanTests();
 		} else if (runMode == CREATE_COVERAGE_MULT) {
@@ -423,7 +502,10 @@ public abstract class MutationTestDriver {
 			logger.info("(" + counter + " / " + size + ") Running test:  "
 					+ testName);
 			MutationTestRunnable runnable = getTestRunnable(testName);
-			runWithTimeout(runnable);
+			LoopBudget.reset();
+			long duration = runWithTimeout(runnable);
+			recordBaselineDuration(testName, duration);
+			recordBaselineLoopCount(testName, LoopBudget.getCount());
 			SingleTestResult result = runnable.getResult();
 			if (!result.hasPassed()) {
 				failed.add(testName + " : " + result);
@@ -446,12 +528,63 @@ public abstract class MutationTestDriver {
 		if (checkMutations()) {
 			return;
 		}
-		shutDownThread = new Thread(new MutationDriverShutdownHook(this));
+		Integer port = Integer.getInteger(MutationSupervisor.PORT_KEY);
+		if (port != null) {
+			int worker = Integer.getInteger(MutationSupervisor.WORKER_KEY, 0);
+			openControlFile("-process-" + worker);
+			mutationSwitcher = new MutationSwitcher(new SupervisorClient(port,
+					worker));
+		} else {
+			openControlFile("");
+			mutationSwitcher = new MutationSwitcher();
+		}
+		runMutations(true);
+	}
+
+	/**
+	 * Runs the mutation testing for the given mutations. Used by the
+	 * {@link ParallelMutationRunner} to run a worker in its own class loader.
+	 * 
+	 * @param mutations
+	 *            the mutations to test
+	 * @param reporter
+	 *            the reporter that is shared by all workers
+	 * @param worker
+	 *            the number of the worker
+	 * @return the mutations that were not tested, because the worker was
+	 *         abandoned after a mutation that could not be stopped
+	 */
+	public List<Mutation> runMutations(Collection<Mutation> mutations,
+			ResultReporter reporter, int worker) {
+		resultReporter = reporter;
+		listeners.addLast(resultReporter);
+		parallelWorker = true;
+		openControlFile("-worker-" + worker);
+		mutationSwitcher = new MutationSwitcher(mutations);
+		List<Mutation> untested = new ArrayList<Mutation>();
+		try {
+			runMutations(false);
+		} catch (WorkerAbandonedException e) {
+			logger.warn("Abandoning worker " + worker + ": " + e.getMessage());
+			closeControlFile();
+			for (Mutation m : mutations) {
+				if (m.getMutationResult() == null) {
+					untested.add(m);
+				}
+			}
+		}
+		return untested;
+	}
+
+	private void runMutations(boolean reportSummary) {
 		addMutationTestListener(new MutationObserver());
 		addListenersFromProperty();
-		Runtime.getRuntime().addShutdownHook(shutDownThread);
-		mutationSwitcher = new MutationSwitcher();
-		int totalMutations = 0, totalTests = 0;
+		if (!parallelWorker) {
+			shutDownThread = new Thread(new MutationDriverShutdownHook(this));
+			Runtime.getRuntime().addShutdownHook(shutDownThread);
+		}
+		totalMutations = 0;
+		totalTests = 0;
 		List<String> allTests = getAllTests();
 		if (doColdRun) {
 			long timeoutBack = getTimeout();
@@ -462,65 +595,264 @@ public abstract class MutationTestDriver {
 			}
 			setTimeout(timeoutBack);
 		}
+		if (configuration.useStaticStateReset()) {
+			StaticState.snapshot();
+		}
 		testsStart();
+		int groupSize = getMutationGroupSize();
 		while (mutationSwitcher.hasNext()) {
-			currentMutation = mutationSwitcher.next();
-			writeId(currentMutation);
-			boolean shouldRun = checkId(currentMutation);
-			if (!shouldRun) {
-				logger.warn("Skipping mutation. That caused JVM to go down: "
-						+ currentMutation);
-				setShutdownResult(currentMutation);
-				resultReporter.persist();
-				continue;
-			}
-			totalMutations++;
-			checkClasspath(currentMutation);
-			boolean runAllTests = ConfigurationLocator
-					.getJavalancheConfiguration().runAllTestsForMutation();
-			Set<String> testsForThisRun = null;
-			if (runAllTests) {
-				testsForThisRun = new HashSet<String>(allTests);
-			} else {
-				Set<String> coveredTests = MutationCoverageFile
-					.getCoverageData(currentMutation);
-				testsForThisRun = coveredTests.size() > 0 ? coveredTests
-					: new HashSet<String>(allTests);
+			List<Mutation> group = mutationSwitcher.nextGroup(groupSize);
+			if (group.size() == 1) {
+				runMutation(group.get(0), allTests);
+			} else if (group.size() > 1) {
+				for (Mutation m : runGroup(group)) {
+					mutationSwitcher.select(m);
+					runMutation(m, allTests);
+				}
 			}
-			String message = "Applying " + totalMutations
-					+ "th mutation with id " + currentMutation.getId()
-					+ ". Running " + testsForThisRun.size() + " tests";
-			System.out.println(message);
-			// Some projects swallow system out (e.g. aspectj)
-			logger.info(message);
-			// Do the mutation test
-			mutationSwitcher.switchOn();
-			mutationStart(currentMutation);
-			MutationTestResult mutationTestResult = runTests(testsForThisRun);
-			totalTests += mutationTestResult.getRuns();
-			mutationSwitcher.switchOff();
-			// Report the results
-			currentMutation.setMutationResult(mutationTestResult);
-			mutationEnd(currentMutation);
-
 		}
 		testsEnd();
-		checkMutations();
 		logger.info("Test Runs finished. Run " + totalTests + " tests for "
 				+ totalMutations + " mutations ");
 		System.out.println(MutationObserver.summary(true));
-		MutationObserver.reportAppliedMutations();
+		if (reportSummary) {
+			checkMutations();
+			MutationObserver.reportAppliedMutations();
+		}
 
+		closeControlFile();
+		if (shutDownThread != null) {
+			Runtime.getRuntime().removeShutdownHook(shutDownThread);
+		}
+	}
+
+	private void closeControlFile() {
 		try {
 			controlFileWriter.close();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 		controlFile.delete();
-		Runtime.getRuntime().removeShutdownHook(shutDownThread);
 	}
 
-	private void setShutdownResult(Mutation m) {
+	/**
+	 * Runs all tests once with the code for the weak mutation run, which
+	 * evaluates the mutated code next to the unmutated code. Mutations that
+	 * are covered but never change a value get a result, so that their tests
+	 * are not run in the following mutation runs.
+	 */
+	private void runWeakMutations() {
+		if (checkMutations()) {
+			return;
+		}
+		List<Mutation> mutations = MutationsForRun.getFromDefaultLocation()
+				.getMutations();
+		addListenersFromProperty();
+		WeakMutation.reset();
+		testsStart();
+		List<SingleTestResult> failing = runNormalTests(getAllTests());
+		testsEnd();
+		if (failing.size() > 0) {
+			logger.warn(failing.size() + " tests failed in weak mutation run");
+		}
+		int covered = 0, notInfected = 0;
+		for (Mutation m : mutations) {
+			if (WeakMutation.isCovered(m.getId())) {
+				covered++;
+				if (!WeakMutation.isInfected(m.getId())) {
+					MutationTestResult mr = new MutationTestResult();
+					mr.setTouched(true);
+					mr.setNotInfected(true);
+					QueryManager.updateMutation(m, mr);
+					notInfected++;
+				}
+			}
+		}
+		String message = String.format(
+				"%d of %d mutations covered. %d of them do not infect the state",
+				covered, mutations.size(), notInfected);
+		System.out.println(message);
+		logger.info(message);
+	}
+
+	/**
+	 * Applies the given mutation and runs its tests.
+	 * 
+	 * @param mutation
+	 *            the mutation that is set as current mutation of the
+	 *            {@link MutationSwitcher}
+	 * @param allTests
+	 *            all tests, which are run when there is no coverage data
+	 */
+	private void runMutation(Mutation mutation, List<String> allTests) {
+		currentMutation = mutation;
+		writeId(currentMutation);
+		boolean shouldRun = checkId(currentMutation);
+		if (!shouldRun) {
+			logger.warn("Skipping mutation. That caused JVM to go down: "
+					+ currentMutation);
+			setShutdownResult(currentMutation);
+			resultReporter.persist();
+			return;
+		}
+		totalMutations++;
+		checkClasspath(currentMutation);
+		boolean runAllTests = ConfigurationLocator.getJavalancheConfiguration()
+				.runAllTestsForMutation();
+		Set<String> testsForThisRun = null;
+		if (runAllTests) {
+			testsForThisRun = new HashSet<String>(allTests);
+		} else {
+			Set<String> coveredTests = MutationCoverageFile
+					.getCoverageData(currentMutation);
+			testsForThisRun = coveredTests.size() > 0 ? coveredTests
+					: new HashSet<String>(allTests);
+		}
+		String message = "Applying " + totalMutations + "th mutation with id "
+				+ currentMutation.getId() + ". Running "
+				+ testsForThisRun.size() + " tests";
+		System.out.println(message);
+		// Some projects swallow system out (e.g. aspectj)
+		logger.info(message);
+		// Do the mutation test
+		mutationSwitcher.switchOn();
+		mutationStart(currentMutation);
+		MutationTestResult mutationTestResult = runTests(testsForThisRun);
+		totalTests += mutationTestResult.getRuns();
+		if (configuration.useIncrementalMode()) {
+			mutationTestResult.setTestsHash(getTestsHash(currentMutation));
+		}
+		mutationSwitcher.switchOff();
+		// Report the results
+		currentMutation.setMutationResult(mutationTestResult);
+		mutationEnd(currentMutation);
+		if (configuration.useStaticStateReset()) {
+			StaticState.restore();
+		}
+	}
+
+	/**
+	 * Enables the given mutations together and runs the tests that cover each
+	 * of them. The outcome of a test is attributed to the mutation it covers.
+	 * Results are only reported for mutations that were executed exclusively
+	 * by their own tests, and whose tests did not execute another mutation of
+	 * the group. The listeners are informed about the start and the end of
+	 * each member around its own tests. The {@link ResultReporter} is only
+	 * informed when all tests of the group are finished.
+	 * 
+	 * @param group
+	 *            mutations that are covered by disjoint sets of tests
+	 * @return the mutations that have to be run on their own
+	 */
+	private List<Mutation> runGroup(List<Mutation> group) {
+		String message = "Applying group of " + group.size() + " mutations";
+		System.out.println(message);
+		logger.info(message);
+		MutationObserver.setGroup(group);
+		mutationSwitcher.switchOn();
+		currentGroup = group;
+		groupTested = new ArrayList<Mutation>();
+		List<Mutation> deferred = new ArrayList<Mutation>();
+		listeners.remove(resultReporter);
+		try {
+			for (Mutation m : group) {
+				if (!mutationSwitcher.isSwitchedOn()) {
+					// The group was switched off after a test did not stop
+					deferred.add(m);
+					continue;
+				}
+				currentMutation = m;
+				writeId(currentMutation);
+				if (!checkId(currentMutation)) {
+					deferred.add(m);
+					continue;
+				}
+				checkClasspath(currentMutation);
+				Set<String> testsForThisRun = MutationCoverageFile
+						.getCoverageData(currentMutation);
+				logger.info("Running " + testsForThisRun.size()
+						+ " tests for mutation with id "
+						+ currentMutation.getId());
+				mutationStart(currentMutation);
+				MutationTestResult mutationTestResult = runTests(testsForThisRun);
+				if (configuration.useIncrementalMode()) {
+					mutationTestResult
+							.setTestsHash(getTestsHash(currentMutation));
+				}
+				currentMutation.setMutationResult(mutationTestResult);
+				mutationEnd(currentMutation);
+				groupTested.add(m);
+				if (configuration.useStaticStateReset()) {
+					StaticState.restore();
+				}
+			}
+		} finally {
+			listeners.addLast(resultReporter);
+		}
+		mutationSwitcher.switchOff();
+		Set<Long> conflicts = MutationObserver.getGroupConflicts();
+		MutationObserver.setGroup(Collections.<Mutation> emptyList());
+		for (Mutation m : groupTested) {
+			if (conflicts.contains(m.getId())) {
+				m.setMutationResult(null);
+				deferred.add(m);
+			} else {
+				totalMutations++;
+				totalTests += m.getMutationResult().getRuns();
+				resultReporter.mutationEnd(m);
+			}
+		}
+		currentGroup = null;
+		groupTested = null;
+		logger.info(deferred.size() + " of " + group.size()
+				+ " mutations of the group are run on their own");
+		return deferred;
+	}
+
+	/**
+	 * Reports the results of a group whose tests were interrupted by a test
+	 * that could not be stopped. Members whose tests finished without a
+	 * conflict keep their results. The current member and the members that
+	 * were executed by a test of another member get a JVM breakdown result,
+	 * since any of them may have caused the test not to stop. Members that
+	 * were neither started nor executed are tested after the restart.
+	 */
+	private void reportInterruptedGroup() {
+		Set<Long> conflicts = MutationObserver.getGroupConflicts();
+		for (Mutation m : currentGroup) {
+			boolean conflict = conflicts.contains(m.getId());
+			if (groupTested.contains(m) && !conflict) {
+				resultReporter.mutationEnd(m);
+			} else if (m == currentMutation || conflict) {
+				logger.warn("Group member " + m.getId()
+						+ " was enabled when a test did not stop");
+				m.setMutationResult(null);
+				setShutdownResult(m);
+			}
+		}
+		resultReporter.persist();
+	}
+
+	/**
+	 * Returns the maximum number of mutations that are enabled together.
+	 * Groups are only used in the mutation run mode without parallel workers
+	 * and static guards. Static guards can only enable one mutation, and the
+	 * parallel workers share the system properties.
+	 */
+	private int getMutationGroupSize() {
+		int groupSize = configuration.getMutationGroupSize();
+		boolean supported = configuration.getRunMode() == MUTATION_TEST
+				&& configuration.getParallelWorkers() <= 1
+				&& !configuration.useStaticGuards();
+		if (groupSize > 1 && !supported) {
+			logger.warn("Mutation groups are only supported in run mode "
+					+ MUTATION_TEST.getKey() + " without static guards");
+			return 1;
+		}
+		return groupSize;
+	}
+
+	static void setShutdownResult(Mutation m) {
 		MutationTestResult mr = new MutationTestResult();
 		TestMessage t = new TestMessage("No Test",
 				"Mutation caused JVM breakdown", 0);
@@ -591,7 +923,14 @@ public abstract class MutationTestDriver {
 		int size = testsForThisRun.size();
 		// prepareTests();
 		List<SingleTestResult> resultsForMutation = new ArrayList<SingleTestResult>();
-		for (String testName : testsForThisRun) {
+		Collection<String> tests = testsForThisRun;
+		if (configuration.usePrioritizedTestOrder()) {
+			if (testPrioritizer == null) {
+				testPrioritizer = TestPrioritizer.fromDatabase();
+			}
+			tests = testPrioritizer.order(currentMutation, testsForThisRun);
+		}
+		for (String testName : tests) {
 			counter++;
 			logger.info("(" + counter + " / " + size + ") Running test:  "
 					+ testName);
@@ -609,12 +948,16 @@ public abstract class MutationTestDriver {
 
 			currentTestName = testName;
 			MutationTestRunnable runnable = getTestRunnable(testName);
+			long testTimeout = getTestTimeout(testName);
+			MutationObserver.setTimeLimit(testTimeout);
+			LoopBudget.reset();
+			LoopBudget.setBudget(getLoopBudget(testName));
 			testStart(testName);
-			runWithTimeout(runnable);
+			runWithTimeout(runnable, testTimeout);
 			testEnd(testName);
+			LoopBudget.setBudget(LoopBudget.UNLIMITED);
 			SingleTestResult result = runnable.getResult();
-			boolean touched = MutationObserver.getTouchingTestCases().contains(
-					testName);
+			boolean touched = MutationObserver.isTouchingTestCase(testName);
 			result.setTouched(touched);
 			resultsForMutation.add(result);
 			if (configuration.stopAfterFirstFail() && !result.hasPassed()) {
@@ -626,6 +969,9 @@ public abstract class MutationTestDriver {
 			}
 		}
 		currentTestName = "No test name set";
+		if (testPrioritizer != null) {
+			testPrioritizer.update(currentMutation, resultsForMutation);
+		}
 		MutationTestResult mutationTestResult = SingleTestResult
 				.toMutationTestResult(resultsForMutation);
 		return mutationTestResult;
@@ -737,28 +1083,39 @@ public abstract class MutationTestDriver {
 	}
 
 	protected long runWithTimeout(MutationTestRunnable r) {
-		long[] preIds = threadMxBean.getAllThreadIds();
-		FutureTask<Object> future = new FutureTask<Object>(
-				Executors.callable(r));
-		Thread thread = new Thread(future);
-		thread.setDaemon(true);
+		return runWithTimeout(r, TimeUnit.SECONDS.toMillis(timeout));
+	}
+
+	/**
+	 * Runs the given test and stops it after the given time.
+	 * 
+	 * @param r
+	 *            the test to run
+	 * @param timeoutMillis
+	 *            the time in milliseconds after which the test is stopped
+	 * @return the time the test took in milliseconds
+	 */
+	private long runWithTimeout(MutationTestRunnable r, long timeoutMillis) {
 		logger.debug("Start  test: ");
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
-		thread.start();
+		TestExecutor.TestTask future = testExecutor.submit(r, timeoutMillis,
+				TimeUnit.MILLISECONDS);
 		String exceptionMessage = null;
 		Throwable capturedThrowable = null;
 		try {
-			future.get(timeout, TimeUnit.SECONDS);
+			future.get();
 			logger.debug("Second timeout");
+		} catch (CancellationException e) {
+			if (future.isTimedOut()) {
+				exceptionMessage = JavalancheMessages.MUTATION_TIME_LIMIT_MESSAGE
+						+ "Mutation causes test timeout";
+			}
+			capturedThrowable = e;
 		} catch (InterruptedException e) {
 			capturedThrowable = e;
 		} catch (ExecutionException e) {
 			capturedThrowable = e;
-		} catch (TimeoutException e) {
-			exceptionMessage = JavalancheMessages.MUTATION_TIME_LIMIT_MESSAGE
-					+ "Mutation causes test timeout";
-			capturedThrowable = e;
 		} catch (Throwable t) {
 			capturedThrowable = t;
 		} finally {
@@ -773,15 +1130,18 @@ public abstract class MutationTestDriver {
 				r.setFailed(exceptionMessage, capturedThrowable);
 			}
 		}
-		if (!future.isDone()) {
+		if (testExecutor.isRunning()) {
 			r.setFailed(JavalancheMessages.MUTATION_TIME_LIMIT_MESSAGE
 					+ "Mutated Thread is still running after timeout.", null);
 			switchOfMutation(future);
+			if (testExecutor.isRunning()) {
+				testExecutor.replaceWorker();
+			}
 		}
 		stopWatch.stop();
-		if (!checkAllFinished(preIds)) {
+		if (testExecutor.hasLeakedThreads()) {
 			if (configuration.useThreadStop()) {
-				stopThreads(preIds);
+				testExecutor.stopLeakedThreads();
 			} else {
 				shutDown(r, stopWatch);
 			}
@@ -795,8 +1155,8 @@ public abstract class MutationTestDriver {
 		r.setFailed(message, null);
 		TestMessage tm = new TestMessage(currentTestName, message,
 				stopWatch.getTime());
-		boolean touched = MutationObserver.getTouchingTestCases().contains(
-				currentTestName);
+		boolean touched = MutationObserver
+				.isTouchingTestCase(currentTestName);
 		tm.setTouched(touched);
 		setTestMessage(tm);
 		testEnd(currentTestName);
@@ -817,42 +1177,29 @@ public abstract class MutationTestDriver {
 		if (currentMutation != null) {
 			mutationEnd(currentMutation);
 		}
+		if (currentGroup != null) {
+			reportInterruptedGroup();
+		}
 		testsEnd();
+		if (parallelWorker) {
+			throw new WorkerAbandonedException(message + " Mutation: "
+					+ currentMutation);
+		}
 		System.out.println("Exiting now");
 		System.exit(10);
 	}
 
-	private void stopThreads(long[] preIds) {
-		Set<Long> threadIds = getThreadIds(preIds);
-		for (Long tid : threadIds) {
-			Thread runningThread = ThreadUtilities.getThread(tid);
-			if (runningThread != null) {
-				logger.info("Stopping thread " + runningThread);
-				runningThread.stop();
-			}
-		}
-	}
+	/**
+	 * Thrown by a parallel worker that can not stop the threads of a
+	 * mutation. Only this worker is abandoned, the other workers continue.
+	 */
+	private static class WorkerAbandonedException extends RuntimeException {
 
-	private Set<Long> getThreadIds(long[] preIds) {
-		long[] allThreadIds = threadMxBean.getAllThreadIds();
-		List<Long> preList = Arrays.asList(ArrayUtils.toObject(preIds));
-		Set<Long> result = new HashSet<Long>();
-		for (long tid : allThreadIds) {
-			if (!preList.contains(tid)) {
-				result.add(tid);
-			}
-		}
-		return result;
-	}
+		private static final long serialVersionUID = 1L;
 
-	private boolean checkAllFinished(long[] threadIds) {
-		long[] allThreadIds = threadMxBean.getAllThreadIds();
-		if (allThreadIds.length != threadIds.length) {
-			return false;
+		public WorkerAbandonedException(String message) {
+			super(message);
 		}
-		Arrays.sort(threadIds);
-		Arrays.sort(allThreadIds);
-		return Arrays.equals(threadIds, allThreadIds);
 	}
 
 	/**
@@ -868,6 +1215,9 @@ public abstract class MutationTestDriver {
 			setTestMessage(new TestMessage(currentTestName, message, 0));
 			testEnd(currentTestName);
 			mutationEnd(currentMutation);
+			if (currentGroup != null) {
+				reportInterruptedGroup();
+			}
 			testsEnd();
 		} else {
 			logger.warn("Method already called");
@@ -1019,6 +1369,135 @@ public abstract class MutationTestDriver {
 		}
 	}
 
+	/**
+	 * Returns the timeout in milliseconds for the given test. If adaptive
+	 * timeouts are enabled and the baseline duration of the test is known, the
+	 * timeout is the configured multiple of the baseline duration plus the
+	 * configured floor. The global timeout is never exceeded.
+	 * 
+	 * @param testName
+	 *            the test to compute the timeout for
+	 * @return the timeout in milliseconds
+	 */
+	private long getTestTimeout(String testName) {
+		long globalTimeout = TimeUnit.SECONDS.toMillis(timeout);
+		int factor = configuration.getAdaptiveTimeoutFactor();
+		if (factor <= 0) {
+			return globalTimeout;
+		}
+		return computeTestTimeout(getBaselineDurations().get(testName),
+				factor, configuration.getAdaptiveTimeoutFloor(), globalTimeout);
+	}
+
+	/**
+	 * Computes the timeout for a test from its baseline duration.
+	 * 
+	 * @param baseline
+	 *            the baseline duration of the test in milliseconds, or null
+	 *            if it is not known
+	 * @param factor
+	 *            the multiple of the baseline duration, adaptive timeouts are
+	 *            disabled if it is not positive
+	 * @param floor
+	 *            the time in milliseconds that is added to the multiple
+	 * @param globalTimeout
+	 *            the global timeout in milliseconds
+	 * @return the timeout in milliseconds
+	 */
+	static long computeTestTimeout(Long baseline, int factor, long floor,
+			long globalTimeout) {
+		if (factor <= 0 || baseline == null) {
+			return globalTimeout;
+		}
+		return Math.min(factor * baseline + floor, globalTimeout);
+	}
+
+	/**
+	 * Returns the baseline durations of the tests. They are initialized with
+	 * the durations that were recorded when the tests were scanned.
+	 * 
+	 * @return a map from test names to durations in milliseconds
+	 */
+	private Map<String, Long> getBaselineDurations() {
+		if (baselineDurations == null) {
+			baselineDurations = new HashMap<String, Long>();
+			if (configuration.getAdaptiveTimeoutFactor() > 0) {
+				for (TestName testName : QueryManager.getTestsForProject()) {
+					baselineDurations.put(testName.getName(),
+							testName.getDuration());
+				}
+			}
+		}
+		return baselineDurations;
+	}
+
+	/**
+	 * Records the duration of an unmutated run of the given test. The larger
+	 * of the recorded durations is kept.
+	 * 
+	 * @param testName
+	 *            the test that was run
+	 * @param duration
+	 *            the duration of the run in milliseconds
+	 */
+	private void recordBaselineDuration(String testName, long duration) {
+		Map<String, Long> durations = getBaselineDurations();
+		Long previous = durations.get(testName);
+		if (previous == null || previous < duration) {
+			durations.put(testName, duration);
+		}
+	}
+
+	/**
+	 * Returns the combined hash of the tests that cover the given mutation.
+	 * 
+	 * @param mutation
+	 *            the mutation to compute the hash for
+	 * @return the hash of the covering tests
+	 */
+	private String getTestsHash(Mutation mutation) {
+		if (methodHashes == null) {
+			methodHashes = MethodHashes.read();
+		}
+		return methodHashes.getTestsHash(MutationCoverageFile
+				.getCoverageData(mutation));
+	}
+
+	/**
+	 * Records the value of the {@link LoopBudget} counter after an unmutated
+	 * run of the given test. The larger of the recorded values is kept.
+	 * 
+	 * @param testName
+	 *            the test that was run
+	 * @param count
+	 *            the value of the counter after the run
+	 */
+	private void recordBaselineLoopCount(String testName, long count) {
+		Long previous = baselineLoopCounts.get(testName);
+		if (previous == null || previous < count) {
+			baselineLoopCounts.put(testName, count);
+		}
+	}
+
+	/**
+	 * Returns the loop budget for the given test. The budget is the configured
+	 * multiple of the counter value of the unmutated run, but at least
+	 * {@link #MIN_LOOP_BUDGET}. If loop budgets are disabled or the test was
+	 * not run unmutated, the budget is unlimited.
+	 * 
+	 * @param testName
+	 *            the test to compute the budget for
+	 * @return the maximum value of the {@link LoopBudget} counter for the test
+	 */
+	private long getLoopBudget(String testName) {
+		Long baseline = baselineLoopCounts.get(testName);
+		if (!configuration.useLoopBudget() || baseline == null) {
+			return LoopBudget.UNLIMITED;
+		}
+		return Math.max(baseline * configuration.getLoopBudgetFactor(),
+				MIN_LOOP_BUDGET);
+	}
+
 	/**
 	 * @return the timeout
 	 */
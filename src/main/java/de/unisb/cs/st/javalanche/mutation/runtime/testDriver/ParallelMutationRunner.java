@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.javaagent.MutationsForRun;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.runtime.ActiveMutation;
+import de.unisb.cs.st.javalanche.mutation.runtime.MutationObserver;
+import de.unisb.cs.st.javalanche.mutation.runtime.ResultReporter;
+
+/**
+ * Tests the mutations of this run with several workers in one virtual
+ * machine. Each worker creates its own {@link MutationTestDriver} in an
+ * {@link IsolatingClassLoader}. Therefore, every worker has its own copy of
+ * the project classes, and activates its mutations via its own copy of
+ * {@link ActiveMutation}. All workers report their results to one shared
+ * {@link ResultReporter}.
+ * 
+ */
+public class ParallelMutationRunner {
+
+	private static Logger logger = Logger
+			.getLogger(ParallelMutationRunner.class);
+
+	private final String driverClassName;
+
+	private final int workers;
+
+	private final ResultReporter resultReporter;
+
+	public ParallelMutationRunner(String driverClassName, int workers,
+			ResultReporter resultReporter) {
+		this.driverClassName = driverClassName;
+		this.workers = workers;
+		this.resultReporter = resultReporter;
+	}
+
+	/**
+	 * Distributes the mutations to the workers and waits for all workers to
+	 * finish.
+	 */
+	public void run() {
+		if (!ConfigurationLocator.getJavalancheConfiguration()
+				.useStaticGuards()) {
+			throw new RuntimeException(
+					"Parallel workers require static guards, because system properties are shared by all workers.");
+		}
+		List<List<Mutation>> partitions = partition(MutationsForRun
+				.getFromDefaultLocation().getMutations(), workers);
+		List<Thread> threads = new ArrayList<Thread>();
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		for (int i = 0; i < workers; i++) {
+			final int worker = i;
+			final List<Mutation> mutations = partitions.get(i);
+			if (mutations.isEmpty()) {
+				continue;
+			}
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						runWorker(mutations, worker);
+					} catch (Throwable t) {
+						logger.error("Worker " + worker + " failed", t);
+						synchronized (failures) {
+							failures.add(t);
+						}
+					}
+				}
+			}, "javalanche-worker-" + worker);
+			threads.add(thread);
+			logger.info("Starting worker " + worker + " with "
+					+ mutations.size() + " mutations");
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		resultReporter.persist();
+		MutationObserver.reportAppliedMutations();
+		if (failures.size() > 0) {
+			throw new RuntimeException(failures.size()
+					+ " workers failed. First failure: " + failures.get(0),
+					failures.get(0));
+		}
+	}
+
+	/**
+	 * Runs the mutations of one worker. When the worker is abandoned because
+	 * a mutation could not be stopped, the remaining mutations are tested by
+	 * a new driver in a fresh class loader. Since the mutation of the
+	 * abandoned worker is switched off, its threads do not interfere with the
+	 * new driver.
+	 */
+	@SuppressWarnings("unchecked")
+	private void runWorker(List<Mutation> mutations, int worker)
+			throws ClassNotFoundException, InstantiationException,
+			IllegalAccessException, NoSuchMethodException,
+			InvocationTargetException {
+		List<Mutation> remaining = mutations;
+		while (!remaining.isEmpty()) {
+			ClassLoader loader = IsolatingClassLoader
+					.forClassPath(ParallelMutationRunner.class
+							.getClassLoader());
+			Thread.currentThread().setContextClassLoader(loader);
+			Class<?> driverClass = loader.loadClass(driverClassName);
+			Object driver = driverClass.newInstance();
+			Method method = driverClass.getMethod("runMutations",
+					Collection.class, ResultReporter.class, int.class);
+			List<Mutation> untested = (List<Mutation>) method.invoke(driver,
+					remaining, resultReporter, worker);
+			if (untested.size() >= remaining.size()) {
+				throw new RuntimeException("Worker " + worker
+						+ " did not test any of its " + remaining.size()
+						+ " mutations");
+			}
+			if (!untested.isEmpty()) {
+				logger.info("Restarting worker " + worker + " with "
+						+ untested.size() + " mutations");
+			}
+			remaining = untested;
+		}
+	}
+
+	/**
+	 * Distributes the given mutations to the given number of lists. A
+	 * mutation is always assigned to the same worker, so that a worker that
+	 * is restarted finds its last mutation in its control file.
+	 * 
+	 * @param mutations
+	 *            the mutations to distribute
+	 * @param workers
+	 *            the number of workers
+	 * @return a list of mutations for each worker
+	 */
+	static List<List<Mutation>> partition(Collection<Mutation> mutations,
+			int workers) {
+		List<List<Mutation>> result = new ArrayList<List<Mutation>>();
+		for (int i = 0; i < workers; i++) {
+			result.add(new ArrayList<Mutation>());
+		}
+		for (Mutation mutation : mutations) {
+			if (!ActiveMutation.isSupportedId(mutation.getId())) {
+				throw new RuntimeException(
+						"Mutation id can not be used with static guards: "
+								+ mutation.getId());
+			}
+			int worker = (int) (mutation.getId() % workers);
+			result.get(worker).add(mutation);
+		}
+		return result;
+	}
+}
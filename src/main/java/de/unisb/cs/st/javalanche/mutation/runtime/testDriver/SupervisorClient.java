@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+
+/**
+ * Fetches the mutations for a worker virtual machine from the
+ * {@link MutationSupervisor}. A new mutation is requested only when the
+ * previous one is finished.
+ * 
+ */
+public class SupervisorClient implements Iterator<Mutation> {
+
+	private static Logger logger = Logger.getLogger(SupervisorClient.class);
+
+	private final int port;
+
+	private final int worker;
+
+	private BufferedReader in;
+
+	private PrintWriter out;
+
+	private Mutation nextMutation;
+
+	private boolean done;
+
+	public SupervisorClient(int port, int worker) {
+		this.port = port;
+		this.worker = worker;
+	}
+
+	public boolean hasNext() {
+		if (nextMutation == null && !done) {
+			nextMutation = request();
+			done = nextMutation == null;
+		}
+		return nextMutation != null;
+	}
+
+	public Mutation next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Mutation result = nextMutation;
+		nextMutation = null;
+		return result;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	private Mutation request() {
+		Long id = requestId();
+		if (id == null) {
+			return null;
+		}
+		return QueryManager.getMutationByID(id);
+	}
+
+	/**
+	 * Asks the supervisor for the id of the next mutation.
+	 * 
+	 * @return the id of the next mutation, or null if there are no more
+	 *         mutations
+	 */
+	Long requestId() {
+		try {
+			if (out == null) {
+				Socket socket = new Socket("localhost", port);
+				in = new BufferedReader(new InputStreamReader(socket
+						.getInputStream()));
+				out = new PrintWriter(socket.getOutputStream(), true);
+			}
+			out.println(MutationSupervisor.NEXT_COMMAND + " " + worker);
+			String line = in.readLine();
+			if (line == null || line.equals(MutationSupervisor.DONE_REPLY)) {
+				logger.info("No more mutations from supervisor");
+				return null;
+			}
+			Long id = Long.valueOf(line.trim());
+			logger.debug("Got mutation " + id + " from supervisor");
+			return id;
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Could not get mutation from supervisor on port " + port,
+					e);
+		}
+	}
+}
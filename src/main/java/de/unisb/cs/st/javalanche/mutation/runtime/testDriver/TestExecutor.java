@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executes tests in a reused worker thread. Timeouts are enforced by one
+ * watchdog thread that cancels the running test when its deadline has passed.
+ * 
+ * The worker runs in its own {@link ThreadGroup}. Threads started by a test
+ * inherit this group, so threads that are still alive after a test are found
+ * by inspecting the group.
+ * 
+ */
+public class TestExecutor {
+
+	private static Logger logger = Logger.getLogger(TestExecutor.class);
+
+	/**
+	 * Interval in milliseconds in which the watchdog checks the deadline of
+	 * the running test.
+	 */
+	private static final long WATCHDOG_INTERVAL = 50;
+
+	private final ThreadGroup threadGroup = new ThreadGroup(
+			"javalanche-tests");
+
+	private final ScheduledExecutorService watchdog;
+
+	private ExecutorService worker;
+
+	/**
+	 * The thread of the current worker.
+	 */
+	private volatile Thread workerThread;
+
+	/**
+	 * The test that is currently executed.
+	 */
+	private volatile TestTask currentTask;
+
+	public TestExecutor() {
+		watchdog = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "javalanche-watchdog");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		watchdog.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				TestTask task = currentTask;
+				if (task != null && !task.isDone()
+						&& System.currentTimeMillis() > task.deadline) {
+					logger.debug("Cancelling test after timeout");
+					task.timedOut = true;
+					task.cancel(true);
+				}
+			}
+		}, WATCHDOG_INTERVAL, WATCHDOG_INTERVAL, TimeUnit.MILLISECONDS);
+		worker = newWorker();
+	}
+
+	private ExecutorService newWorker() {
+		return Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(threadGroup, r, "javalanche-test");
+				thread.setDaemon(true);
+				workerThread = thread;
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Starts the given test in the worker thread.
+	 * 
+	 * @param r
+	 *            the test to run
+	 * @param timeout
+	 *            the time after which the test is cancelled
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the task that executes the test
+	 */
+	public TestTask submit(Runnable r, long timeout, TimeUnit unit) {
+		TestTask task = new TestTask(r, System.currentTimeMillis()
+				+ unit.toMillis(timeout));
+		currentTask = task;
+		worker.execute(task);
+		return task;
+	}
+
+	/**
+	 * Returns true if the worker is still executing the last submitted test,
+	 * even if it was cancelled.
+	 * 
+	 * @return true, if the worker is still executing the last test
+	 */
+	public boolean isRunning() {
+		TestTask task = currentTask;
+		return task != null && task.isRunning();
+	}
+
+	/**
+	 * Gives up the current worker thread and creates a new one for the next
+	 * test. Used when a test does not react to cancellation. The old worker
+	 * is reported by {@link #getLeakedThreads()} as long as it is alive.
+	 */
+	public void replaceWorker() {
+		logger.info("Replacing worker thread " + workerThread);
+		worker.shutdownNow();
+		worker = newWorker();
+		workerThread = null;
+	}
+
+	/**
+	 * Returns the threads that are running in the thread group of the tests,
+	 * except for an idle worker thread.
+	 * 
+	 * @return the threads that were started by tests and are still alive
+	 */
+	public List<Thread> getLeakedThreads() {
+		Thread[] threads = new Thread[threadGroup.activeCount() + 8];
+		int count = threadGroup.enumerate(threads, true);
+		List<Thread> result = new ArrayList<Thread>();
+		for (int i = 0; i < count; i++) {
+			Thread thread = threads[i];
+			if (thread.isAlive()
+					&& (thread != workerThread || isRunning())) {
+				result.add(thread);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if threads that were started by tests are still alive.
+	 * 
+	 * @return true, if threads that were started by tests are still alive
+	 */
+	public boolean hasLeakedThreads() {
+		return getLeakedThreads().size() > 0;
+	}
+
+	/**
+	 * Stops all threads that were started by tests and are still alive.
+	 */
+	@SuppressWarnings("deprecation")
+	public void stopLeakedThreads() {
+		boolean stopWorker = isRunning();
+		for (Thread thread : getLeakedThreads()) {
+			logger.info("Stopping thread " + thread);
+			thread.stop();
+		}
+		if (stopWorker) {
+			replaceWorker();
+		}
+	}
+
+	/**
+	 * Stops the worker and the watchdog.
+	 */
+	public void shutdown() {
+		watchdog.shutdownNow();
+		worker.shutdownNow();
+	}
+
+	/**
+	 * A test that is executed by the {@link TestExecutor}.
+	 */
+	public static class TestTask extends FutureTask<Object> {
+
+		private final long deadline;
+
+		private final RunningRunnable runnable;
+
+		private volatile boolean timedOut;
+
+		private TestTask(RunningRunnable runnable, long deadline) {
+			super(runnable, null);
+			this.runnable = runnable;
+			this.deadline = deadline;
+		}
+
+		private TestTask(Runnable r, long deadline) {
+			this(new RunningRunnable(r), deadline);
+		}
+
+		/**
+		 * Returns true if the test was cancelled by the watchdog.
+		 * 
+		 * @return true, if the test was cancelled because of a timeout
+		 */
+		public boolean isTimedOut() {
+			return timedOut;
+		}
+
+		/**
+		 * Returns true if the test code is still executed. In contrast to
+		 * {@link #isDone()} this stays true after a cancellation until the
+		 * test actually returns.
+		 * 
+		 * @return true, if the test code is still executed
+		 */
+		public boolean isRunning() {
+			return runnable.running;
+		}
+	}
+
+	/**
+	 * Keeps track of whether the wrapped runnable is executed. The flag is
+	 * reset before the result of the surrounding task is set.
+	 */
+	private static class RunningRunnable implements Runnable {
+
+		private final Runnable r;
+
+		private volatile boolean running;
+
+		public RunningRunnable(Runnable r) {
+			this.r = r;
+		}
+
+		public void run() {
+			running = true;
+			try {
+				r.run();
+			} finally {
+				running = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.TestName;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+
+/**
+ * Orders the tests for a mutation by their expected kill probability per unit
+ * of time.
+ * 
+ * The kill probability of a test is estimated from the results of the
+ * mutations tested before in this run. Kills of mutations in the same line
+ * count most, followed by kills of mutations in the same method and kills of
+ * mutations of the same type. The time of a test is the duration that was
+ * recorded during the scan.
+ * 
+ */
+public class TestPrioritizer {
+
+	private static final int LINE_WEIGHT = 4;
+
+	private static final int METHOD_WEIGHT = 2;
+
+	private static final int TYPE_WEIGHT = 1;
+
+	/**
+	 * Duration that is assumed for tests without a recorded duration.
+	 */
+	private static final long UNKNOWN_DURATION = 1000;
+
+	private final Map<String, Long> durations;
+
+	/**
+	 * Number of runs and kills per test for each line, method and mutation
+	 * type.
+	 */
+	private final Map<String, Map<String, int[]>> history = new HashMap<String, Map<String, int[]>>();
+
+	public TestPrioritizer(Map<String, Long> durations) {
+		this.durations = durations;
+	}
+
+	/**
+	 * Creates a prioritizer that uses the test durations stored in the
+	 * database.
+	 * 
+	 * @return a prioritizer that uses the test durations from the database
+	 */
+	public static TestPrioritizer fromDatabase() {
+		Map<String, Long> durations = new HashMap<String, Long>();
+		for (TestName testName : QueryManager.getTestsForProject()) {
+			durations.put(testName.getName(), testName.getDuration());
+		}
+		return new TestPrioritizer(durations);
+	}
+
+	/**
+	 * Returns the given tests ordered by their expected kill probability per
+	 * unit of time for the given mutation.
+	 * 
+	 * @param mutation
+	 *            the mutation the tests are run for
+	 * @param tests
+	 *            the tests to order
+	 * @return the tests in the order they should be run
+	 */
+	public List<String> order(Mutation mutation, Collection<String> tests) {
+		final Map<String, Double> scores = new HashMap<String, Double>();
+		Map<String, int[]> line = getHistory(getLineKey(mutation));
+		Map<String, int[]> method = getHistory(getMethodKey(mutation));
+		Map<String, int[]> type = getHistory(getTypeKey(mutation));
+		for (String test : tests) {
+			int runs = 0;
+			int kills = 0;
+			int[] count = line.get(test);
+			if (count != null) {
+				runs += LINE_WEIGHT * count[0];
+				kills += LINE_WEIGHT * count[1];
+			}
+			count = method.get(test);
+			if (count != null) {
+				runs += METHOD_WEIGHT * count[0];
+				kills += METHOD_WEIGHT * count[1];
+			}
+			count = type.get(test);
+			if (count != null) {
+				runs += TYPE_WEIGHT * count[0];
+				kills += TYPE_WEIGHT * count[1];
+			}
+			double probability = (kills + 1.) / (runs + 2.);
+			scores.put(test, probability / (getDuration(test) + 1));
+		}
+		List<String> result = new ArrayList<String>(tests);
+		Collections.sort(result, new Comparator<String>() {
+			public int compare(String o1, String o2) {
+				int comp = scores.get(o2).compareTo(scores.get(o1));
+				return comp != 0 ? comp : o1.compareTo(o2);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Records the results of the tests that were run for the given mutation.
+	 * 
+	 * @param mutation
+	 *            the mutation the tests were run for
+	 * @param results
+	 *            the results of the tests
+	 */
+	public void update(Mutation mutation, Collection<SingleTestResult> results) {
+		Map<String, int[]> line = getHistory(getLineKey(mutation));
+		Map<String, int[]> method = getHistory(getMethodKey(mutation));
+		Map<String, int[]> type = getHistory(getTypeKey(mutation));
+		for (SingleTestResult result : results) {
+			String test = result.getTestMessage().getTestCaseName();
+			boolean killed = !result.hasPassed();
+			count(line, test, killed);
+			count(method, test, killed);
+			count(type, test, killed);
+		}
+	}
+
+	private static void count(Map<String, int[]> map, String test,
+			boolean killed) {
+		int[] count = map.get(test);
+		if (count == null) {
+			count = new int[2];
+			map.put(test, count);
+		}
+		count[0]++;
+		if (killed) {
+			count[1]++;
+		}
+	}
+
+	private long getDuration(String test) {
+		Long duration = durations.get(test);
+		return duration != null ? duration : UNKNOWN_DURATION;
+	}
+
+	private Map<String, int[]> getHistory(String key) {
+		Map<String, int[]> map = history.get(key);
+		if (map == null) {
+			map = new HashMap<String, int[]>();
+			history.put(key, map);
+		}
+		return map;
+	}
+
+	private static String getLineKey(Mutation m) {
+		return "L:" + m.getClassName() + ":" + m.getLineNumber();
+	}
+
+	private static String getMethodKey(Mutation m) {
+		return "M:" + m.getClassName() + "." + m.getMethodName();
+	}
+
+	private static String getTypeKey(Mutation m) {
+		return "T:" + m.getMutationType();
+	}
+}
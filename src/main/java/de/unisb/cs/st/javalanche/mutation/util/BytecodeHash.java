@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.util.TraceMethodVisitor;
+
+/**
+ * Computes content hashes of bytecode. Debug information such as local
+ * variable names is not included in the hashes, so that changes in other
+ * parts of a source file do not change the hash of a method. The hashes of
+ * methods include their line numbers, because mutations are identified by
+ * their line. The hashes of classes do not.
+ */
+public class BytecodeHash {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Class should not be initialized.
+	 */
+	private BytecodeHash() {
+	}
+
+	/**
+	 * Returns the hashes of all methods of the given class. The hash of a
+	 * method changes when its instructions or its line numbers change, e.g.
+	 * when a line is added above the method.
+	 * 
+	 * @param classBytes
+	 *            the bytecode of the class
+	 * @return a map from method names including their descriptor to hashes
+	 */
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	public static Map<String, String> hashMethods(byte[] classBytes) {
+		Map<String, String> instructionHashes = hashInstructions(classBytes);
+		ClassNode classNode = new ClassNode();
+		new ClassReader(classBytes).accept(classNode, ClassReader.SKIP_FRAMES);
+		Map<String, String> result = new HashMap<String, String>();
+		Iterator<MethodNode> it = classNode.methods.iterator();
+		while (it.hasNext()) {
+			MethodNode method = it.next();
+			String key = method.name + method.desc;
+			result.put(key, hash(instructionHashes.get(key) + " "
+					+ getLines(method)));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the hashes of the instructions of all methods of the given
+	 * class, without their line numbers.
+	 * 
+	 * @param classBytes
+	 *            the bytecode of the class
+	 * @return a map from method names including their descriptor to hashes
+	 */
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	public static Map<String, String> hashInstructions(byte[] classBytes) {
+		ClassReader cr = new ClassReader(classBytes);
+		ClassNode classNode = new ClassNode();
+		cr.accept(classNode, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		Map<String, String> result = new HashMap<String, String>();
+		Iterator<MethodNode> it = classNode.methods.iterator();
+		while (it.hasNext()) {
+			MethodNode method = it.next();
+			result.put(method.name + method.desc, hashMethod(method));
+		}
+		return result;
+	}
+
+	private static String getLines(MethodNode method) {
+		StringBuilder sb = new StringBuilder();
+		for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn
+				.getNext()) {
+			if (insn instanceof LineNumberNode) {
+				sb.append(((LineNumberNode) insn).line).append(',');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the hash of the instructions of the given method.
+	 * 
+	 * @param method
+	 *            the method to compute the hash for
+	 * @return the hash of the method
+	 */
+	public static String hashMethod(MethodNode method) {
+		TraceMethodVisitor tmv = new TraceMethodVisitor();
+		method.accept(tmv);
+		StringWriter sw = new StringWriter();
+		PrintWriter pw = new PrintWriter(sw);
+		pw.println(method.access + " " + method.name + method.desc);
+		tmv.print(pw);
+		pw.flush();
+		return hash(sw.toString());
+	}
+
+	/**
+	 * Returns a hash for a class that is computed from the instructions of
+	 * its methods. Line numbers are not included.
+	 * 
+	 * @param classBytes
+	 *            the bytecode of the class
+	 * @return the hash of the class
+	 */
+	public static String hashClass(byte[] classBytes) {
+		return hashClass(hashInstructions(classBytes));
+	}
+
+	/**
+	 * Returns a hash for a class that is computed from the hashes of its
+	 * methods.
+	 * 
+	 * @param methodHashes
+	 *            the hashes of the methods of the class
+	 * @return the hash of the class
+	 */
+	public static String hashClass(Map<String, String> methodHashes) {
+		SortedMap<String, String> sorted = new TreeMap<String, String>(
+				methodHashes);
+		return hash(sorted.toString());
+	}
+
+	/**
+	 * Returns the MD5 hash of the given string in hexadecimal notation.
+	 * 
+	 * @param s
+	 *            the string to compute the hash for
+	 * @return the hash of the string
+	 */
+	public static String hash(String s) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			byte[] bytes = digest.digest(s.getBytes("UTF-8"));
+			char[] chars = new char[bytes.length * 2];
+			for (int i = 0; i < bytes.length; i++) {
+				chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+				chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+			}
+			return new String(chars);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
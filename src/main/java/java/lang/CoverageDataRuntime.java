@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Class to compute coverage data for mutations.
@@ -53,6 +54,23 @@ public class CoverageDataRuntime {
 
 	private Set<String> testsRun = new HashSet<String>();
 
+	/**
+	 * Maps the mutation ids to the dense probe ids that are used in the
+	 * instrumented code.
+	 */
+	private Map<Long, Integer> probeIds = new HashMap<Long, Integer>();
+
+	/**
+	 * Maps the probe ids back to the mutation ids.
+	 */
+	private volatile long[] probeMutations = new long[1024];
+
+	/**
+	 * The probes touched by the current test. One bit per probe id. The
+	 * array is replaced when it grows, so that touches do not need a lock.
+	 */
+	private volatile AtomicLongArray touched = new AtomicLongArray(16);
+
 	private CoverageDataRuntime() {
 	}
 
@@ -60,33 +78,108 @@ public class CoverageDataRuntime {
 		return SingletonHolder.instance;
 	}
 
-	static int call = 0;
-
-	public static void touch(long id) {
-		call++;
-		// Only for debugging puprosses. Impacts performance
-		// if (call % ((int) 1e6) == 0) {
-		// System.out.println("CoverageDataRuntime.touch(): Touch called "
-		// + call + "times.  Test "
-		// + SingletonHolder.instance.getTestName()
-		// + " touched mutation " + id);
-		// }
-		// System.out.println("CoverageDataRuntime.touch()" +
-		// SingletonHolder.instance.testName.get());
-		// + " touched mutation " + id);
-		Set<String> coveredTests = SingletonHolder.instance.coverageData
-				.get(id);
-		if (coveredTests == null) {
-			coveredTests = new HashSet<String>();
-			SingletonHolder.instance.coverageData.put(id, coveredTests);
+	/**
+	 * Returns the probe id for the given mutation. The probe ids are dense,
+	 * so that the probes touched by a test can be stored in a bitset.
+	 * 
+	 * @param mutationId
+	 *            the id of the mutation
+	 * @return the probe id that is passed to {@link #touch(int)}
+	 */
+	public static synchronized int registerProbe(long mutationId) {
+		CoverageDataRuntime instance = SingletonHolder.instance;
+		Integer probeId = instance.probeIds.get(mutationId);
+		if (probeId == null) {
+			probeId = instance.probeIds.size();
+			instance.probeIds.put(mutationId, probeId);
+			long[] probeMutations = instance.probeMutations;
+			if (probeId >= probeMutations.length) {
+				probeMutations = Arrays.copyOf(probeMutations, probeId * 2);
+			}
+			probeMutations[probeId] = mutationId;
+			instance.probeMutations = probeMutations;
+		}
+		return probeId;
+	}
+
+	public static void touch(int probeId) {
+		CoverageDataRuntime instance = SingletonHolder.instance;
+		AtomicLongArray touched = instance.touched;
+		int word = probeId >>> 6;
+		long bit = 1L << probeId;
+		while (true) {
+			if (word >= touched.length()) {
+				touched = instance.grow(word);
+			}
+			setBits(touched, word, bit);
+			AtomicLongArray current = instance.touched;
+			if (current == touched) {
+				return;
+			}
+			// The array grew while the bit was set, it may not have been
+			// copied.
+			touched = current;
+		}
+	}
+
+	private static void setBits(AtomicLongArray array, int word, long bits) {
+		long old;
+		do {
+			old = array.get(word);
+			if ((old & bits) == bits) {
+				return;
+			}
+		} while (!array.compareAndSet(word, old, old | bits));
+	}
+
+	/**
+	 * Replaces the touched probes by a larger array. The new array is
+	 * published before the old bits are copied, so that a touch that still
+	 * sets its bit in the old array either is copied or notices the new array
+	 * and sets its bit again.
+	 */
+	private synchronized AtomicLongArray grow(int word) {
+		AtomicLongArray old = touched;
+		if (word >= old.length()) {
+			AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1,
+					old.length() * 2));
+			touched = grown;
+			for (int i = 0; i < old.length(); i++) {
+				long bits = old.get(i);
+				if (bits != 0) {
+					setBits(grown, i, bits);
+				}
+			}
+		}
+		return touched;
+	}
+
+	/**
+	 * Adds the current test to the coverage data of all probes that were
+	 * touched since the last call, and clears the touched probes.
+	 */
+	private synchronized void flush(String testName) {
+		AtomicLongArray touched = this.touched;
+		for (int word = 0; word < touched.length(); word++) {
+			if (touched.get(word) == 0) {
+				continue;
+			}
+			long bits = touched.getAndSet(word, 0);
+			if (testName == null) {
+				continue;
+			}
+			while (bits != 0) {
+				int probeId = (word << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				long id = probeMutations[probeId];
+				Set<String> coveredTests = coverageData.get(id);
+				if (coveredTests == null) {
+					coveredTests = new HashSet<String>();
+					coverageData.put(id, coveredTests);
+				}
+				coveredTests.add(testName);
+			}
 		}
-		// boolean add =
-		coveredTests.add(SingletonHolder.instance.getTestName());
-		// if (add) {
-		// System.out.println("Added test "
-		// + SingletonHolder.instance.getTestName() + "for mutation "
-		// + id);
-		// }
 	}
 
 	private String getTestName() {
@@ -99,6 +192,8 @@ public class CoverageDataRuntime {
 		instance.testsRun.add(testName);
 
 		if (instance.getTestName() == null) {
+			// Probes touched outside of a test are not attributed to a test.
+			instance.flush(null);
 			instance._setTestName(testName);
 		} else {
 			System.out
@@ -127,6 +222,7 @@ public class CoverageDataRuntime {
 					.println("CoverageDataRuntime.setTestName() - Test name was  set to null expected "
 							+ testName);
 		} else if (oldTestName.equals(testName)) {
+			instance.flush(testName);
 			instance._setTestName(null);
 		} else {
 			System.out
@@ -151,10 +247,6 @@ public class CoverageDataRuntime {
 		this.testName = testName;
 	}
 
-	public static void main(String[] args) {
-		touch(23454904540l);
-	}
-
 	public static Set<String> getTestsRun() {
 		return SingletonHolder.instance.testsRun;
 	}
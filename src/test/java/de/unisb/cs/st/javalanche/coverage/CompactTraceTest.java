@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CompactTraceTest {
+
+	private static Map<String, Map<Integer, Integer>> trace(String method,
+			int... lineCounts) {
+		Map<String, Map<Integer, Integer>> result = new HashMap<String, Map<Integer, Integer>>();
+		Map<Integer, Integer> lines = new HashMap<Integer, Integer>();
+		for (int i = 0; i < lineCounts.length; i += 2) {
+			lines.put(lineCounts[i], lineCounts[i + 1]);
+		}
+		result.put(method, lines);
+		return result;
+	}
+
+	@Test
+	public void testAddDifferences() {
+		CompactTrace original = new CompactTrace(trace("A@m", 10, 1, 11, 2,
+				12, 1));
+		Map<String, Map<Integer, Boolean>> modified = new HashMap<String, Map<Integer, Boolean>>();
+		Map<String, Map<Integer, Integer>> mutated = trace("A@m", 10, 1, 11,
+				3, 13, 1);
+		mutated.putAll(trace("A@n", 5, 1));
+		original.addDifferences(mutated, modified);
+
+		Map<Integer, Boolean> lines = modified.get("A@m");
+		assertFalse(lines.get(10));
+		assertTrue(lines.get(11));
+		assertTrue(lines.get(12));
+		assertTrue(lines.get(13));
+		assertTrue(modified.get("A@n").get(5));
+	}
+
+	@Test
+	public void testMissingMethodAndSticky() {
+		CompactTrace original = new CompactTrace(trace("A@m", 10, 1));
+		Map<String, Map<Integer, Boolean>> modified = new HashMap<String, Map<Integer, Boolean>>();
+		original.addDifferences(trace("B@x", 1, 1), modified);
+		assertTrue(modified.get("A@m").get(10));
+		// an unchanged run does not reset a line already marked as modified
+		original.addDifferences(trace("A@m", 10, 1), modified);
+		assertTrue(modified.get("A@m").get(10));
+	}
+
+	@Test
+	public void testAddDifferentMethods() {
+		Map<String, Map<Integer, Integer>> base = trace("A@m", 10, 1, 11, 2);
+		base.putAll(trace("A@n", 5, 1));
+		base.putAll(trace("A@o", 7, 1));
+		CompactTrace original = new CompactTrace(base);
+
+		Map<String, Map<Integer, Integer>> other = trace("A@m", 10, 1, 11, 2);
+		other.putAll(trace("A@n", 5, 2));
+		other.putAll(trace("A@p", 1, 1));
+		Set<String> differences = new HashSet<String>();
+		original.addDifferentMethods(other, differences);
+
+		assertEquals(3, differences.size());
+		assertFalse(differences.contains("A@m"));
+		assertTrue(differences.contains("A@n"));
+		assertTrue(differences.contains("A@o"));
+		assertTrue(differences.contains("A@p"));
+	}
+}
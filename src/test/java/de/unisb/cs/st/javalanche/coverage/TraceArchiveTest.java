@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TraceArchiveTest {
+
+	private File file;
+
+	private Map<String, Map<Integer, Integer>> trace1;
+
+	private Map<String, Map<Integer, Integer>> trace2;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("archive", TraceArchive.SUFFIX);
+		file.delete();
+		trace1 = new HashMap<String, Map<Integer, Integer>>();
+		Map<Integer, Integer> lines = new HashMap<Integer, Integer>();
+		lines.put(12, 1);
+		lines.put(13, 200);
+		lines.put(40, 3);
+		trace1.put("org.example.Foo@bar", lines);
+		trace2 = new HashMap<String, Map<Integer, Integer>>();
+		Map<Integer, Integer> values = new HashMap<Integer, Integer>();
+		values.put(Integer.MIN_VALUE, 1);
+		values.put(-5, 2);
+		values.put(Integer.MAX_VALUE, 1);
+		trace2.put("org.example.Foo@baz", values);
+		trace2.put("org.example.Foo@bar", new HashMap<Integer, Integer>());
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testReadWrite() {
+		TraceArchive archive = TraceArchive.open(file);
+		archive.write(0, "test1", trace1);
+		archive.write(0, "test2", trace2);
+		archive.write(42, "test1", trace2);
+		archive.close();
+
+		Map<String, Map<String, Map<Integer, Integer>>> traces = TraceArchive
+				.read(file, 0);
+		assertEquals(2, traces.size());
+		assertEquals(trace1, traces.get("test1"));
+		assertEquals(trace2, traces.get("test2"));
+		assertEquals(trace2, TraceArchive.read(file, 42).get("test1"));
+		assertNull(TraceArchive.read(file, 7));
+		assertEquals(2, TraceArchive.getMutationIds(file).size());
+	}
+
+	@Test
+	public void testAppend() {
+		TraceArchive archive = TraceArchive.open(file);
+		archive.write(1, "test1", trace1);
+		archive.close();
+		archive = TraceArchive.open(file);
+		assertTrue(archive.contains(1));
+		archive.write(2, "test1", trace2);
+		archive.close();
+
+		assertEquals(trace1, TraceArchive.read(file, 1).get("test1"));
+		assertEquals(trace2, TraceArchive.read(file, 2).get("test1"));
+	}
+
+	@Test
+	public void testNotClosed() {
+		TraceArchive archive = TraceArchive.open(file);
+		archive.write(1, "test1", trace1);
+		archive.write(2, "test1", trace2);
+
+		assertEquals(trace1, TraceArchive.read(file, 1).get("test1"));
+		assertEquals(trace2, TraceArchive.read(file, 2).get("test1"));
+		archive.close();
+	}
+}
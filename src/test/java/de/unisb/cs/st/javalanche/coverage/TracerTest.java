@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class TracerTest {
+
+	private static final String CLASS_NAME = "de/unisb/cs/st/javalanche/coverage/TracerTest$Traced";
+
+	private static final String LINES_CLASS_NAME = "de/unisb/cs/st/javalanche/coverage/TracerTestLines";
+
+	private static final String LINES_METHOD_KEY = "de.unisb.cs.st.javalanche.coverage.TracerTestLines@twoLines";
+
+	private final Tracer tracer = Tracer.getInstance();
+
+	@Before
+	public void setUp() {
+		Tracer.resetValues();
+		Tracer.resetLineCounters();
+	}
+
+	@After
+	public void tearDown() {
+		tracer.activateTrace();
+		Tracer.resetValues();
+		Tracer.resetLineCounters();
+	}
+
+	/**
+	 * Creates a class with a static method that spans the lines 10 and 11,
+	 * instruments it for line coverage and loads it.
+	 */
+	private static Method createInstrumentedMethod() throws Exception {
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, LINES_CLASS_NAME, null,
+				"java/lang/Object", null);
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC
+				| Opcodes.ACC_STATIC, "twoLines", "()V", null, null);
+		mv.visitCode();
+		Label first = new Label();
+		mv.visitLabel(first);
+		mv.visitLineNumber(10, first);
+		mv.visitInsn(Opcodes.NOP);
+		Label second = new Label();
+		mv.visitLabel(second);
+		mv.visitLineNumber(11, second);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		new ClassReader(cw.toByteArray()).accept(new CoverageClassAdapter(
+				writer, LINES_CLASS_NAME), ClassReader.SKIP_FRAMES);
+		final byte[] bytecode = writer.toByteArray();
+		final String name = LINES_CLASS_NAME.replace('/', '.');
+		ClassLoader loader = new ClassLoader(TracerTest.class
+				.getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String className)
+					throws ClassNotFoundException {
+				if (className.equals(name)) {
+					return defineClass(name, bytecode, 0, bytecode.length);
+				}
+				return super.findClass(className);
+			}
+		};
+		return loader.loadClass(name).getMethod("twoLines");
+	}
+
+	@Test
+	public void testReturnsOfTwoThreads() throws Exception {
+		Thread t1 = new ReturningThread("m1", 1, null);
+		Thread t2 = new ReturningThread("m2", 2, null);
+		t1.start();
+		t2.start();
+		t1.join();
+		t2.join();
+		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> values = Tracer
+				.snapshotValues();
+		assertValue(values, "m1", 1);
+		assertValue(values, "m2", 2);
+		assertTrue(Tracer.snapshotValues().isEmpty());
+	}
+
+	@Test
+	public void testSuppressionIsPerThread() throws Exception {
+		CountDownLatch suppressed = new CountDownLatch(1);
+		Thread other = new ReturningThread("m2", 2, suppressed);
+		other.start();
+		tracer.deactivateTrace();
+		try {
+			suppressed.countDown();
+			tracer.begin(CLASS_NAME, "m1");
+			tracer.logIReturn(1, CLASS_NAME, "m1");
+			other.join();
+		} finally {
+			tracer.activateTrace();
+		}
+		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> values = Tracer
+				.snapshotValues();
+		assertFalse(values.containsKey(CLASS_NAME + "@m1"));
+		assertValue(values, "m2", 2);
+	}
+
+	@Test
+	public void testLineCounters() throws Exception {
+		Method method = createInstrumentedMethod();
+		method.invoke(null);
+		method.invoke(null);
+		ConcurrentMap<String, ConcurrentMap<Integer, Integer>> lines = Tracer
+				.snapshotLineCounters();
+		Map<Integer, Integer> methodLines = lines.get(LINES_METHOD_KEY);
+		assertNotNull(methodLines);
+		assertEquals(2, methodLines.size());
+		assertEquals(Integer.valueOf(2), methodLines.get(10));
+		assertEquals(Integer.valueOf(2), methodLines.get(11));
+		// the counters are reset by the snapshot
+		assertFalse(Tracer.snapshotLineCounters().containsKey(
+				LINES_METHOD_KEY));
+		method.invoke(null);
+		methodLines = Tracer.snapshotLineCounters().get(LINES_METHOD_KEY);
+		assertEquals(Integer.valueOf(1), methodLines.get(10));
+	}
+
+	@Test
+	public void testLineCountersSuppressed() throws Exception {
+		Method method = createInstrumentedMethod();
+		tracer.deactivateTrace();
+		try {
+			method.invoke(null);
+		} finally {
+			tracer.activateTrace();
+		}
+		assertFalse(Tracer.snapshotLineCounters().containsKey(
+				LINES_METHOD_KEY));
+		method.invoke(null);
+		assertTrue(Tracer.snapshotLineCounters().containsKey(
+				LINES_METHOD_KEY));
+	}
+
+	private static void assertValue(
+			ConcurrentMap<String, ConcurrentMap<Integer, Integer>> values,
+			String methodName, int value) {
+		Map<Integer, Integer> methodValues = values.get(CLASS_NAME + "@"
+				+ methodName);
+		assertNotNull("No values for " + methodName, methodValues);
+		assertTrue(methodValues.containsKey(value));
+	}
+
+	/**
+	 * Traces one method that returns the given value, after the given latch
+	 * was released.
+	 */
+	private class ReturningThread extends Thread {
+
+		private final String methodName;
+
+		private final int value;
+
+		private final CountDownLatch latch;
+
+		ReturningThread(String methodName, int value, CountDownLatch latch) {
+			this.methodName = methodName;
+			this.value = value;
+			this.latch = latch;
+		}
+
+		@Override
+		public void run() {
+			if (latch != null) {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+			tracer.begin(CLASS_NAME, methodName);
+			tracer.logIReturn(value, CLASS_NAME, methodName);
+		}
+	}
+}
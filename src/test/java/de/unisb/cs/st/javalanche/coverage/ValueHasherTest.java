@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.coverage;
+
+import static org.junit.Assert.*;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ValueHasherTest {
+
+	private static class Node {
+		int value;
+		String name;
+		Node next;
+		List<Node> children = new ArrayList<Node>();
+
+		Node(int value, String name) {
+			this.value = value;
+			this.name = name;
+		}
+	}
+
+	/**
+	 * A collection of the program whose elements can not be read.
+	 */
+	private static class ProgramList extends AbstractList<String> {
+		int size;
+
+		ProgramList(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public String get(int index) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private static class Holder {
+		int value;
+		Collection<String> items;
+
+		Holder(int value, Collection<String> items) {
+			this.value = value;
+			this.items = items;
+		}
+	}
+
+	private enum Color {
+		RED, GREEN
+	}
+
+	@Test
+	public void testEqualStates() {
+		ValueHasher hasher = new ValueHasher(4, 1000);
+		Node n1 = new Node(1, "a");
+		n1.next = new Node(2, "b");
+		Node n2 = new Node(1, "a");
+		n2.next = new Node(2, "b");
+		assertEquals(hasher.hashValue(n1), hasher.hashValue(n2));
+		n2.next.value = 3;
+		assertFalse(hasher.hashValue(n1) == hasher.hashValue(n2));
+	}
+
+	@Test
+	public void testIdentityInsensitiveSet() {
+		ValueHasher hasher = new ValueHasher(4, 1000);
+		Set<Node> s1 = new HashSet<Node>();
+		Set<Node> s2 = new HashSet<Node>();
+		for (int i = 0; i < 20; i++) {
+			s1.add(new Node(i, "n" + i));
+			s2.add(new Node(i, "n" + i));
+		}
+		assertEquals(hasher.hashValue(s1), hasher.hashValue(s2));
+	}
+
+	@Test
+	public void testCycleAndLimits() {
+		ValueHasher hasher = new ValueHasher(3, 10);
+		Node n = new Node(1, "a");
+		n.next = n;
+		n.children.add(n);
+		hasher.hashValue(n);
+		Node deep1 = new Node(1, "a");
+		deep1.next = new Node(2, "b");
+		deep1.next.next = new Node(3, "c");
+		deep1.next.next.next = new Node(4, "d");
+		Node deep2 = new Node(1, "a");
+		deep2.next = new Node(2, "b");
+		deep2.next.next = new Node(3, "c");
+		deep2.next.next.next = new Node(5, "e");
+		// the difference is below the maximum depth
+		assertEquals(hasher.hashValue(deep1), hasher.hashValue(deep2));
+	}
+
+	@Test
+	public void testValues() {
+		ValueHasher hasher = new ValueHasher(4, 1000);
+		assertEquals("abc".hashCode(), hasher.hashValue("abc"));
+		assertEquals(Integer.valueOf(42).hashCode(), hasher
+				.hashValue(Integer.valueOf(42)));
+		assertEquals(hasher.hashValue(Color.RED), hasher.hashValue(Color.RED));
+		assertFalse(hasher.hashValue(Color.RED) == hasher
+				.hashValue(Color.GREEN));
+		assertEquals(hasher.hashValue(new int[] { 1, 2, 3 }), hasher
+				.hashValue(new int[] { 1, 2, 3 }));
+		assertEquals(hasher.hashValue(new ArrayList<String>(Arrays.asList(
+				"a", "b"))), hasher.hashValue(new ArrayList<String>(Arrays
+				.asList("a", "b"))));
+	}
+
+	@Test
+	public void testProgramCollectionHashedByFields() {
+		ValueHasher hasher = new ValueHasher(4, 1000);
+		assertEquals(hasher.hashValue(new ProgramList(2)), hasher
+				.hashValue(new ProgramList(2)));
+		assertFalse(hasher.hashValue(new ProgramList(2)) == hasher
+				.hashValue(new ProgramList(3)));
+	}
+
+	@Test
+	public void testNestedFailureRecordsNestedClass() {
+		ValueHasher hasher = new ValueHasher(4, 1000);
+		// the wrapper iterates the list of the program, which fails
+		Collection<String> items = Collections
+				.unmodifiableCollection(new ProgramList(1));
+		int hash1 = hasher.hashValue(new Holder(1, items));
+		assertEquals(hash1, hasher.hashValue(new Holder(1, items)));
+		assertFalse(hash1 == hasher.hashValue(new Holder(2, items)));
+		assertFalse(ValueHasher.useToString(Holder.class));
+	}
+}
@@ -6,6 +6,7 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.instrument.IllegalClassFormatException;
+import java.util.Arrays;
 import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
@@ -93,6 +94,35 @@ public class DistanceTest {
 
 	}
 
+	@Test
+	public void testMethodsWithin() throws IOException,
+			IllegalClassFormatException {
+		DistanceTransformer dt = new DistanceTransformer();
+		transformClasses(dt, A.class, B.class, B2.class);
+		Hierarchy hierarchy = Hierarchy.fromSet(dt.getClasses());
+		DistanceGraph dg = new DistanceGraph(dt.getConnectionData(), hierarchy);
+
+		String classNameA = A.class.getCanonicalName();
+		String desc = "()V";
+		MethodDescription md1 = new MethodDescription(classNameA, "m1", desc);
+		MethodDescription md2 = new MethodDescription(classNameA, "m2", desc);
+		MethodDescription md3 = new MethodDescription(classNameA, "m3", desc);
+
+		Set<MethodDescription> within0 = dg.getMethodsWithin(Arrays
+				.asList(md1), 0);
+		assertThat(md1, isIn(within0));
+		assertFalse(within0.contains(md2));
+
+		Set<MethodDescription> within1 = dg.getMethodsWithin(Arrays
+				.asList(md1), 1);
+		assertThat(md2, isIn(within1));
+		assertFalse(within1.contains(md3));
+
+		Set<MethodDescription> within2 = dg.getMethodsWithin(Arrays
+				.asList(md1), 2);
+		assertThat(md3, isIn(within2));
+	}
+
 	private void transformClasses(DistanceTransformer dt, Class<?>... classes)
 			throws IOException, IllegalClassFormatException {
 		for (Class<?> class1 : classes) {
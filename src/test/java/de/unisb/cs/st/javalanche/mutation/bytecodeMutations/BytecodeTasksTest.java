@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.properties.JavalancheConfiguration;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.util.JavalancheTestConfiguration;
+
+public class BytecodeTasksTest {
+
+	private JavalancheConfiguration configBack;
+
+	private JavalancheTestConfiguration config;
+
+	@Before
+	public void setUp() {
+		configBack = ConfigurationLocator.getJavalancheConfiguration();
+		config = new JavalancheTestConfiguration();
+		config.setUseStaticGuards(true);
+		config.setUseSwitchDispatch(true);
+		ConfigurationLocator.setJavalancheConfiguration(config);
+	}
+
+	@After
+	public void tearDown() {
+		ConfigurationLocator.setJavalancheConfiguration(configBack);
+	}
+
+	private static MutationCode code(final int opcode, long id) {
+		Mutation m = new Mutation("Foo", "bar()V", 10, (int) id,
+				MutationType.REPLACE_CONSTANT);
+		m.setId(id);
+		return new MutationCode(m) {
+			@Override
+			public void insertCodeBlock(MethodVisitor mv) {
+				mv.visitInsn(opcode);
+			}
+		};
+	}
+
+	private static MethodNode insert(long... ids) {
+		MethodNode mn = new MethodNode();
+		MutationCode[] mutations = new MutationCode[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			mutations[i] = code(Opcodes.ICONST_1, ids[i]);
+		}
+		BytecodeTasks.insertIfElse(mn, code(Opcodes.ICONST_0, 1), mutations);
+		return mn;
+	}
+
+	private static int count(MethodNode mn, Class<?> type) {
+		int count = 0;
+		for (AbstractInsnNode insn : mn.instructions.toArray()) {
+			if (type.isInstance(insn)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testDenseIdsUseTableSwitch() {
+		MethodNode mn = insert(12, 10, 11);
+		assertEquals(1, count(mn, TableSwitchInsnNode.class));
+		TableSwitchInsnNode table = null;
+		for (AbstractInsnNode insn : mn.instructions.toArray()) {
+			if (insn instanceof TableSwitchInsnNode) {
+				table = (TableSwitchInsnNode) insn;
+			}
+		}
+		assertEquals(10, table.min);
+		assertEquals(12, table.max);
+	}
+
+	@Test
+	public void testSparseIdsUseLookupSwitch() {
+		MethodNode mn = insert(5, 1000, 200000);
+		assertEquals(0, count(mn, TableSwitchInsnNode.class));
+		assertEquals(1, count(mn, LookupSwitchInsnNode.class));
+	}
+
+	@Test
+	public void testSingleMutationKeepsIfElse() {
+		MethodNode mn = insert(5);
+		assertEquals(0, count(mn, TableSwitchInsnNode.class));
+		assertEquals(0, count(mn, LookupSwitchInsnNode.class));
+	}
+
+	@Test
+	public void testDisabledSwitchDispatch() {
+		config.setUseSwitchDispatch(false);
+		MethodNode mn = insert(10, 11, 12);
+		assertEquals(0, count(mn, TableSwitchInsnNode.class));
+		assertEquals(0, count(mn, LookupSwitchInsnNode.class));
+	}
+
+	@Test
+	public void testUnsupportedIdKeepsIfElse() {
+		MethodNode mn = insert(10, 11, Integer.MAX_VALUE + 1L);
+		assertEquals(0, count(mn, TableSwitchInsnNode.class));
+		assertEquals(0, count(mn, LookupSwitchInsnNode.class));
+	}
+}
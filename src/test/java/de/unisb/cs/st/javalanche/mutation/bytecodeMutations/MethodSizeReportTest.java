@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.arithmetic.ReplaceMap;
+
+public class MethodSizeReportTest {
+
+	@Test
+	public void testGetCodeSizes() throws IOException {
+		String resource = MethodNamesTestData.class.getName().replace('.',
+				'/')
+				+ ".class";
+		InputStream is = MethodNamesTestData.class.getClassLoader()
+				.getResourceAsStream(resource);
+		byte[] bytes = IOUtils.toByteArray(is);
+		is.close();
+		Map<String, Integer> codeSizes = MethodSizeReport.getCodeSizes(bytes);
+		assertTrue(codeSizes.containsKey("<init>()V"));
+		for (Integer size : codeSizes.values()) {
+			assertTrue(size >= 0);
+		}
+	}
+
+	/**
+	 * Creates a class file with the given constant pool entry after the
+	 * names of one method without code.
+	 */
+	private static byte[] createClass(int tag, int entrySize)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeInt(55);
+		out.writeShort(4);
+		out.writeByte(1);
+		out.writeUTF("m");
+		out.writeByte(1);
+		out.writeUTF("()V");
+		out.writeByte(tag);
+		out.write(new byte[entrySize]);
+		// access, this, super, interfaces, fields
+		out.write(new byte[10]);
+		out.writeShort(1);
+		out.writeShort(0);
+		out.writeShort(1);
+		out.writeShort(2);
+		out.writeShort(0);
+		out.writeShort(0);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testDynamicConstant() throws IOException {
+		Map<String, Integer> codeSizes = MethodSizeReport
+				.getCodeSizes(createClass(17, 4));
+		assertEquals(1, codeSizes.size());
+		assertEquals(0, codeSizes.get("m()V").intValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownTag() throws IOException {
+		MethodSizeReport.getCodeSizes(createClass(2, 2));
+	}
+
+	@Test
+	public void testOperandDescriptor() {
+		assertEquals("(II)I", ReplaceMap.getOperandDescriptor(Opcodes.IADD));
+		assertEquals("(JJ)J", ReplaceMap.getOperandDescriptor(Opcodes.LSUB));
+		assertEquals("(FF)F", ReplaceMap.getOperandDescriptor(Opcodes.FMUL));
+		assertEquals("(DD)D", ReplaceMap.getOperandDescriptor(Opcodes.DREM));
+		assertEquals("(D)D", ReplaceMap.getOperandDescriptor(Opcodes.DNEG));
+		assertEquals("(JI)J", ReplaceMap.getOperandDescriptor(Opcodes.LSHL));
+		assertEquals("(II)I", ReplaceMap.getOperandDescriptor(Opcodes.IUSHR));
+		assertEquals("(JJ)J", ReplaceMap.getOperandDescriptor(Opcodes.LXOR));
+		assertNull(ReplaceMap.getOperandDescriptor(Opcodes.LCMP));
+	}
+}
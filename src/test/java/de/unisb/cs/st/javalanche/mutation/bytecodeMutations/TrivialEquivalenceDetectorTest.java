@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.absoluteValue.classes.AbsoluteValueTEMPLATE;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.monitor.classes.MonitorTEMPLATE;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.removeCalls.classes.RemoveCallsTEMPLATE;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.replaceThreadCalls.classes.JoinSleepTEMPLATE;
+import de.unisb.cs.st.javalanche.mutation.bytecodeMutations.unaryOperator.classes.UnaryOperatorTEMPLATE;
+import de.unisb.cs.st.javalanche.mutation.properties.ConfigurationLocator;
+import de.unisb.cs.st.javalanche.mutation.properties.JavalancheConfiguration;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+import de.unisb.cs.st.javalanche.mutation.testutil.TestUtil;
+import de.unisb.cs.st.javalanche.mutation.util.BytecodeHash;
+import de.unisb.cs.st.javalanche.mutation.util.JavalancheTestConfiguration;
+
+public class TrivialEquivalenceDetectorTest {
+
+	private static MethodNode createMethod(boolean withTouch) {
+		MethodNode method = new MethodNode(Opcodes.ACC_PUBLIC, "m", "()I",
+				null, null);
+		method.instructions.add(new LabelNode());
+		if (withTouch) {
+			method.instructions.add(new LdcInsnNode(Long.valueOf(42)));
+			method.instructions.add(new MethodInsnNode(Opcodes.INVOKESTATIC,
+					"de/unisb/cs/st/javalanche/mutation/runtime/MutationObserver",
+					"touch", "(J)V"));
+			method.instructions.add(new LabelNode());
+		}
+		method.instructions.add(new InsnNode(Opcodes.ICONST_1));
+		method.instructions.add(new InsnNode(Opcodes.IRETURN));
+		return method;
+	}
+
+	@Test
+	public void testCanonicalize() {
+		MethodNode original = createMethod(false);
+		MethodNode mutated = createMethod(true);
+		TrivialEquivalenceDetector.canonicalize(original);
+		TrivialEquivalenceDetector.canonicalize(mutated);
+		assertEquals(2, mutated.instructions.size());
+		assertEquals(BytecodeHash.hashMethod(original),
+				BytecodeHash.hashMethod(mutated));
+	}
+
+	/**
+	 * Scans the given class for mutations of the given type, runs the
+	 * detector on it, and checks that every mutation was inserted and
+	 * differs from the original code.
+	 */
+	private static void checkDetect(Class<?> clazz, MutationType type)
+			throws IOException {
+		JavalancheConfiguration back = ConfigurationLocator
+				.getJavalancheConfiguration();
+		String className = clazz.getCanonicalName();
+		try {
+			JavalancheTestConfiguration config = new JavalancheTestConfiguration();
+			config.setMutationType(type, true);
+			ConfigurationLocator.setJavalancheConfiguration(config);
+			ByteCodeTestUtils.deleteMutations(className);
+			InputStream is = clazz.getClassLoader().getResourceAsStream(
+					className.replace('.', '/') + ".class");
+			byte[] bytecode = IOUtils.toByteArray(is);
+			is.close();
+			QueryManager.saveMutations(TestUtil.getMutations(bytecode,
+					className));
+			Map<Long, Long> equivalences = new TrivialEquivalenceDetector()
+					.detect(className, bytecode);
+			List<Mutation> mutations = TestUtil.filterMutations(QueryManager
+					.getMutationsForClass(className), type);
+			assertTrue("Expected mutations of type " + type,
+					mutations.size() > 0);
+			for (Mutation m : mutations) {
+				assertTrue("Mutation was not applied: " + m, equivalences
+						.containsKey(m.getId()));
+				assertFalse("Mutation is not equivalent to the original: "
+						+ m, Long.valueOf(Mutation.ORIGINAL_ID).equals(
+						m.getEquivalentTo()));
+			}
+		} finally {
+			ByteCodeTestUtils.deleteMutations(className);
+			ConfigurationLocator.setJavalancheConfiguration(back);
+		}
+	}
+
+	@Test
+	public void testDetectAbsoluteValue() throws IOException {
+		checkDetect(AbsoluteValueTEMPLATE.class, MutationType.ABSOLUTE_VALUE);
+	}
+
+	@Test
+	public void testDetectUnaryOperator() throws IOException {
+		checkDetect(UnaryOperatorTEMPLATE.class, MutationType.UNARY_OPERATOR);
+	}
+
+	@Test
+	public void testDetectMonitorRemove() throws IOException {
+		checkDetect(MonitorTEMPLATE.class, MutationType.MONITOR_REMOVE);
+	}
+
+	@Test
+	public void testDetectReplaceThreadCall() throws IOException {
+		checkDetect(JoinSleepTEMPLATE.class,
+				MutationType.REPLACE_THREAD_CALL);
+	}
+
+	@Test
+	public void testDetectRemoveCall() throws IOException {
+		checkDetect(RemoveCallsTEMPLATE.class, MutationType.REMOVE_CALL);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.runtime.WeakMutation;
+
+public class WeakMutationsTest {
+
+	private static final String CLASS_NAME = "WeakMutationsTarget";
+
+	private static MutationCode createCode(long id, final int opcode) {
+		Mutation m = null;
+		if (id > 0) {
+			m = new Mutation(CLASS_NAME, "calc(II)I", 1, (int) id,
+					MutationType.ARITHMETIC_REPLACE);
+			m.setId(id);
+		}
+		return new MutationCode(m) {
+			@Override
+			public void insertCodeBlock(MethodVisitor mv) {
+				mv.visitInsn(opcode);
+			}
+		};
+	}
+
+	private static Class<?> createClass() {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, CLASS_NAME, null,
+				"java/lang/Object", null);
+		WeakMutations weakMutations = new WeakMutations(CLASS_NAME);
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC
+				| Opcodes.ACC_STATIC, "calc", "(II)I", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ILOAD, 0);
+		mv.visitVarInsn(Opcodes.ILOAD, 1);
+		weakMutations.insertCall(mv, "(II)I", createCode(0, Opcodes.IADD),
+				new MutationCode[] { createCode(1, Opcodes.ISUB),
+						createCode(2, Opcodes.IDIV),
+						createCode(3, Opcodes.IOR) });
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		weakMutations.generateMethods(cw);
+		cw.visitEnd();
+		final byte[] bytecode = cw.toByteArray();
+		ClassLoader loader = new ClassLoader(
+				WeakMutationsTest.class.getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String name)
+					throws ClassNotFoundException {
+				if (name.equals(CLASS_NAME)) {
+					return defineClass(name, bytecode, 0, bytecode.length);
+				}
+				return super.findClass(name);
+			}
+		};
+		try {
+			return loader.loadClass(CLASS_NAME);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		WeakMutation.reset();
+	}
+
+	@Test
+	public void testInfection() throws Exception {
+		Method calc = createClass().getMethod("calc", int.class, int.class);
+		WeakMutation.reset();
+		assertEquals(4, calc.invoke(null, 4, 0));
+		for (long id = 1; id <= 3; id++) {
+			assertTrue(WeakMutation.isCovered(id));
+		}
+		assertFalse(WeakMutation.isInfected(1));
+		assertTrue(WeakMutation.isInfected(2));
+		assertFalse(WeakMutation.isInfected(3));
+		assertEquals(5, calc.invoke(null, 4, 1));
+		assertTrue(WeakMutation.isInfected(1));
+		assertFalse(WeakMutation.isInfected(3));
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.bytecodeMutations.staticState;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import de.unisb.cs.st.javalanche.mutation.runtime.StaticState;
+
+public class StaticStateTransformerTest {
+
+	private static class PlainField {
+
+		static int value = 1;
+
+		static final int CONSTANT = 2;
+	}
+
+	private static class FinalField {
+
+		static final List<String> VALUES = new ArrayList<String>();
+	}
+
+	private static byte[] getBytecode(Class<?> clazz) throws IOException {
+		String resource = clazz.getName().replace('.', '/') + ".class";
+		InputStream is = clazz.getClassLoader().getResourceAsStream(resource);
+		byte[] bytes = IOUtils.toByteArray(is);
+		is.close();
+		return bytes;
+	}
+
+	@SuppressWarnings("unchecked")
+	// Call to pre-1.5 Code
+	private static boolean hasReinitializeMethod(Class<?> clazz)
+			throws IOException {
+		StaticStateTransformer transformer = new StaticStateTransformer(
+				StaticStateTransformerTest.class.getPackage().getName());
+		byte[] transformed = transformer.transformBytecode(getBytecode(clazz));
+		ClassNode classNode = new ClassNode();
+		new ClassReader(transformed).accept(classNode, 0);
+		for (MethodNode method : (List<MethodNode>) classNode.methods) {
+			if (method.name.equals(StaticState.REINITIALIZE_METHOD_NAME)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testReinitializable() throws IOException {
+		assertTrue(hasReinitializeMethod(PlainField.class));
+	}
+
+	@Test
+	public void testFinalFieldNotReinitializable() throws IOException {
+		assertFalse(hasReinitializeMethod(FinalField.class));
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.javaagent;
+
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.javaagent.HotSwapper.LoadedClass;
+
+public class HotSwapperTest {
+
+	@Test
+	public void testLoadedClassKey() {
+		ClassLoader loader1 = new URLClassLoader(new URL[0]);
+		ClassLoader loader2 = new URLClassLoader(new URL[0]);
+		LoadedClass c1 = new LoadedClass(loader1, "org.example.Foo");
+		assertEquals(c1, new LoadedClass(loader1, "org.example.Foo"));
+		assertEquals(c1.hashCode(), new LoadedClass(loader1,
+				"org.example.Foo").hashCode());
+		assertFalse(c1.equals(new LoadedClass(loader2, "org.example.Foo")));
+		assertFalse(c1.equals(new LoadedClass(loader1, "org.example.Bar")));
+		assertEquals(new LoadedClass(null, "org.example.Foo"),
+				new LoadedClass(null, "org.example.Foo"));
+	}
+}
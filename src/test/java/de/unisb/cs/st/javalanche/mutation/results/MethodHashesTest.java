@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.results;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+
+public class MethodHashesTest {
+
+	private static Map<String, String> hashes(String method, String hash) {
+		Map<String, String> result = new HashMap<String, String>();
+		result.put(method, hash);
+		return result;
+	}
+
+	@Test
+	public void testMethodHash() {
+		MethodHashes methodHashes = new MethodHashes();
+		methodHashes.addClass("org/example/Foo", hashes("bar()V", "1"));
+		Mutation m = new Mutation("org.example.Foo", "bar()V", 1, 0,
+				MutationType.REPLACE_CONSTANT);
+		assertEquals("1", methodHashes.getMethodHash(m));
+		Mutation other = new Mutation("org.example.Foo", "baz()V", 1, 0,
+				MutationType.REPLACE_CONSTANT);
+		assertNull(methodHashes.getMethodHash(other));
+	}
+
+	@Test
+	public void testTestsHash() {
+		MethodHashes methodHashes = new MethodHashes();
+		methodHashes.addClass("org.example.FooTest", hashes("testA()V", "1"));
+		String hash = methodHashes.getTestsHash(Arrays.asList(
+				"org.example.FooTest.testA", "org.example.FooTest.testB"));
+		assertEquals(hash, methodHashes.getTestsHash(Arrays.asList(
+				"org.example.FooTest.testB", "org.example.FooTest.testA")));
+		assertFalse(hash.equals(methodHashes.getTestsHash(Arrays
+				.asList("org.example.FooTest.testA"))));
+		methodHashes.addClass("org.example.FooTest", hashes("testA()V", "2"));
+		assertFalse(hash.equals(methodHashes.getTestsHash(Arrays.asList(
+				"org.example.FooTest.testA", "org.example.FooTest.testB"))));
+	}
+
+}
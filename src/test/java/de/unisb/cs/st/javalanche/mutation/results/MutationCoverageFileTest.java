@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.results;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+
+public class MutationCoverageFileTest {
+
+	private static Mutation mutation(long id) {
+		Mutation m = new Mutation("org.example.Foo", "bar()V", (int) id, 0,
+				MutationType.REPLACE_CONSTANT);
+		m.setId(id);
+		return m;
+	}
+
+	private static Set<String> tests(String... names) {
+		return new HashSet<String>(Arrays.asList(names));
+	}
+
+	@Before
+	public void setUp() {
+		MutationCoverageFile.deleteCoverageData();
+	}
+
+	@After
+	public void tearDown() {
+		MutationCoverageFile.reset();
+	}
+
+	@Test
+	public void testSaveAndLoad() {
+		Set<String> allTests = new HashSet<String>();
+		for (int i = 0; i < 200; i++) {
+			allTests.add("org.example.FooTest.test" + i);
+		}
+		Set<String> fewTests = new HashSet<String>();
+		fewTests.add("org.example.FooTest.test3");
+		fewTests.add("org.example.FooTest.test150");
+		Map<Long, Set<String>> coverageData = new HashMap<Long, Set<String>>();
+		coverageData.put(10l, allTests);
+		coverageData.put(3l, fewTests);
+		coverageData.put(7l, new HashSet<String>());
+		MutationCoverageFile.saveCoverageData(coverageData);
+
+		assertEquals(200, MutationCoverageFile.getNumberOfTests());
+		assertEquals(allTests, MutationCoverageFile
+				.getCoverageData(mutation(10)));
+		assertEquals(fewTests, MutationCoverageFile
+				.getCoverageData(mutation(3)));
+		assertEquals(0, MutationCoverageFile.getCoverageData(mutation(7))
+				.size());
+		assertEquals(0, MutationCoverageFile.getCoverageData(mutation(5))
+				.size());
+
+		int[] testIds = MutationCoverageFile.getCoveredTestIds(mutation(3));
+		assertEquals(2, testIds.length);
+		Set<String> names = new HashSet<String>();
+		for (int testId : testIds) {
+			names.add(MutationCoverageFile.getTestName(testId));
+		}
+		assertEquals(fewTests, names);
+
+		assertTrue(MutationCoverageFile.isCovered(10));
+		assertTrue(MutationCoverageFile.isCovered(3));
+		assertFalse(MutationCoverageFile.isCovered(7));
+	}
+
+	@Test
+	public void testKeepPreviousEntries() {
+		Map<Long, Set<String>> first = new HashMap<Long, Set<String>>();
+		first.put(1l, tests("org.example.FooTest.testB"));
+		first.put(2l, tests("org.example.FooTest.testA",
+				"org.example.FooTest.testB"));
+		MutationCoverageFile.saveCoverageData(first);
+
+		Map<Long, Set<String>> second = new HashMap<Long, Set<String>>();
+		second.put(2l, tests("org.example.FooTest.testC"));
+		second.put(3l, tests("org.example.BarTest.testA"));
+		MutationCoverageFile.saveCoverageData(second);
+
+		assertEquals(tests("org.example.FooTest.testB"), MutationCoverageFile
+				.getCoverageData(mutation(1)));
+		assertEquals(tests("org.example.FooTest.testC"), MutationCoverageFile
+				.getCoverageData(mutation(2)));
+		assertEquals(tests("org.example.BarTest.testA"), MutationCoverageFile
+				.getCoverageData(mutation(3)));
+		assertEquals(3, MutationCoverageFile.getNumberOfTests());
+		assertTrue(MutationCoverageFile.isCovered(1));
+		assertTrue(MutationCoverageFile.isCovered(3));
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.run.task;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.results.MutationTestResult;
+import de.unisb.cs.st.javalanche.mutation.results.persistence.QueryManager;
+import de.unisb.cs.st.javalanche.mutation.util.BytecodeHash;
+
+public class ChangedMutationsTest {
+
+	private static final String CLASS_NAME = ChangedMutationsTest.class
+			.getName()
+			+ "$Rescanned";
+
+	private static Mutation createMutation(String methodName, int line,
+			String methodHash) {
+		Mutation m = new Mutation(CLASS_NAME, methodName, line, 0,
+				MutationType.REPLACE_CONSTANT);
+		m.setMethodHash(methodHash);
+		m.setMutationResult(new MutationTestResult());
+		QueryManager.save(m);
+		return m;
+	}
+
+	private static Map<String, String> hashes(String... methodsAndHashes) {
+		Map<String, String> result = new HashMap<String, String>();
+		for (int i = 0; i < methodsAndHashes.length; i += 2) {
+			result.put(methodsAndHashes[i], methodsAndHashes[i + 1]);
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a class with an empty method foo that starts at the given line.
+	 */
+	private static byte[] createClass(int line) {
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, CLASS_NAME.replace('.',
+				'/'), null, "java/lang/Object", null);
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC
+				| Opcodes.ACC_STATIC, "foo", "()V", null, null);
+		mv.visitCode();
+		Label start = new Label();
+		mv.visitLabel(start);
+		mv.visitLineNumber(line, start);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	@After
+	public void tearDown() {
+		QueryManager.deleteMutations(CLASS_NAME);
+	}
+
+	@Test
+	public void testUnchangedClassIsNotScanned() {
+		createMutation("foo()V", 10, "1");
+		assertFalse(ChangedMutations.prepareRescan(CLASS_NAME, hashes(
+				"foo()V", "1")));
+		assertEquals(1, QueryManager.getMutationsForClass(CLASS_NAME).size());
+	}
+
+	@Test
+	public void testNewClassIsScanned() {
+		assertTrue(ChangedMutations.prepareRescan(CLASS_NAME, hashes(
+				"foo()V", "1")));
+	}
+
+	@Test
+	public void testRescanModifiedClass() {
+		Mutation unchanged = createMutation("foo()V", 10, "1");
+		createMutation("bar()V", 20, "2");
+		createMutation("removed()V", 30, "3");
+		assertTrue(ChangedMutations.prepareRescan(CLASS_NAME, hashes(
+				"foo()V", "1", "bar()V", "4")));
+		List<Mutation> mutations = QueryManager
+				.getMutationsForClass(CLASS_NAME);
+		assertEquals(1, mutations.size());
+		Mutation kept = mutations.get(0);
+		assertEquals(unchanged.getId(), kept.getId());
+		assertNotNull(kept.getMutationResult());
+	}
+
+	@Test
+	public void testRescanShiftedLines() {
+		byte[] before = createClass(10);
+		byte[] after = createClass(11);
+		assertEquals(BytecodeHash.hashClass(before), BytecodeHash
+				.hashClass(after));
+		Map<String, String> hashes = BytecodeHash.hashMethods(before);
+		createMutation("foo()V", 10, hashes.get("foo()V"));
+		assertFalse(ChangedMutations.prepareRescan(CLASS_NAME, hashes));
+		assertTrue(ChangedMutations.prepareRescan(CLASS_NAME, BytecodeHash
+				.hashMethods(after)));
+		assertEquals(0, QueryManager.getMutationsForClass(CLASS_NAME).size());
+	}
+}
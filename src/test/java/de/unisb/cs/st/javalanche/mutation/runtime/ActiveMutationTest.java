@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ActiveMutationTest {
+
+	@After
+	public void tearDown() {
+		ActiveMutation.clear();
+	}
+
+	@Test
+	public void testSupportedIds() {
+		assertFalse(ActiveMutation.isSupportedId(null));
+		assertFalse(ActiveMutation.isSupportedId(0l));
+		assertFalse(ActiveMutation.isSupportedId(Integer.MAX_VALUE + 1l));
+		assertTrue(ActiveMutation.isSupportedId(1l));
+		assertTrue(ActiveMutation.isSupportedId((long) Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testSetAndClear() {
+		ActiveMutation.set(42l);
+		assertEquals(42, ActiveMutation.id);
+		ActiveMutation.clear();
+		assertEquals(ActiveMutation.NO_MUTATION, ActiveMutation.id);
+	}
+
+	@Test
+	public void testUnsupportedIdIsNotSet() {
+		ActiveMutation.set(42l);
+		ActiveMutation.set(Integer.MAX_VALUE + 43l);
+		assertEquals(ActiveMutation.NO_MUTATION, ActiveMutation.id);
+	}
+}
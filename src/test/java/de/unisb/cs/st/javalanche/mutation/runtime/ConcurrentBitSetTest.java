@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ConcurrentBitSetTest {
+
+	@Test
+	public void testSetAndGet() {
+		ConcurrentBitSet bitSet = new ConcurrentBitSet(128);
+		bitSet.set(0);
+		bitSet.set(63);
+		bitSet.set(64);
+		assertTrue(bitSet.get(0));
+		assertTrue(bitSet.get(63));
+		assertTrue(bitSet.get(64));
+		assertFalse(bitSet.get(1));
+		assertFalse(bitSet.get(127));
+	}
+
+	@Test
+	public void testOutOfRange() {
+		ConcurrentBitSet bitSet = new ConcurrentBitSet(64);
+		bitSet.set(-1);
+		bitSet.set(64);
+		assertFalse(bitSet.get(-1));
+		assertFalse(bitSet.get(64));
+	}
+
+	@Test
+	public void testClear() {
+		ConcurrentBitSet bitSet = new ConcurrentBitSet(64);
+		bitSet.set(3);
+		bitSet.clear();
+		assertFalse(bitSet.get(3));
+	}
+
+	@Test
+	public void testEnsureCapacity() {
+		ConcurrentBitSet bitSet = new ConcurrentBitSet(64);
+		bitSet.set(5);
+		bitSet.ensureCapacity(1000);
+		assertTrue(bitSet.capacity() >= 1000);
+		assertTrue(bitSet.get(5));
+		bitSet.set(999);
+		assertTrue(bitSet.get(999));
+	}
+
+	@Test
+	public void testConcurrentSet() throws InterruptedException {
+		final ConcurrentBitSet bitSet = new ConcurrentBitSet(256);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final int offset = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int bit = offset; bit < 256; bit += 4) {
+						bitSet.set(bit);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int bit = 0; bit < 256; bit++) {
+			assertTrue(bitSet.get(bit));
+		}
+	}
+}
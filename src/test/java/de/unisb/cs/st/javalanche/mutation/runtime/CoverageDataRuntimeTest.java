@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import static org.junit.Assert.*;
+
+import java.lang.CoverageDataRuntime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class CoverageDataRuntimeTest {
+
+	private static final int THREADS = 4;
+
+	private static final int PROBES_PER_THREAD = 2000;
+
+	@Test
+	public void testConcurrentTouchesWhileGrowing() throws Exception {
+		long firstId = 9100000000L;
+		final int[] probeIds = new int[THREADS * PROBES_PER_THREAD];
+		for (int i = 0; i < probeIds.length; i++) {
+			probeIds[i] = CoverageDataRuntime.registerProbe(firstId + i);
+		}
+		String testName = "CoverageDataRuntimeTest.testConcurrentTouchesWhileGrowing";
+		CoverageDataRuntime.setTestName(testName);
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					// Interleave the threads so that they touch the same
+					// words while the bitset grows.
+					for (int i = offset; i < probeIds.length; i += THREADS) {
+						CoverageDataRuntime.touch(probeIds[i]);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		CoverageDataRuntime.unsetTestName(testName);
+		Map<Long, Set<String>> coverageData = CoverageDataRuntime
+				.getCoverageData();
+		for (int i = 0; i < probeIds.length; i++) {
+			Set<String> tests = coverageData.get(firstId + i);
+			assertNotNull("Touch lost for mutation " + (firstId + i), tests);
+			assertTrue(tests.contains(testName));
+		}
+	}
+
+	@Test
+	public void testTouchOutsideOfTestIsNotAttributed() {
+		long id = 9200000000L;
+		int probeId = CoverageDataRuntime.registerProbe(id);
+		CoverageDataRuntime.touch(probeId);
+		String testName = "CoverageDataRuntimeTest.testTouchOutsideOfTestIsNotAttributed";
+		CoverageDataRuntime.setTestName(testName);
+		CoverageDataRuntime.unsetTestName(testName);
+		assertNull(CoverageDataRuntime.getCoverageData().get(id));
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.properties.JavalancheMessages;
+
+public class LoopBudgetTest {
+
+	@After
+	public void tearDown() {
+		LoopBudget.setBudget(LoopBudget.UNLIMITED);
+		LoopBudget.reset();
+	}
+
+	@Test
+	public void testCount() {
+		LoopBudget.reset();
+		for (int i = 0; i < 10; i++) {
+			LoopBudget.tick();
+		}
+		assertEquals(10, LoopBudget.getCount());
+		LoopBudget.reset();
+		assertEquals(0, LoopBudget.getCount());
+	}
+
+	@Test
+	public void testBudgetExceeded() {
+		LoopBudget.reset();
+		LoopBudget.setBudget(5);
+		for (int i = 0; i < 5; i++) {
+			LoopBudget.tick();
+		}
+		try {
+			LoopBudget.tick();
+			fail("Expected LoopBudgetExceededError");
+		} catch (LoopBudgetExceededError e) {
+			assertTrue(e.getMessage().startsWith(
+					JavalancheMessages.MUTATION_TIME_LIMIT_MESSAGE));
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.results.MutationTestResult;
+
+public class MutationSwitcherTest {
+
+	private static Mutation createMutation(int line) {
+		return new Mutation("org.example.Foo", "bar()V", line, 0,
+				MutationType.REPLACE_CONSTANT);
+	}
+
+	private static Set<String> tests(String... names) {
+		return new HashSet<String>(Arrays.asList(names));
+	}
+
+	@Test
+	public void testTakeGroup() {
+		Mutation m1 = createMutation(1);
+		Mutation m2 = createMutation(2);
+		Mutation m3 = createMutation(3);
+		Mutation m4 = createMutation(4);
+		List<Mutation> candidates = new ArrayList<Mutation>(Arrays.asList(m1,
+				m2, m3, m4));
+		List<Set<String>> coverage = new ArrayList<Set<String>>();
+		coverage.add(tests("A", "B"));
+		coverage.add(tests("B", "C"));
+		coverage.add(tests("C"));
+		coverage.add(tests("D"));
+		List<Mutation> group = MutationSwitcher.takeGroup(candidates,
+				coverage, 2);
+		assertEquals(Arrays.asList(m1, m3), group);
+		assertEquals(Arrays.asList(m2, m4), candidates);
+	}
+
+	@Test
+	public void testNoCoverage() {
+		Mutation m1 = createMutation(1);
+		Mutation m2 = createMutation(2);
+		List<Mutation> candidates = new ArrayList<Mutation>(Arrays.asList(m1,
+				m2));
+		List<Set<String>> coverage = new ArrayList<Set<String>>();
+		coverage.add(tests());
+		coverage.add(tests("A"));
+		List<Mutation> group = MutationSwitcher.takeGroup(candidates,
+				coverage, 4);
+		assertEquals(Arrays.asList(m1), group);
+		assertEquals(Arrays.asList(m2), candidates);
+	}
+
+	@Test
+	public void testIteratorIsReadLazily() {
+		final List<Mutation> mutations = Arrays.asList(createMutation(1),
+				createMutation(2));
+		final int[] taken = new int[1];
+		Iterator<Mutation> iter = new Iterator<Mutation>() {
+			public boolean hasNext() {
+				return taken[0] < mutations.size();
+			}
+
+			public Mutation next() {
+				return mutations.get(taken[0]++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		MutationSwitcher switcher = new MutationSwitcher(iter);
+		assertTrue(switcher.hasNext());
+		assertEquals(0, taken[0]);
+		assertSame(mutations.get(0), switcher.next());
+		assertEquals(1, taken[0]);
+		assertSame(mutations.get(1), switcher.next());
+		assertFalse(switcher.hasNext());
+	}
+
+	@Test
+	public void testSkipMutationsWithResult() {
+		Mutation m1 = createMutation(1);
+		m1.setMutationResult(new MutationTestResult());
+		Mutation m2 = createMutation(2);
+		MutationSwitcher switcher = new MutationSwitcher(Arrays.asList(m1,
+				m2));
+		assertSame(m2, switcher.next());
+		assertFalse(switcher.hasNext());
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class StaticStateTest {
+
+	private static class Counter {
+
+		static int value = 1;
+
+		static final StringBuilder log = new StringBuilder();
+	}
+
+	private static class Reinitializable {
+
+		static int value = 1;
+
+		@SuppressWarnings("unused")
+		private static void javalanche$clinit() {
+			value = 1;
+		}
+	}
+
+	private static class CountingInitializer {
+
+		static final AtomicInteger initializations = new AtomicInteger();
+
+		static int value = 1;
+
+		@SuppressWarnings("unused")
+		private static void javalanche$clinit() {
+			value = 1;
+			initializations.incrementAndGet();
+		}
+	}
+
+	@Test
+	public void testRestore() {
+		StaticState.classInitialized(Counter.class, false);
+		StaticState.snapshot();
+		Counter.value = 42;
+		Counter.log.append("x");
+		StaticState.restore();
+		assertEquals(1, Counter.value);
+		assertEquals("x", Counter.log.toString());
+	}
+
+	@Test
+	public void testReinitialize() {
+		StaticState.snapshot();
+		Reinitializable.value = 42;
+		StaticState.classInitialized(Reinitializable.class, true);
+		StaticState.restore();
+		assertEquals(1, Reinitializable.value);
+	}
+
+	@Test
+	public void testResetBetweenTests() {
+		StaticState.classInitialized(Counter.class, false);
+		StaticState.snapshot();
+		// first test modifies the field
+		Counter.value++;
+		assertEquals(2, Counter.value);
+		StaticState.restore();
+		// second test sees the value of the snapshot
+		assertEquals(1, Counter.value);
+		Counter.value += 10;
+		StaticState.restore();
+		assertEquals(1, Counter.value);
+	}
+
+	@Test
+	public void testReinitializeOnlyOnce() {
+		StaticState.snapshot();
+		StaticState.classInitialized(CountingInitializer.class, true);
+		CountingInitializer.value = 42;
+		StaticState.restore();
+		assertEquals(1, CountingInitializer.value);
+		assertEquals(1, CountingInitializer.initializations.get());
+		// later restores reset the recorded fields
+		CountingInitializer.value = 42;
+		StaticState.restore();
+		assertEquals(1, CountingInitializer.value);
+		assertEquals(1, CountingInitializer.initializations.get());
+	}
+
+}
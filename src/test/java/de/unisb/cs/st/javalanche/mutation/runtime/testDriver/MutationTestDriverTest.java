@@ -146,4 +146,30 @@ public class MutationTestDriverTest {
 		assertThat(threadsPost.length - threadsPre.length, is(0));
 		assertTrue(e.hasFailed());
 	}
+
+	@Test
+	public void testAdaptiveTimeoutDisabled() {
+		assertEquals(10000, MutationTestDriver.computeTestTimeout(100l, 0,
+				500, 10000));
+	}
+
+	@Test
+	public void testAdaptiveTimeoutWithoutBaseline() {
+		assertEquals(10000, MutationTestDriver.computeTestTimeout(null, 3,
+				500, 10000));
+	}
+
+	@Test
+	public void testAdaptiveTimeout() {
+		assertEquals(800, MutationTestDriver.computeTestTimeout(100l, 3, 500,
+				10000));
+		assertEquals(500, MutationTestDriver.computeTestTimeout(0l, 3, 500,
+				10000));
+	}
+
+	@Test
+	public void testAdaptiveTimeoutCapped() {
+		assertEquals(10000, MutationTestDriver.computeTestTimeout(5000l, 3,
+				500, 10000));
+	}
 }
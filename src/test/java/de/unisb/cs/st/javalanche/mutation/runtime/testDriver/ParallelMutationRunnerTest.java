@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.runtime.ResultReporter;
+
+public class ParallelMutationRunnerTest {
+
+	private static Mutation createMutation(long id) {
+		Mutation m = new Mutation("Test", "testMethod", 1, (int) id,
+				MutationType.REPLACE_CONSTANT);
+		m.setId(id);
+		return m;
+	}
+
+	@Test
+	public void testPartition() {
+		List<Mutation> mutations = new ArrayList<Mutation>();
+		for (long id = 1; id <= 10; id++) {
+			mutations.add(createMutation(id));
+		}
+		List<List<Mutation>> partitions = ParallelMutationRunner.partition(
+				mutations, 3);
+		assertEquals(3, partitions.size());
+		assertEquals(3, partitions.get(0).size());
+		assertEquals(4, partitions.get(1).size());
+		assertEquals(3, partitions.get(2).size());
+		for (int i = 0; i < partitions.size(); i++) {
+			for (Mutation m : partitions.get(i)) {
+				assertEquals(i, m.getId() % 3);
+			}
+		}
+	}
+
+	@Test
+	public void testSharedClasses() {
+		assertTrue(IsolatingClassLoader.isShared(String.class.getName()));
+		assertTrue(IsolatingClassLoader.isShared(Mutation.class.getName()));
+		assertTrue(IsolatingClassLoader.isShared(ResultReporter.class
+				.getName()));
+		assertTrue(IsolatingClassLoader.isShared(MutationTestListener.class
+				.getName()));
+		assertFalse(IsolatingClassLoader.isShared(MutationTestDriver.class
+				.getName()));
+		assertFalse(IsolatingClassLoader.isShared("org.example.ProjectClass"));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SupervisorClientTest {
+
+	private MutationSupervisor supervisor;
+
+	@Before
+	public void setUp() {
+		supervisor = new MutationSupervisor(2);
+		supervisor.startServer();
+	}
+
+	@After
+	public void tearDown() {
+		supervisor.stopServer();
+	}
+
+	@Test
+	public void testNoMutations() {
+		SupervisorClient client = new SupervisorClient(supervisor.getPort(),
+				0);
+		assertFalse(client.hasNext());
+		assertFalse(client.hasNext());
+		assertEquals(0, supervisor.getRequested(0));
+	}
+
+	@Test
+	public void testRequestIds() {
+		supervisor.addMutationId(1l);
+		supervisor.addMutationId(2l);
+		SupervisorClient client = new SupervisorClient(supervisor.getPort(),
+				0);
+		assertEquals(Long.valueOf(1), client.requestId());
+		assertEquals(Long.valueOf(1), supervisor.takeInFlight(0));
+		assertEquals(Long.valueOf(2), client.requestId());
+		assertNull(client.requestId());
+		assertEquals(2, supervisor.getRequested(0));
+		assertNull(supervisor.takeInFlight(0));
+	}
+
+	@Test
+	public void testWorkersShareQueue() {
+		supervisor.addMutationId(1l);
+		supervisor.addMutationId(2l);
+		supervisor.addMutationId(3l);
+		SupervisorClient client0 = new SupervisorClient(supervisor.getPort(),
+				0);
+		SupervisorClient client1 = new SupervisorClient(supervisor.getPort(),
+				1);
+		assertEquals(Long.valueOf(1), client0.requestId());
+		assertEquals(Long.valueOf(2), client1.requestId());
+		assertEquals(Long.valueOf(3), client1.requestId());
+		assertNull(client0.requestId());
+		assertEquals(1, supervisor.getRequested(0));
+		assertEquals(2, supervisor.getRequested(1));
+		assertEquals(Long.valueOf(3), supervisor.takeInFlight(1));
+	}
+}
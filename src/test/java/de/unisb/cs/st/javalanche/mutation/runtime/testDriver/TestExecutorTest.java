@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.runtime.testDriver.TestExecutor.TestTask;
+
+public class TestExecutorTest {
+
+	private TestExecutor executor;
+
+	private volatile boolean release;
+
+	@Before
+	public void setUp() {
+		executor = new TestExecutor();
+	}
+
+	@After
+	public void tearDown() {
+		release = true;
+		executor.shutdown();
+	}
+
+	@Test
+	public void testPassingTest() throws Exception {
+		final boolean[] executed = new boolean[1];
+		TestTask task = executor.submit(new Runnable() {
+			public void run() {
+				executed[0] = true;
+			}
+		}, 1000, TimeUnit.MILLISECONDS);
+		task.get();
+		assertTrue(executed[0]);
+		assertFalse(task.isTimedOut());
+		assertFalse(executor.hasLeakedThreads());
+	}
+
+	@Test
+	public void testHangingTest() throws Exception {
+		TestTask task = executor.submit(new Runnable() {
+			public void run() {
+				// ignores interrupts
+				while (!release) {
+				}
+			}
+		}, 200, TimeUnit.MILLISECONDS);
+		try {
+			task.get(10, TimeUnit.SECONDS);
+			fail("Expected the test to be cancelled");
+		} catch (CancellationException e) {
+			// expected
+		}
+		assertTrue(task.isTimedOut());
+		assertTrue(executor.isRunning());
+		assertEquals(1, executor.getLeakedThreads().size());
+
+		// the next test runs in a new worker
+		executor.replaceWorker();
+		final Thread[] testThread = new Thread[1];
+		TestTask next = executor.submit(new Runnable() {
+			public void run() {
+				testThread[0] = Thread.currentThread();
+			}
+		}, 1000, TimeUnit.MILLISECONDS);
+		next.get(10, TimeUnit.SECONDS);
+		assertFalse(next.isTimedOut());
+		assertEquals(1, executor.getLeakedThreads().size());
+		assertFalse(executor.getLeakedThreads().contains(testThread[0]));
+
+		release = true;
+		Thread hung = executor.getLeakedThreads().get(0);
+		hung.join(10000);
+		assertFalse(executor.hasLeakedThreads());
+	}
+
+	@Test
+	public void testInterruptibleTest() throws Exception {
+		TestTask task = executor.submit(new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(60000);
+				} catch (InterruptedException e) {
+					// cancelled
+				}
+			}
+		}, 200, TimeUnit.MILLISECONDS);
+		try {
+			task.get(10, TimeUnit.SECONDS);
+			fail("Expected the test to be cancelled");
+		} catch (CancellationException e) {
+			// expected
+		}
+		assertTrue(task.isTimedOut());
+		long end = System.currentTimeMillis() + 10000;
+		while (executor.isRunning() && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertFalse(executor.isRunning());
+		assertFalse(executor.hasLeakedThreads());
+	}
+
+	@Test
+	public void testLeakedThread() throws Exception {
+		final Thread[] leaked = new Thread[1];
+		TestTask task = executor.submit(new Runnable() {
+			public void run() {
+				leaked[0] = new Thread() {
+					@Override
+					public void run() {
+						while (!release) {
+							try {
+								Thread.sleep(10);
+							} catch (InterruptedException e) {
+								// keep running
+							}
+						}
+					}
+				};
+				leaked[0].start();
+			}
+		}, 1000, TimeUnit.MILLISECONDS);
+		task.get(10, TimeUnit.SECONDS);
+		assertFalse(task.isTimedOut());
+		assertTrue(executor.hasLeakedThreads());
+		assertEquals(leaked[0], executor.getLeakedThreads().get(0));
+
+		executor.stopLeakedThreads();
+		leaked[0].join(10000);
+		assertFalse(leaked[0].isAlive());
+		assertFalse(executor.hasLeakedThreads());
+	}
+}
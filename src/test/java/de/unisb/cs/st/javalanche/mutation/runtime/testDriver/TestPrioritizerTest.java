@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2011 Saarland University
+ * 
+ * This file is part of Javalanche.
+ * 
+ * Javalanche is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Javalanche is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Javalanche.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javalanche.mutation.runtime.testDriver;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javalanche.mutation.results.Mutation;
+import de.unisb.cs.st.javalanche.mutation.results.Mutation.MutationType;
+import de.unisb.cs.st.javalanche.mutation.runtime.testDriver.SingleTestResult.TestOutcome;
+
+public class TestPrioritizerTest {
+
+	private static final List<String> TESTS = Arrays.asList("testA", "testB",
+			"testC");
+
+	private static SingleTestResult result(String test, boolean passed) {
+		return new SingleTestResult(test, "", passed ? TestOutcome.PASS
+				: TestOutcome.FAIL, 10);
+	}
+
+	@Test
+	public void testFasterTestsFirst() {
+		Map<String, Long> durations = new HashMap<String, Long>();
+		durations.put("testA", 300l);
+		durations.put("testB", 10l);
+		durations.put("testC", 100l);
+		TestPrioritizer prioritizer = new TestPrioritizer(durations);
+		Mutation m = new Mutation("Clazz", "method()V", 10, 0,
+				MutationType.REPLACE_CONSTANT);
+		assertEquals(Arrays.asList("testB", "testC", "testA"), prioritizer
+				.order(m, TESTS));
+	}
+
+	@Test
+	public void testSiblingKillerFirst() {
+		TestPrioritizer prioritizer = new TestPrioritizer(
+				new HashMap<String, Long>());
+		Mutation sibling = new Mutation("Clazz", "method()V", 10, 0,
+				MutationType.REPLACE_CONSTANT);
+		prioritizer.update(sibling, Arrays.asList(result("testA", true),
+				result("testB", true), result("testC", false)));
+		Mutation m = new Mutation("Clazz", "method()V", 10, 1,
+				MutationType.ARITHMETIC_REPLACE);
+		assertEquals("testC", prioritizer.order(m, TESTS).get(0));
+	}
+}
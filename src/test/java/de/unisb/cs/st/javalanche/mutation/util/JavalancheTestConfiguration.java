@@ -33,6 +33,20 @@ public class JavalancheTestConfiguration implements JavalancheConfiguration {
 	private Map<MutationType, Boolean> typeEnabled = initializeMap();
 	private boolean runAllTestsForMutation = d.runAllTestsForMutation();
 	private boolean useJunit3Runner = d.useJunit3Runner();
+	private boolean useStaticGuards = d.useStaticGuards();
+	private boolean useSwitchDispatch = d.useSwitchDispatch();
+	private boolean useOutOfLineMutations = d.useOutOfLineMutations();
+	private int parallelWorkers = d.getParallelWorkers();
+	private int workerProcesses = d.getWorkerProcesses();
+	private boolean usePrioritizedTestOrder = d.usePrioritizedTestOrder();
+	private int adaptiveTimeoutFactor = d.getAdaptiveTimeoutFactor();
+	private int adaptiveTimeoutFloor = d.getAdaptiveTimeoutFloor();
+	private boolean useLoopBudget = d.useLoopBudget();
+	private int loopBudgetFactor = d.getLoopBudgetFactor();
+	private boolean useStaticStateReset = d.useStaticStateReset();
+	private boolean useIncrementalMode = d.useIncrementalMode();
+	private boolean useEquivalenceDetection = d.useEquivalenceDetection();
+	private int mutationGroupSize = d.getMutationGroupSize();
 
 	private Map<MutationType, Boolean> initializeMap() {
 		Map<MutationType, Boolean> map = new HashMap<MutationType, Boolean>();
@@ -232,4 +246,129 @@ public class JavalancheTestConfiguration implements JavalancheConfiguration {
 		this.useJunit3Runner = useJunit3Runner;
 	}
 
+	@Override
+	public boolean useStaticGuards() {
+		return useStaticGuards;
+	}
+
+	public void setUseStaticGuards(boolean useStaticGuards) {
+		this.useStaticGuards = useStaticGuards;
+	}
+
+	@Override
+	public boolean useSwitchDispatch() {
+		return useSwitchDispatch;
+	}
+
+	public void setUseSwitchDispatch(boolean useSwitchDispatch) {
+		this.useSwitchDispatch = useSwitchDispatch;
+	}
+
+	@Override
+	public boolean useOutOfLineMutations() {
+		return useOutOfLineMutations;
+	}
+
+	public void setUseOutOfLineMutations(boolean useOutOfLineMutations) {
+		this.useOutOfLineMutations = useOutOfLineMutations;
+	}
+
+	@Override
+	public int getParallelWorkers() {
+		return parallelWorkers;
+	}
+
+	public void setParallelWorkers(int parallelWorkers) {
+		this.parallelWorkers = parallelWorkers;
+	}
+
+	@Override
+	public int getWorkerProcesses() {
+		return workerProcesses;
+	}
+
+	public void setWorkerProcesses(int workerProcesses) {
+		this.workerProcesses = workerProcesses;
+	}
+
+	@Override
+	public boolean usePrioritizedTestOrder() {
+		return usePrioritizedTestOrder;
+	}
+
+	public void setUsePrioritizedTestOrder(boolean usePrioritizedTestOrder) {
+		this.usePrioritizedTestOrder = usePrioritizedTestOrder;
+	}
+
+	@Override
+	public int getAdaptiveTimeoutFactor() {
+		return adaptiveTimeoutFactor;
+	}
+
+	public void setAdaptiveTimeoutFactor(int adaptiveTimeoutFactor) {
+		this.adaptiveTimeoutFactor = adaptiveTimeoutFactor;
+	}
+
+	@Override
+	public int getAdaptiveTimeoutFloor() {
+		return adaptiveTimeoutFloor;
+	}
+
+	public void setAdaptiveTimeoutFloor(int adaptiveTimeoutFloor) {
+		this.adaptiveTimeoutFloor = adaptiveTimeoutFloor;
+	}
+
+	@Override
+	public boolean useLoopBudget() {
+		return useLoopBudget;
+	}
+
+	public void setUseLoopBudget(boolean useLoopBudget) {
+		this.useLoopBudget = useLoopBudget;
+	}
+
+	@Override
+	public int getLoopBudgetFactor() {
+		return loopBudgetFactor;
+	}
+
+	public void setLoopBudgetFactor(int loopBudgetFactor) {
+		this.loopBudgetFactor = loopBudgetFactor;
+	}
+
+	@Override
+	public boolean useStaticStateReset() {
+		return useStaticStateReset;
+	}
+
+	public void setUseStaticStateReset(boolean useStaticStateReset) {
+		this.useStaticStateReset = useStaticStateReset;
+	}
+
+	@Override
+	public boolean useIncrementalMode() {
+		return useIncrementalMode;
+	}
+
+	public void setUseIncrementalMode(boolean useIncrementalMode) {
+		this.useIncrementalMode = useIncrementalMode;
+	}
+
+	@Override
+	public boolean useEquivalenceDetection() {
+		return useEquivalenceDetection;
+	}
+
+	public void setUseEquivalenceDetection(boolean useEquivalenceDetection) {
+		this.useEquivalenceDetection = useEquivalenceDetection;
+	}
+
+	@Override
+	public int getMutationGroupSize() {
+		return mutationGroupSize;
+	}
+
+	public void setMutationGroupSize(int mutationGroupSize) {
+		this.mutationGroupSize = mutationGroupSize;
+	}
 }